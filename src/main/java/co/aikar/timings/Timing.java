@@ -23,6 +23,8 @@
  */
 package co.aikar.timings;
 
+import org.cloudburstmc.server.CloudServer;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -78,8 +80,17 @@ public class Timing implements AutoCloseable {
         }
     }
 
+    /**
+     * Timings are not thread safe, so anything timed off the main thread, such as levels that are ticked in parallel,
+     * is ignored.
+     */
+    private static boolean isPrimaryThread() {
+        CloudServer server = CloudServer.getInstance();
+        return server == null || server.isPrimaryThread();
+    }
+
     public Timing startTiming() {
-        if (!this.enabled) {
+        if (!this.enabled || !isPrimaryThread()) {
             return this;
         }
 
@@ -93,7 +104,7 @@ public class Timing implements AutoCloseable {
     }
 
     public void stopTiming() {
-        if (!this.enabled) {
+        if (!this.enabled || !isPrimaryThread()) {
             return;
         }
 
@@ -103,6 +114,23 @@ public class Timing implements AutoCloseable {
         }
     }
 
+    /**
+     * Records time that was measured off the main thread, e.g. by asynchronous tasks, as {@code count} executions
+     * taking {@code diff} nanoseconds in total. Must be called from the main thread.
+     */
+    public void addTime(long diff, int count) {
+        if (!this.enabled || count <= 0 || !isPrimaryThread()) {
+            return;
+        }
+
+        this.record.add(diff, count);
+        if (!this.added) {
+            this.added = true;
+            this.timed = true;
+            TimingsManager.TIMINGS.add(this);
+        }
+    }
+
     public void abort() {
         if (this.enabled && this.timingDepth > 0) {
             this.start = 0;
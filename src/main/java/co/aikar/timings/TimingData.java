@@ -53,6 +53,11 @@ class TimingData {
         this.curTickTotal += diff;
     }
 
+    void add(long diff, int count) {
+        this.curTickCount += count;
+        this.curTickTotal += diff;
+    }
+
     void tick(boolean violated) {
         this.count += this.curTickCount;
         this.totalTime += this.curTickTotal;
@@ -86,13 +86,16 @@ public final class Timings {
     public static final Timing permissionDefaultTimer;
 
     static {
-        setTimingsEnabled(CloudServer.getInstance().getConfig().getTimings().isEnabled());
-        setVerboseEnabled(CloudServer.getInstance().getConfig().getTimings().isVerbose());
-        setHistoryInterval(CloudServer.getInstance().getConfig().getTimings().getHistoryInterval());
-        setHistoryLength(CloudServer.getInstance().getConfig().getTimings().getHistoryLength());
-
-        privacy = CloudServer.getInstance().getConfig().getTimings().isPrivacy();
-        ignoredConfigSections.addAll(CloudServer.getInstance().getConfig().getTimings().getIgnore());
+        // Timings stay disabled when used without a server, e.g. in benchmarks
+        if (CloudServer.getInstance() != null) {
+            setTimingsEnabled(CloudServer.getInstance().getConfig().getTimings().isEnabled());
+            setVerboseEnabled(CloudServer.getInstance().getConfig().getTimings().isVerbose());
+            setHistoryInterval(CloudServer.getInstance().getConfig().getTimings().getHistoryInterval());
+            setHistoryLength(CloudServer.getInstance().getConfig().getTimings().getHistoryLength());
+
+            privacy = CloudServer.getInstance().getConfig().getTimings().isPrivacy();
+            ignoredConfigSections.addAll(CloudServer.getInstance().getConfig().getTimings().getIgnore());
+        }
 
         log.debug("Timings: \n" +
                 "Enabled - " + isTimingsEnabled() + "\n" +
@@ -9,10 +9,13 @@ import com.google.inject.Guice;
 import com.google.inject.Stage;
 import com.nukkitx.nbt.*;
 import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.BedrockPacketCodec;
+import com.nukkitx.protocol.bedrock.BedrockServerSession;
 import com.nukkitx.protocol.bedrock.data.skin.SerializedSkin;
 import com.nukkitx.protocol.bedrock.packet.PlayerListPacket;
 import com.spotify.futures.CompletableFutures;
 import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectArrayMap;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import net.daporkchop.ldbjni.LevelDB;
@@ -40,6 +43,7 @@ import org.cloudburstmc.server.math.NukkitMath;
 import org.cloudburstmc.server.metadata.EntityMetadataStore;
 import org.cloudburstmc.server.metadata.LevelMetadataStore;
 import org.cloudburstmc.server.metadata.PlayerMetadataStore;
+import org.cloudburstmc.server.network.BatchEncoder;
 import org.cloudburstmc.server.network.BedrockInterface;
 import org.cloudburstmc.server.network.Network;
 import org.cloudburstmc.server.network.ProtocolInfo;
@@ -419,18 +423,13 @@ public class CloudServer implements Server {
         log.info(this.getLanguage().translate("cloudburst.language.selected", locale.getDisplayCountry(locale), locale));
         log.info(this.getLanguage().translate("cloudburst.server.start", TextFormat.AQUA + this.getVersion() + TextFormat.RESET));
 
-        Object poolSize = getConfig().getSettings().getAsyncWorkers();
-        if (!(poolSize instanceof Integer)) {
-            try {
-                poolSize = Integer.valueOf((String) poolSize);
-            } catch (Exception e) {
-                poolSize = -1;
-            }
+        int asyncWorkers;
+        try {
+            asyncWorkers = Integer.parseInt(getConfig().getSettings().getAsyncWorkers());
+        } catch (NumberFormatException e) {
+            asyncWorkers = -1; // auto
         }
-        int parallelism = (int) poolSize;
-        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", String.valueOf(parallelism));
-        System.setProperty("java.util.concurrent.ForkJoinPool.common.exceptionHandler", "cn.cloudburst.scheduler.ServerScheduler.ExceptionHandler");
-        log.debug("Async pool parallelism: {}", parallelism == -1 ? "auto" : parallelism);
+        this.scheduler.initExecutors(getConfig().getExecutors(), asyncWorkers);
 
 //        this.networkZlibProvider = this.getConfig("network.zlib-provider", 2);
 //        Zlib.setProvider(this.networkZlibProvider);
@@ -591,20 +590,76 @@ public class CloudServer implements Server {
             return;
         }
 
-        BatchPacketsEvent ev = new BatchPacketsEvent(players, packets, forceSync);
-        this.eventManager.fire(ev);
-        if (ev.isCancelled()) {
+        if (LevelManager.isLevelTickThread()) {
+            this.levelManager.runOnMainThread(() -> this.batchPackets(players, packets, forceSync));
             return;
         }
 
+        if (this.eventManager.hasListeners(BatchPacketsEvent.class)) {
+            BatchPacketsEvent ev = new BatchPacketsEvent(players, packets, forceSync);
+            this.eventManager.fire(ev);
+            if (ev.isCancelled()) {
+                return;
+            }
+        }
+
         try (Timing ignored = Timings.playerNetworkSendTimer.startTiming()) {
-            List<Player> targets = new ArrayList<>();
+            // Listeners may cancel or change the packets for single players, and a single player gains nothing from
+            // sharing the encoded batch
+            if (players.length == 1 || this.eventManager.hasListeners(PlayerPacketSendEvent.class)) {
+                for (Player p : players) {
+                    if (p.isConnected()) {
+                        for (BedrockPacket packet : packets) {
+                            p.sendPacket(packet);
+                        }
+                    }
+                }
+                return;
+            }
+
+            this.sendEncodedOnce(players, Arrays.asList(packets));
+        }
+    }
+
+    /**
+     * Serializes and compresses the packets once for every codec in use by the players and sends the same batch to
+     * all players using that codec.
+     * <p>
+     * The batch is sent straight away like chunks are, after the packets already queued for each player by
+     * {@link Player#sendPacket(BedrockPacket)}, so the players still receive everything in the order it was sent.
+     */
+    private void sendEncodedOnce(Player[] players, List<BedrockPacket> packets) {
+        Map<BedrockPacketCodec, ByteBuf> batches = new Reference2ObjectArrayMap<>(1);
+        try {
             for (Player p : players) {
-                if (p.isConnected()) {
+                if (!p.isConnected()) {
+                    continue;
+                }
+
+                BedrockServerSession session = p.getSession();
+                ByteBuf batch = batches.get(session.getPacketCodec());
+                if (batch == null) {
+                    try {
+                        batch = BatchEncoder.encode(session, packets, this.networkCompressionLevel);
+                    } catch (Exception e) {
+                        log.error("Unable to encode packets " + packets, e);
+                        return;
+                    }
+                    batches.put(session.getPacketCodec(), batch);
+                }
+
+                if (log.isTraceEnabled()) {
                     for (BedrockPacket packet : packets) {
-                        p.sendPacket(packet);
+                        if (!this.isIgnoredPacket(packet.getClass())) {
+                            log.trace("Outbound {}: {}", p.getName(), packet);
+                        }
                     }
                 }
+                p.sendWrapped(batch);
+            }
+        } finally {
+            for (ByteBuf batch : batches.values()) {
+                batch.release();
             }
         }
     }
@@ -663,6 +718,9 @@ public class CloudServer implements Server {
             log.debug("Unloading all levels");
             this.levelManager.close();
 
+            log.debug("Stopping executors");
+            this.scheduler.shutdownExecutors();
+
             log.debug("Closing console");
             this.consoleThread.interrupt();
 
@@ -344,6 +344,27 @@ public abstract class BlockBehavior {
         return bb1 != null && bb.intersectsWith(bb1);
     }
 
+    /**
+     * Whether the bounding box of the block intersects with the box. Unlike {@link #collidesWithBB(Block, AxisAlignedBB)}
+     * it needs neither a {@link Block} nor an offset copy of the bounding box, so collision checks can read states
+     * straight from the chunk, see {@link org.cloudburstmc.server.level.BlockAccess}. Behaviors whose bounding box
+     * depends on the position have to override this as well.
+     *
+     * @param x     block x
+     * @param y     block y
+     * @param z     block z
+     * @param state block state
+     * @param bb    box to check
+     * @return whether the block collides with the box
+     */
+    public boolean collidesWithBB(int x, int y, int z, BlockState state, AxisAlignedBB bb) {
+        AxisAlignedBB shape = this.getBoundingBox(state);
+        return shape != null &&
+                bb.getMaxY() > shape.getMinY() + y && bb.getMinY() < shape.getMaxY() + y &&
+                bb.getMaxX() > shape.getMinX() + x && bb.getMinX() < shape.getMaxX() + x &&
+                bb.getMaxZ() > shape.getMinZ() + z && bb.getMinZ() < shape.getMaxZ() + z;
+    }
+
     public void onEntityCollide(Block block, Entity entity) {
 
     }
@@ -362,7 +383,8 @@ public abstract class BlockBehavior {
         AxisAlignedBB bb = type.getBoundingBox();
 
         if (bb != null && pos != null) {
-            bb = bb.offset(pos);
+            // The bounding box of the type is shared
+            bb = bb.getOffsetBoundingBox(pos.getX(), pos.getY(), pos.getZ());
         }
 
         return bb;
@@ -244,6 +244,11 @@ public class BlockBehaviorDelegate extends BlockBehavior {
         return parent.collidesWithBB(block, bb, collisionBB);
     }
 
+    @Override
+    public boolean collidesWithBB(int x, int y, int z, BlockState state, AxisAlignedBB bb) {
+        return parent.collidesWithBB(x, y, z, state, bb);
+    }
+
     @Override
     public void onEntityCollide(Block block, Entity entity) {
         parent.onEntityCollide(block, entity);
@@ -75,6 +75,12 @@ public class BlockBehaviorHopper extends BlockBehaviorTransparent {
                 block.set(state.withTrait(BlockTraits.IS_TOGGLED, powered));
             }
 
+            // A neighbouring container may have been placed or removed
+            BlockEntity blockEntity = block.getLevel().getLoadedBlockEntity(block.getPosition());
+            if (blockEntity instanceof Hopper) {
+                blockEntity.scheduleUpdate();
+            }
+
             return type;
         }
 
@@ -84,10 +84,26 @@ public interface BlockEntity {
 
     void spawnTo(Player player);
 
+    /**
+     * Wakes the block entity up, so that it is ticked on the next tick.
+     */
     void scheduleUpdate();
 
+    /**
+     * Lets the block entity sleep until the given number of ticks has passed.
+     *
+     * @param delay ticks until the block entity is ticked
+     */
+    void scheduleUpdate(int delay);
+
     void setDirty();
 
+    /**
+     * Ticks the block entity.
+     *
+     * @return whether the block entity has to be ticked again on the next tick, otherwise it sleeps until it is woken up
+     * by {@link #scheduleUpdate()} or {@link #scheduleUpdate(int)}
+     */
     boolean onUpdate();
 
     void onBreak();
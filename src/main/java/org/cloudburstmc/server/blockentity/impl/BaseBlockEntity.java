@@ -329,6 +329,10 @@ public abstract class BaseBlockEntity implements BlockEntity {
         this.level.scheduleBlockEntityUpdate(this);
     }
 
+    public final void scheduleUpdate(int delay) {
+        this.level.scheduleBlockEntityUpdate(this, delay);
+    }
+
     public void close() {
         if (!this.closed) {
             this.closed = true;
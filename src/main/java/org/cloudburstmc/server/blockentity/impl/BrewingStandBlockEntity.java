@@ -45,6 +45,8 @@ public class BrewingStandBlockEntity extends BaseBlockEntity implements BrewingS
     public short cookTime = MAX_COOK_TIME;
     public short fuelTotal;
     public short fuelAmount;
+    // Level tick the cook time was last counted down at while brewing, the stand sleeps in between
+    private long lastBrewTick = -1;
 
     public BrewingStandBlockEntity(BlockEntityType<?> type, Chunk chunk, Vector3i position) {
         super(type, chunk, position);
@@ -75,7 +77,7 @@ public class BrewingStandBlockEntity extends BaseBlockEntity implements BrewingS
             items.add(ItemUtils.serializeItem(entry.getValue(), entry.getKey()));
         }
         tag.putList("Items", NbtType.COMPOUND, items);
-        tag.putShort("CookTime", this.cookTime);
+        tag.putShort("CookTime", this.getCookTime());
     }
 
     @Override
@@ -118,7 +120,10 @@ public class BrewingStandBlockEntity extends BaseBlockEntity implements BrewingS
     }
 
     public short getCookTime() {
-        return cookTime;
+        if (this.lastBrewTick < 0) {
+            return cookTime;
+        }
+        return (short) Math.max(0, this.cookTime - (this.getLevel().getCurrentTick() - this.lastBrewTick));
     }
 
     public void setCookTime(int cookTime) {
@@ -126,6 +131,7 @@ public class BrewingStandBlockEntity extends BaseBlockEntity implements BrewingS
             this.scheduleUpdate();
         }
         this.cookTime = (short) cookTime;
+        this.lastBrewTick = -1;
     }
 
     public short getFuelTotal() {
@@ -183,7 +189,9 @@ public class BrewingStandBlockEntity extends BaseBlockEntity implements BrewingS
                 }
             }
 
-            this.cookTime--;
+            // The stand sleeps while brewing, so all ticks since the last update are counted down at once
+            this.cookTime = this.lastBrewTick < 0 ? (short) (this.cookTime - 1) : this.getCookTime();
+            this.lastBrewTick = this.getLevel().getCurrentTick();
 
             if (this.cookTime <= 0) { //20 seconds
                 BrewEvent e = new BrewEvent(this);
@@ -213,11 +221,15 @@ public class BrewingStandBlockEntity extends BaseBlockEntity implements BrewingS
                 }
 
                 this.cookTime = MAX_COOK_TIME;
+                this.lastBrewTick = -1;
+                // Start brewing the next ingredient on the next tick
+                ret = true;
+            } else {
+                this.scheduleUpdate(this.cookTime);
             }
-
-            ret = true;
         } else {
             this.cookTime = MAX_COOK_TIME;
+            this.lastBrewTick = -1;
         }
 
         //this.sendBrewTime();
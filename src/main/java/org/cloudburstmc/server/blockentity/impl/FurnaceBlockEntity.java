@@ -41,6 +41,8 @@ public class FurnaceBlockEntity extends BaseBlockEntity implements Furnace {
     protected short burnTime = 0;
     protected short cookTime = 0;
     protected short burnDuration = 0;
+    // Level tick the fuel burns out at while the furnace sleeps with nothing to smelt, -1 if it is awake
+    private long idleBurnEnd = -1;
 
     protected FurnaceBlockEntity(BlockEntityType<?> type, Chunk chunk, Vector3i position, InventoryType inventoryType) {
         super(type, chunk, position);
@@ -70,7 +72,7 @@ public class FurnaceBlockEntity extends BaseBlockEntity implements Furnace {
         super.saveAdditionalData(tag);
 
         tag.putShort("CookTime", cookTime);
-        tag.putShort("BurnTime", burnTime);
+        tag.putShort("BurnTime", (short) this.getBurnTime());
         tag.putShort("BurnDuration", burnDuration);
         List<NbtMap> items = new ArrayList<>();
         for (Map.Entry<Integer, ItemStack> entry : this.inventory.getContents().entrySet()) {
@@ -156,6 +158,12 @@ public class FurnaceBlockEntity extends BaseBlockEntity implements Furnace {
 
         this.timing.startTiming();
 
+        if (this.idleBurnEnd >= 0) {
+            // Burn the fuel for the ticks slept through, as if it had been ticked
+            this.burnTime = (short) Math.max(0, this.idleBurnEnd - this.getLevel().getCurrentTick() + 1);
+            this.idleBurnEnd = -1;
+        }
+
         boolean ret = false;
         ItemStack fuel = this.inventory.getFuel();
         ItemStack raw = this.inventory.getSmelting();
@@ -226,6 +234,13 @@ public class FurnaceBlockEntity extends BaseBlockEntity implements Furnace {
 
         this.lastUpdate = System.currentTimeMillis();
 
+        if (ret && !canSmelt && burnTime > 0 && this.getInventory().getViewers().isEmpty()) {
+            // Nothing to smelt, sleep until the fuel has burnt out unless the inventory changes before
+            this.idleBurnEnd = this.getLevel().getCurrentTick() + burnTime;
+            this.scheduleUpdate(burnTime);
+            ret = false;
+        }
+
         this.timing.stopTiming();
 
         return ret;
@@ -240,11 +255,15 @@ public class FurnaceBlockEntity extends BaseBlockEntity implements Furnace {
     }
 
     public int getBurnTime() {
+        if (this.idleBurnEnd >= 0) {
+            return (int) Math.max(0, this.idleBurnEnd - this.getLevel().getCurrentTick());
+        }
         return burnTime;
     }
 
     public void setBurnTime(int burnTime) {
         this.burnTime = (short) burnTime;
+        this.idleBurnEnd = -1;
         if (burnTime > 0) {
             this.scheduleUpdate();
         }
@@ -18,6 +18,7 @@ import org.cloudburstmc.server.inventory.Inventory;
 import org.cloudburstmc.server.inventory.InventoryHolder;
 import org.cloudburstmc.server.item.ItemStack;
 import org.cloudburstmc.server.item.ItemUtils;
+import org.cloudburstmc.server.level.Level;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.math.AxisAlignedBB;
 import org.cloudburstmc.server.math.Direction;
@@ -33,13 +34,19 @@ import static com.nukkitx.math.vector.Vector3i.UP;
 
 /**
  * Created by CreeperFace on 8.5.2017.
+ * <p>
+ * Hoppers sleep while they have nothing to move. They are woken up when their own inventory or the inventory of a
+ * neighbouring container changes, when a neighbouring block changes and when an item enters their pickup area.
  */
 public class HopperBlockEntity extends BaseBlockEntity implements Hopper {
 
     protected final HopperInventory inventory = new HopperInventory(this);
 
+    private static final int TRANSFER_COOLDOWN = 8;
+
     private final AxisAlignedBB pickupArea = new SimpleAxisAlignedBB(this.getPosition(), this.getPosition().add(1, 2, 1));
-    private int transferCooldown = 8;
+    // Level tick until which the hopper is on transfer cooldown
+    private long cooldownEnd;
 
     public HopperBlockEntity(BlockEntityType<?> type, Chunk chunk, Vector3i position) {
         super(type, chunk, position);
@@ -69,7 +76,7 @@ public class HopperBlockEntity extends BaseBlockEntity implements Hopper {
         }
         tag.putList("Items", NbtType.COMPOUND, items);
 
-        tag.putInt("TransferCooldown", this.transferCooldown);
+        tag.putInt("TransferCooldown", this.getTransferCooldown());
     }
 
     @Override
@@ -78,11 +85,15 @@ public class HopperBlockEntity extends BaseBlockEntity implements Hopper {
     }
 
     public boolean isOnTransferCooldown() {
-        return this.transferCooldown > 0;
+        return this.getTransferCooldown() > 0;
+    }
+
+    public int getTransferCooldown() {
+        return (int) Math.max(0, this.cooldownEnd - this.getLevel().getCurrentTick());
     }
 
     public void setTransferCooldown(int transferCooldown) {
-        this.transferCooldown = transferCooldown;
+        this.cooldownEnd = this.getLevel().getCurrentTick() + transferCooldown;
     }
 
     @Override
@@ -96,31 +107,63 @@ public class HopperBlockEntity extends BaseBlockEntity implements Hopper {
             return false;
         }
 
-        if (this.transferCooldown > 0) {
-            this.transferCooldown--;
+        int cooldown = this.getTransferCooldown();
+        if (cooldown > 0) {
+            this.scheduleUpdate(cooldown);
+            return false;
         }
 
-        if (!this.isOnTransferCooldown()) {
-            BlockEntity blockEntity = this.getLevel().getBlockEntity(this.getPosition().add(UP));
+        BlockEntity blockEntity = this.getLevel().getBlockEntity(this.getPosition().add(UP));
 
-            boolean changed = pushItems();
+        boolean changed = pushItems();
 
-            if (!changed) {
-                if (blockEntity == null) {
-                    changed = pickupItems();
-                } else {
-                    changed = pullItems();
-                }
+        if (!changed) {
+            if (blockEntity == null) {
+                changed = pickupItems();
+            } else {
+                changed = pullItems();
             }
+        }
 
-            if (changed) {
-                this.setTransferCooldown(8);
-                setDirty();
-            }
+        if (changed) {
+            this.setTransferCooldown(TRANSFER_COOLDOWN);
+            this.scheduleUpdate(TRANSFER_COOLDOWN);
+            setDirty();
         }
 
+        // Nothing left to move, sleep until something changes
+        return false;
+    }
 
-        return true;
+    /**
+     * Wakes up the hopper at the given position and the hoppers next to it, if they are loaded.
+     *
+     * @param level    level
+     * @param position position of the changed block or inventory
+     */
+    public static void wakeUpAround(Level level, Vector3i position) {
+        wakeUp(level, position);
+        for (Direction direction : Direction.values()) {
+            wakeUp(level, direction.getOffset(position));
+        }
+    }
+
+    /**
+     * Wakes up the hoppers which can pick up an item entity at the given position, if they are loaded.
+     *
+     * @param level    level
+     * @param position block position of the item entity
+     */
+    public static void wakeUpPickup(Level level, Vector3i position) {
+        wakeUp(level, position);
+        wakeUp(level, position.sub(UP));
+    }
+
+    private static void wakeUp(Level level, Vector3i position) {
+        BlockEntity blockEntity = level.getLoadedBlockEntity(position);
+        if (blockEntity instanceof Hopper) {
+            blockEntity.scheduleUpdate();
+        }
     }
 
     public boolean pullItems() {
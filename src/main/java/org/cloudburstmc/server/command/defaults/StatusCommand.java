@@ -6,7 +6,9 @@ import org.cloudburstmc.server.command.Command;
 import org.cloudburstmc.server.command.CommandSender;
 import org.cloudburstmc.server.command.data.CommandData;
 import org.cloudburstmc.server.level.Level;
+import org.cloudburstmc.server.level.TickBudgetStats;
 import org.cloudburstmc.server.math.NukkitMath;
+import org.cloudburstmc.server.scheduler.ServerExecutor;
 import org.cloudburstmc.server.utils.TextFormat;
 
 import java.util.Objects;
@@ -60,6 +62,14 @@ public class StatusCommand extends Command {
 
         sender.sendMessage(TextFormat.YELLOW + "Thread count: " + TextFormat.GREEN + Thread.getAllStackTraces().size());
 
+        for (ServerExecutor executor : server.getScheduler().getExecutors()) {
+            sender.sendMessage(TextFormat.YELLOW + executor.getName() + " executor: " +
+                    TextFormat.RED + executor.getActiveCount() + TextFormat.GREEN + "/" + executor.getPoolSize() + " threads active, " +
+                    TextFormat.RED + executor.getQueueDepth() + TextFormat.GREEN + " queued, " +
+                    TextFormat.RED + NukkitMath.round(executor.getAverageLatency(TimeUnit.MILLISECONDS), 2) + TextFormat.GREEN + " ms latency" +
+                    (executor.getSaturatedCount() > 0 ? TextFormat.YELLOW + " (saturated " + executor.getSaturatedCount() + " times)" : ""));
+        }
+
 
         Runtime runtime = Runtime.getRuntime();
         double totalMB = NukkitMath.round(((double) runtime.totalMemory()) / 1024 / 1024, 2);
@@ -90,14 +100,23 @@ public class StatusCommand extends Command {
                 TextFormat.RED + server.getMaxPlayers() + TextFormat.GREEN + " max. ");
 
         for (Level level : server.getLevels()) {
+            TickBudgetStats budget = level.getTickBudgetStats();
             sender.sendMessage(
                     TextFormat.YELLOW + "World \"" + level.getId() + "\"" + (!Objects.equals(level.getId(), level.getName()) ? " (" + level.getName() + ")" : "") + ": " +
                             TextFormat.RED + level.getChunks().size() + TextFormat.GREEN + " chunks, " +
                             TextFormat.RED + level.getEntities().length + TextFormat.GREEN + " entities, " +
                             TextFormat.RED + level.getBlockEntities().size() + TextFormat.GREEN + " blockEntities." +
                             " Time " + ((level.getTickRate() > 1 || level.getTickRateTime() > 40) ? TextFormat.RED : TextFormat.YELLOW) + NukkitMath.round(level.getTickRateTime(), 2) + "ms" +
-                            (level.getTickRate() > 1 ? " (tick rate " + level.getTickRate() + ")" : "")
+                            (level.getTickRate() > 1 ? " (tick rate " + level.getTickRate() + ")" : "") +
+                            (budget.getExhaustedTicks() > 0 ? TextFormat.YELLOW + " (over budget " + budget.getExhaustedTicks() + " ticks)" : "")
             );
+            if (budget.hasBacklog()) {
+                sender.sendMessage(TextFormat.YELLOW + "  Backlog: " +
+                        TextFormat.RED + budget.getBlockEntityBacklog() + TextFormat.GREEN + " blockEntities, " +
+                        TextFormat.RED + budget.getRandomTickChunkBacklog() + TextFormat.GREEN + " random tick chunks, " +
+                        TextFormat.RED + budget.getBlockChangeBacklog() + TextFormat.GREEN + " block change chunks, " +
+                        TextFormat.RED + budget.getLightUpdateChunkBacklog() + TextFormat.GREEN + " light update chunks.");
+            }
         }
 
         return true;
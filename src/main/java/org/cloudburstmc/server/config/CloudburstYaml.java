@@ -31,6 +31,7 @@ public class CloudburstYaml {
                     mapped.chunkSending,
                     mapped.chunkTicking,
                     mapped.chunkGeneration,
+                    mapped.executors,
                     mapped.spawnLimits,
                     mapped.ticksPer,
                     mapped.debug,
@@ -65,6 +66,9 @@ public class CloudburstYaml {
     @Builder.Default
     private ServerConfig.ChunkGeneration chunkGeneration = new ServerConfig.ChunkGeneration();
 
+    @Builder.Default
+    private ServerConfig.Executors executors = new ServerConfig.Executors();
+
     @Builder.Default
     private ServerConfig.SpawnLimits spawnLimits = new ServerConfig.SpawnLimits();
 
@@ -68,6 +68,45 @@ public class ServerConfig {
 
     }
 
+    @Data
+    @Setter(AccessLevel.PRIVATE)
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Executors {
+
+        @Builder.Default
+        private Pool io = new Pool(4, 4096);
+
+        @Builder.Default
+        private Pool generation = new Pool(0, 4096);
+
+        @Builder.Default
+        private Pool network = new Pool(0, 4096);
+
+        @Builder.Default
+        private Pool plugins = new Pool(0, 1024);
+
+    }
+
+    @Data
+    @Setter(AccessLevel.PRIVATE)
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Pool {
+
+        /**
+         * Amount of threads, 0 picks a default based on the available processors.
+         */
+        @Builder.Default
+        private int threads = 0;
+
+        @Builder.Default
+        private int queueSize = 1024;
+
+    }
+
     @Data
     @Setter(AccessLevel.PRIVATE)
     @Builder
@@ -117,6 +156,24 @@ public class ServerConfig {
         @Builder.Default
         private int chunkTimeoutAfterLastAccess = 120;
 
+        @Builder.Default
+        private int chunkUnloadsPerTick = 32;
+
+        @Builder.Default
+        private int chunkSaveBatchSize = 64;
+
+        @Builder.Default
+        private int chunkSaveRateLimit = 8192;
+
+        @Builder.Default
+        private boolean parallelTicking = false;
+
+        @Builder.Default
+        private int parallelTickThreads = 0;
+
+        @Builder.Default
+        private long tickBudget = 0;
+
     }
 
     @Data
@@ -129,8 +186,11 @@ public class ServerConfig {
         @Builder.Default
         private int maxChunkRadius = 10;
 
+        /**
+         * Most chunks sent to a player per tick. Players with a congested connection are sent fewer.
+         */
         @Builder.Default
-        private int perTick = 4;
+        private int perTick = 16;
 
         @Builder.Default
         private int spawnThreshold = 56;
@@ -138,6 +198,24 @@ public class ServerConfig {
         @Builder.Default
         private boolean cacheChunks = false;
 
+        @Builder.Default
+        private int cacheSize = 64;
+
+        @Builder.Default
+        private boolean cacheDirect = false;
+
+        /**
+         * Most chunks loaded ahead of a fast moving player at a time.
+         */
+        @Builder.Default
+        private int prefetchPerPlayer = 4;
+
+        /**
+         * Most chunks loaded ahead of fast moving players at a time across all players.
+         */
+        @Builder.Default
+        private int prefetchGlobal = 64;
+
     }
 
     @Data
@@ -457,6 +535,10 @@ public class ServerConfig {
         return cloudburstYaml.getDebug();
     }
 
+    public Executors getExecutors() {
+        return cloudburstYaml.getExecutors();
+    }
+
     // escape hatch //
 
     public ServerProperties getServerProperties() {
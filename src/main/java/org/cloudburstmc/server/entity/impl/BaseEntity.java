@@ -43,6 +43,7 @@ import org.cloudburstmc.server.event.player.PlayerTeleportEvent;
 import org.cloudburstmc.server.item.ItemStack;
 import org.cloudburstmc.server.level.EnumLevel;
 import org.cloudburstmc.server.level.Level;
+import org.cloudburstmc.server.level.LevelManager;
 import org.cloudburstmc.server.level.Location;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.math.*;
@@ -590,6 +591,7 @@ public abstract class BaseEntity implements Entity, Metadatable {
             return;
         }
 
+        this.level.getMovementBroadcaster().forget(this, player);
         player.sendPacket(createAddEntityPacket());
 
         if (this.vehicle != null) {
@@ -686,6 +688,7 @@ public abstract class BaseEntity implements Entity, Metadatable {
 
     public void despawnFrom(Player player) {
         if (this.hasSpawned.remove(player)) {
+            this.level.getMovementBroadcaster().forget(this, player);
             RemoveEntityPacket packet = new RemoveEntityPacket();
             packet.setUniqueEntityId(this.getUniqueId());
             player.sendPacket(packet);
@@ -1470,13 +1473,14 @@ public abstract class BaseEntity implements Entity, Metadatable {
                     (this.boundingBox.getMinZ() + this.boundingBox.getMaxZ()) / 2
             );
 
+            this.level.getEntityIndex().update(this);
             this.checkChunks();
 
             if (!this.onGround || dy != 0) {
                 AxisAlignedBB bb = this.boundingBox.clone();
                 bb.setMinY(bb.getMinY() - 0.75f);
 
-                this.onGround = this.level.getCollisionBlocks(bb).length > 0;
+                this.onGround = this.level.getCollisionBlocks(bb, true).length > 0;
             }
             this.isCollided = this.onGround;
             this.updateFallState(this.onGround);
@@ -1581,6 +1585,7 @@ public abstract class BaseEntity implements Entity, Metadatable {
                         (this.boundingBox.getMinZ() + this.boundingBox.getMaxZ()) / 2
                 );
 
+                this.level.getEntityIndex().update(this);
                 this.checkChunks();
 
                 this.checkGroundState(movX, movY, movZ, dx, dy, dz);
@@ -1757,6 +1762,7 @@ public abstract class BaseEntity implements Entity, Metadatable {
 
         this.recalculateBoundingBox();
 
+        this.level.getEntityIndex().update(this);
         this.checkChunks();
 
         return true;
@@ -1829,6 +1835,14 @@ public abstract class BaseEntity implements Entity, Metadatable {
             to = ev.getTo();
         }
 
+        if (to.getLevel() != this.getLevel() && LevelManager.isLevelTickThread()) {
+            // The target level may be ticking on another thread. The event was fired already, so the entity is only
+            // moved once all levels finished ticking and the teleport can no longer be cancelled.
+            Location target = Location.from(to.getPosition(), yaw, pitch, to.getLevel());
+            this.server.getLevelManager().runAfterTick(() -> this.teleport(target, null));
+            return true;
+        }
+
         if (from.getLevel() != to.getLevel() && !this.switchLevel(to.getLevel())) {
             return false;
         }
@@ -1,6 +1,7 @@
 package org.cloudburstmc.server.entity.impl.misc;
 
 import com.nukkitx.math.vector.Vector3f;
+import com.nukkitx.math.vector.Vector3i;
 import com.nukkitx.nbt.NbtMap;
 import com.nukkitx.nbt.NbtMapBuilder;
 import com.nukkitx.protocol.bedrock.BedrockPacket;
@@ -9,6 +10,7 @@ import com.nukkitx.protocol.bedrock.packet.AddItemEntityPacket;
 import com.nukkitx.protocol.bedrock.packet.EntityEventPacket;
 import lombok.val;
 import org.cloudburstmc.server.CloudServer;
+import org.cloudburstmc.server.blockentity.impl.HopperBlockEntity;
 import org.cloudburstmc.server.entity.Entity;
 import org.cloudburstmc.server.entity.EntityType;
 import org.cloudburstmc.server.entity.impl.BaseEntity;
@@ -38,6 +40,8 @@ public class EntityDroppedItem extends BaseEntity implements DroppedItem {
 
     protected ItemStack item;
     protected int pickupDelay;
+    // Block the item was in when hoppers were last told about it
+    private Vector3i hopperCheckPosition;
 
     public EntityDroppedItem(EntityType<DroppedItem> type, Location location) {
         super(type, location);
@@ -73,6 +77,25 @@ public class EntityDroppedItem extends BaseEntity implements DroppedItem {
         return 0.125f;
     }
 
+    private void wakeUpHoppers() {
+        Vector3f pos = this.getPosition();
+        Vector3i last = this.hopperCheckPosition;
+        if (last == null || last.getX() != pos.getFloorX() || last.getY() != pos.getFloorY() ||
+                last.getZ() != pos.getFloorZ()) {
+            this.hopperCheckPosition = Vector3i.from(pos.getFloorX(), pos.getFloorY(), pos.getFloorZ());
+            HopperBlockEntity.wakeUpPickup(this.level, this.hopperCheckPosition);
+        }
+    }
+
+    @Override
+    public void spawnToAll() {
+        super.spawnToAll();
+        // Items spawned onto a hopper are picked up without waiting for them to move
+        if (!this.closed) {
+            this.wakeUpHoppers();
+        }
+    }
+
     @Override
     public boolean canCollide() {
         return false;
@@ -219,6 +242,7 @@ public class EntityDroppedItem extends BaseEntity implements DroppedItem {
             }
 
             this.updateMovement();
+            this.wakeUpHoppers();
 
             if (this.age > 6000) {
                 ItemDespawnEvent ev = new ItemDespawnEvent(this);
@@ -6,7 +6,9 @@ import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import org.cloudburstmc.api.plugin.PluginContainer;
 import org.cloudburstmc.api.plugin.PluginManager;
+import org.cloudburstmc.server.CloudServer;
 import org.cloudburstmc.server.event.firehandler.ReflectionEventFireHandler;
+import org.cloudburstmc.server.level.LevelManager;
 
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -78,11 +80,26 @@ public class CloudEventManager implements EventManager {
     public void fire(Event event) {
         checkNotNull(event, "event");
         EventFireHandler handler = eventHandlers.get(event.getClass());
-        if (handler != null) {
+        if (handler == null) {
+            return;
+        }
+        if (LevelManager.isLevelTickThread()) {
+            // Listeners may touch other levels, so they run on the main thread while the other levels are paused
+            CloudServer.getInstance().getLevelManager().callOnMainThread(() -> {
+                handler.fire(event);
+                return null;
+            });
+        } else {
             handler.fire(event);
         }
     }
 
+    @Override
+    public boolean hasListeners(Class<? extends Event> eventClass) {
+        checkNotNull(eventClass, "eventClass");
+        return eventHandlers.containsKey(eventClass);
+    }
+
     @Override
     public void deregisterListener(Object listener) {
         checkNotNull(listener, "listener");
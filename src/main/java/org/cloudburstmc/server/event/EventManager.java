@@ -24,6 +24,14 @@ public interface EventManager {
      */
     void fire(Event event);
 
+    /**
+     * Checks whether any listener is registered for the event, so callers can skip creating events nobody listens to.
+     *
+     * @param eventClass the class of the event
+     * @return true if firing the event would reach a listener
+     */
+    boolean hasListeners(Class<? extends Event> eventClass);
+
     /**
      * Unregisters an object's event listeners.
      *
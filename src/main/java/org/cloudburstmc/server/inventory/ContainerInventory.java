@@ -6,6 +6,7 @@ import com.nukkitx.protocol.bedrock.packet.BlockEventPacket;
 import com.nukkitx.protocol.bedrock.packet.ContainerClosePacket;
 import com.nukkitx.protocol.bedrock.packet.ContainerOpenPacket;
 import org.cloudburstmc.server.blockentity.BlockEntity;
+import org.cloudburstmc.server.blockentity.impl.HopperBlockEntity;
 import org.cloudburstmc.server.item.ItemStack;
 import org.cloudburstmc.server.math.NukkitMath;
 import org.cloudburstmc.server.player.Player;
@@ -52,6 +53,18 @@ public abstract class ContainerInventory extends BaseInventory {
         this.sendContents(who);
     }
 
+    @Override
+    public void onSlotChange(int index, ItemStack before, boolean send) {
+        super.onSlotChange(index, before, send);
+
+        InventoryHolder holder = this.getHolder();
+        if (holder instanceof BlockEntity) {
+            // Hoppers sleep until an inventory they could move items from or into changes
+            BlockEntity blockEntity = (BlockEntity) holder;
+            HopperBlockEntity.wakeUpAround(blockEntity.getLevel(), blockEntity.getPosition());
+        }
+    }
+
     @Override
     public void onClose(Player who) {
         ContainerClosePacket packet = new ContainerClosePacket();
@@ -2,6 +2,7 @@ package org.cloudburstmc.server.inventory;
 
 import org.cloudburstmc.server.blockentity.Furnace;
 import org.cloudburstmc.server.item.ItemStack;
+import org.cloudburstmc.server.player.Player;
 
 /**
  * author: MagicDroidX
@@ -46,6 +47,14 @@ public class FurnaceInventory extends ContainerInventory {
         return this.setItem(SLOT_SMELTING, item);
     }
 
+    @Override
+    public void onOpen(Player who) {
+        super.onOpen(who);
+
+        // Sleeping furnaces are woken up to send their progress to the viewer
+        this.getHolder().scheduleUpdate();
+    }
+
     @Override
     public void onSlotChange(int index, ItemStack before, boolean send) {
         super.onSlotChange(index, before, send);
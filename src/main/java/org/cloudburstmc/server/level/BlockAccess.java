@@ -0,0 +1,99 @@
+package org.cloudburstmc.server.level;
+
+import org.cloudburstmc.server.block.BlockState;
+import org.cloudburstmc.server.block.BlockStates;
+import org.cloudburstmc.server.level.chunk.Chunk;
+import org.cloudburstmc.server.level.chunk.ChunkSection;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Cursor reading block states of a level straight from the chunk sections, for code which looks at many blocks in a
+ * small area such as collision checks.
+ * <p>
+ * Unlike {@link Level#getBlock(int, int, int)} it does not create a {@link org.cloudburstmc.server.block.Block} per
+ * block. The sections of the chunk the cursor is in are copied under a single read lock whenever it moves to another
+ * chunk and read without locking afterwards, so the cursor is meant to be used on the thread ticking the level and
+ * only for the duration of a single query. Blocks changed by other threads in the meantime may not be seen.
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class BlockAccess {
+    private final Level level;
+    private final ChunkSection[] sections = new ChunkSection[Chunk.SECTION_COUNT];
+    private int chunkX;
+    private int chunkZ;
+    private Chunk chunk;
+    private boolean positioned;
+
+    public BlockAccess(Level level) {
+        this.level = level;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Whether the chunk of the block is loaded.
+     *
+     * @param x block x
+     * @param z block z
+     * @return true if the chunk is loaded
+     */
+    public boolean isLoaded(int x, int z) {
+        return this.moveTo(x >> 4, z >> 4);
+    }
+
+    /**
+     * Gets the state of the first layer of the block.
+     *
+     * @param x block x
+     * @param y block y
+     * @param z block z
+     * @return the block state, air outside of the height range, or null if the chunk is not loaded
+     */
+    @Nullable
+    public BlockState getBlockState(int x, int y, int z) {
+        return this.getBlockState(x, y, z, 0);
+    }
+
+    /**
+     * Gets the state of a layer of the block.
+     *
+     * @param x     block x
+     * @param y     block y
+     * @param z     block z
+     * @param layer block layer
+     * @return the block state, air outside of the height range, or null if the chunk is not loaded
+     */
+    @Nullable
+    public BlockState getBlockState(int x, int y, int z, int layer) {
+        if (y < 0 || y > 255) {
+            return BlockStates.AIR;
+        }
+        if (!this.moveTo(x >> 4, z >> 4)) {
+            return null;
+        }
+        ChunkSection section = this.sections[y >> 4];
+        if (section == null) {
+            return BlockStates.AIR;
+        }
+        return section.getBlock(x & 0xf, y & 0xf, z & 0xf, layer);
+    }
+
+    private boolean moveTo(int chunkX, int chunkZ) {
+        if (!this.positioned || this.chunkX != chunkX || this.chunkZ != chunkZ) {
+            this.positioned = true;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.chunk = this.level.getLoadedChunk(chunkX, chunkZ);
+            if (this.chunk != null) {
+                this.chunk.copySections(this.sections);
+            }
+        }
+        return this.chunk != null;
+    }
+}
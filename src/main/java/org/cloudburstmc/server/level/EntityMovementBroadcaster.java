@@ -0,0 +1,221 @@
+package org.cloudburstmc.server.level;
+
+import com.nukkitx.math.vector.Vector3f;
+import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.packet.MoveEntityDeltaPacket;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import org.cloudburstmc.server.CloudServer;
+import org.cloudburstmc.server.entity.impl.BaseEntity;
+import org.cloudburstmc.server.player.Player;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the movement of the entities in a level to their viewers once per tick.
+ * <p>
+ * Movements are collected while entities tick and only the latest one of each entity is sent. Every viewer gets a
+ * {@link MoveEntityDeltaPacket} with just the axes that changed since the last movement it received of the entity,
+ * and all packets of a viewer are sent as one batch. Viewers further away receive movements less often, see
+ * {@link #getInterval(float)}. An entity stays queued until all of its viewers have received its latest movement, so
+ * far viewers still see where it stopped.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class EntityMovementBroadcaster {
+    private static final float NEAR_DISTANCE_SQUARED = 32 * 32;
+    private static final float MEDIUM_DISTANCE_SQUARED = 64 * 64;
+
+    private final Reference2ObjectMap<BaseEntity, Movement> queued = new Reference2ObjectOpenHashMap<>();
+    /**
+     * Last movement each viewer received by runtime entity ID.
+     */
+    private final Reference2ObjectMap<Player, Long2ObjectMap<Movement>> received = new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * Queues the movement of the entity to be sent on the next {@link #flush(int)}, replacing any movement which has
+     * not been sent yet.
+     *
+     * @param entity  entity which moved
+     * @param x       x of the entity
+     * @param y       y of the entity including its base offset
+     * @param z       z of the entity
+     * @param pitch   pitch of the entity
+     * @param yaw     yaw of the entity
+     * @param headYaw head yaw of the entity
+     */
+    public synchronized void queue(BaseEntity entity, float x, float y, float z, float pitch, float yaw, float headYaw) {
+        Movement movement = this.queued.get(entity);
+        if (movement == null) {
+            movement = new Movement();
+            this.queued.put(entity, movement);
+        }
+        movement.set(x, y, z, pitch, yaw, headYaw);
+    }
+
+    /**
+     * Forgets what the viewer knows about the movement of the entity, so that the next movement sent includes every
+     * axis. Called whenever the entity is spawned to or despawned from the viewer.
+     *
+     * @param entity entity
+     * @param viewer viewer of the entity
+     */
+    public synchronized void forget(BaseEntity entity, Player viewer) {
+        Long2ObjectMap<Movement> movements = this.received.get(viewer);
+        if (movements != null) {
+            movements.remove(entity.getRuntimeId());
+        }
+    }
+
+    /**
+     * Drops a removed entity, or everything a player knows about others if the entity is a player leaving the level.
+     *
+     * @param entity entity removed from the level
+     */
+    public synchronized void remove(BaseEntity entity) {
+        this.queued.remove(entity);
+        if (entity instanceof Player) {
+            this.received.remove(entity);
+        }
+    }
+
+    /**
+     * Sends the queued movements to the viewers due to receive them this tick.
+     *
+     * @param tick current tick
+     */
+    public void flush(int tick) {
+        Map<Player, List<BedrockPacket>> packets = new Reference2ObjectOpenHashMap<>();
+        synchronized (this) {
+            if (this.queued.isEmpty()) {
+                return;
+            }
+
+            Iterator<Reference2ObjectMap.Entry<BaseEntity, Movement>> iterator = this.queued.reference2ObjectEntrySet().iterator();
+            while (iterator.hasNext()) {
+                Reference2ObjectMap.Entry<BaseEntity, Movement> entry = iterator.next();
+                BaseEntity entity = entry.getKey();
+                Movement movement = entry.getValue();
+                long runtimeId = entity.getRuntimeId();
+                boolean pending = false;
+
+                for (Player viewer : entity.getViewers()) {
+                    Vector3f pos = viewer.getPosition();
+                    float dx = pos.getX() - movement.x;
+                    float dz = pos.getZ() - movement.z;
+                    int interval = getInterval(dx * dx + dz * dz);
+                    // Spread the movements of far entities over the ticks
+                    if ((tick + runtimeId) % interval != 0) {
+                        pending = true;
+                        continue;
+                    }
+
+                    Long2ObjectMap<Movement> movements = this.received.get(viewer);
+                    if (movements == null) {
+                        movements = new Long2ObjectOpenHashMap<>();
+                        this.received.put(viewer, movements);
+                    }
+                    Movement last = movements.get(runtimeId);
+                    if (last == null) {
+                        last = new Movement();
+                        movements.put(runtimeId, last);
+                    }
+
+                    MoveEntityDeltaPacket packet = movement.createDelta(runtimeId, last);
+                    if (packet != null) {
+                        last.set(movement);
+                        packets.computeIfAbsent(viewer, player -> new ArrayList<>()).add(packet);
+                    }
+                }
+
+                if (!pending) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        for (Map.Entry<Player, List<BedrockPacket>> entry : packets.entrySet()) {
+            List<BedrockPacket> viewerPackets = entry.getValue();
+            CloudServer.broadcastPackets(new Player[]{entry.getKey()}, viewerPackets.toArray(new BedrockPacket[0]));
+        }
+    }
+
+    /**
+     * Ticks between movements sent to a viewer at the given horizontal distance.
+     *
+     * @param distanceSquared squared horizontal distance between viewer and entity
+     * @return 1 for viewers within 32 blocks, 2 within 64 blocks and 4 beyond
+     */
+    static int getInterval(float distanceSquared) {
+        if (distanceSquared < NEAR_DISTANCE_SQUARED) {
+            return 1;
+        }
+        return distanceSquared < MEDIUM_DISTANCE_SQUARED ? 2 : 4;
+    }
+
+    private static final class Movement {
+        private boolean known;
+        private float x;
+        private float y;
+        private float z;
+        private float pitch;
+        private float yaw;
+        private float headYaw;
+
+        private void set(float x, float y, float z, float pitch, float yaw, float headYaw) {
+            this.known = true;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.pitch = pitch;
+            this.yaw = yaw;
+            this.headYaw = headYaw;
+        }
+
+        private void set(Movement movement) {
+            this.set(movement.x, movement.y, movement.z, movement.pitch, movement.yaw, movement.headYaw);
+        }
+
+        /**
+         * Creates a packet with the axes which differ from the last movement a viewer received.
+         *
+         * @return the packet, or null if nothing changed
+         */
+        private MoveEntityDeltaPacket createDelta(long runtimeId, Movement last) {
+            MoveEntityDeltaPacket packet = new MoveEntityDeltaPacket();
+            packet.setRuntimeEntityId(runtimeId);
+            if (!last.known || last.x != this.x) {
+                packet.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_X);
+                packet.setX(this.x);
+            }
+            if (!last.known || last.y != this.y) {
+                packet.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_Y);
+                packet.setY(this.y);
+            }
+            if (!last.known || last.z != this.z) {
+                packet.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_Z);
+                packet.setZ(this.z);
+            }
+            if (!last.known || last.pitch != this.pitch) {
+                packet.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_PITCH);
+                packet.setPitch(this.pitch);
+            }
+            if (!last.known || last.yaw != this.yaw) {
+                packet.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_YAW);
+                packet.setYaw(this.yaw);
+            }
+            if (!last.known || last.headYaw != this.headYaw) {
+                packet.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_HEAD_YAW);
+                packet.setHeadYaw(this.headYaw);
+            }
+            return packet.getFlags().isEmpty() ? null : packet;
+        }
+    }
+}
@@ -20,6 +20,8 @@ import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.ints.*;
 import it.unimi.dsi.fastutil.longs.*;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
 import it.unimi.dsi.fastutil.shorts.ShortSet;
 import lombok.Synchronized;
@@ -35,6 +37,7 @@ import org.cloudburstmc.server.block.behavior.BlockBehaviorLiquid;
 import org.cloudburstmc.server.block.behavior.BlockBehaviorRedstoneDiode;
 import org.cloudburstmc.server.block.util.BlockUtils;
 import org.cloudburstmc.server.blockentity.BlockEntity;
+import org.cloudburstmc.server.config.ServerConfig;
 import org.cloudburstmc.server.enchantment.EnchantmentInstance;
 import org.cloudburstmc.server.enchantment.EnchantmentTypes;
 import org.cloudburstmc.server.entity.Entity;
@@ -122,44 +125,29 @@ public class Level implements ChunkManager, Metadatable {
     // Lower values use less memory
     public static final int MAX_BLOCK_CACHE = 512;
 
-    // The blocks that can randomly tick
-    private static final Set<Identifier> randomTickBlocks = Collections.newSetFromMap(new IdentityHashMap<>());
-
-    static {
-        randomTickBlocks.add(BlockIds.GRASS);
-        randomTickBlocks.add(BlockIds.FARMLAND);
-        randomTickBlocks.add(BlockIds.MYCELIUM);
-        randomTickBlocks.add(BlockIds.SAPLING);
-        randomTickBlocks.add(BlockIds.LEAVES);
-        randomTickBlocks.add(BlockIds.LEAVES2);
-        randomTickBlocks.add(BlockIds.SNOW_LAYER);
-        randomTickBlocks.add(BlockIds.ICE);
-        randomTickBlocks.add(BlockIds.FLOWING_LAVA);
-        randomTickBlocks.add(BlockIds.LAVA);
-        randomTickBlocks.add(BlockIds.CACTUS);
-        randomTickBlocks.add(BlockIds.BEETROOT);
-        randomTickBlocks.add(BlockIds.CARROTS);
-        randomTickBlocks.add(BlockIds.POTATOES);
-        randomTickBlocks.add(BlockIds.MELON_STEM);
-        randomTickBlocks.add(BlockIds.PUMPKIN_STEM);
-        randomTickBlocks.add(BlockIds.WHEAT);
-        randomTickBlocks.add(BlockIds.REEDS);
-        randomTickBlocks.add(BlockIds.RED_MUSHROOM);
-        randomTickBlocks.add(BlockIds.BROWN_MUSHROOM);
-        randomTickBlocks.add(BlockIds.NETHER_WART_BLOCK);
-        randomTickBlocks.add(BlockIds.FIRE);
-        randomTickBlocks.add(BlockIds.LIT_REDSTONE_ORE);
-        randomTickBlocks.add(BlockIds.COCOA);
-    }
-
     private final Set<BlockEntity> blockEntities = Collections.newSetFromMap(new IdentityHashMap<>());
 
     private final Long2ObjectOpenHashMap<Player> players = new Long2ObjectOpenHashMap<>();
 
     private final Long2ObjectOpenHashMap<Entity> entities = new Long2ObjectOpenHashMap<>();
+    private final SpatialEntityIndex entityIndex = new SpatialEntityIndex();
+    private final EntityMovementBroadcaster movementBroadcaster = new EntityMovementBroadcaster();
+    private final SpatialEntityIndex.Visitor scheduleEntityUpdate = entity -> {
+        this.scheduleEntityUpdate(entity);
+        return true;
+    };
     private static final RemovalListener<Long, ByteBuf> cacheRemover = notification -> notification.getValue().release();
 
-    private final ConcurrentLinkedQueue<BlockEntity> updateBlockEntities = new ConcurrentLinkedQueue<>();
+    /**
+     * Block entities to tick in round-robin order, so that block entities deferred by the tick budget go first next
+     * tick. Guarded by itself.
+     */
+    private final ObjectLinkedOpenHashSet<BlockEntity> updateBlockEntities = new ObjectLinkedOpenHashSet<>();
+    /**
+     * Sleeping block entities by the tick they wake up at, sorted so that wake-ups of ticks which were skipped are
+     * still drained. Guarded by {@link #updateBlockEntities}.
+     */
+    private final NavigableMap<Long, List<BlockEntity>> blockEntityWakeUps = new TreeMap<>();
 
     private final CloudServer server;
     public final LevelTimings timings;
@@ -180,6 +168,11 @@ public class Level implements ChunkManager, Metadatable {
     // Storing the vector is redundant
     private final Object changeBlocksPresent = new Object();
     private final Long2ObjectMap<ShortSet> lightQueue = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<ShortSet> lightBatch = new Long2ObjectOpenHashMap<>();
+    private long tickBudget;
+    private long tickStart;
+    private boolean tickBudgetExhausted;
+    private final TickBudgetStats tickBudgetStats = new TickBudgetStats();
     // Storing extra blocks past 512 is redundant
     private final Map<Character, Object> changeBlocksFullMap = new HashMap<Character, Object>() {
         @Override
@@ -202,7 +195,14 @@ public class Level implements ChunkManager, Metadatable {
     public int sleepTicks = 0;
 
     private final int chunkTickRadius;
-    private final Long2IntMap chunkTickList = new Long2IntOpenHashMap();
+    /**
+     * Chunks to random tick. Chunks which stay in the list are moved to the end once ticked when the tick budget runs
+     * out, so the chunks after them go first next tick.
+     */
+    private final Long2IntLinkedOpenHashMap chunkTickList = new Long2IntLinkedOpenHashMap();
+    private final LongList tickedChunks = new LongArrayList();
+    // Sections of the chunk being random ticked, reused for every chunk
+    private final ChunkSection[] randomTickSections = new ChunkSection[Chunk.SECTION_COUNT];
     private final int chunksPerTicks;
     private final boolean clearChunksOnTick;
 
@@ -584,11 +584,20 @@ public class Level implements ChunkManager, Metadatable {
         }
     }
 
+    /**
+     * Ticks the level. Work that has to happen every tick runs first. The remaining phases can be deferred and run in
+     * order of priority for as long as the level's tick budget allows: block entity ticks, random ticks, block change
+     * broadcasts and finally light updates. Deferred work carries over to the next tick, the backlog left by the last
+     * tick is reported by {@link #getTickBudgetStats()}.
+     *
+     * @param currentTick current server tick
+     * @see ServerConfig.LevelSettings#getTickBudget()
+     */
     public void doTick(int currentTick) {
+        this.tickStart = System.nanoTime();
+        this.tickBudget = this.server.getConfig().getLevelSettings().getTickBudget();
+        this.tickBudgetExhausted = false;
         try (Timing ignored = this.timings.doTick.startTiming()) {
-            synchronized (lightQueue) {
-                updateBlockLight(lightQueue);
-            }
             this.checkTime();
 
             if (currentTick % 600 == 0 && doDaylightCycle()) {
@@ -629,10 +638,12 @@ public class Level implements ChunkManager, Metadatable {
             this.skyLightSubtracted = this.calculateSkylightSubtracted(1);
 
             this.levelData.tick();
+            this.chunkManager.startPrefetches();
 
             try (Timing ignored2 = timings.doTickPending.startTiming()) {
                 this.updateQueue.tick(this.getCurrentTick());
             }
+            LevelManager.safepoint();
 
             Block block;
             while ((block = this.normalUpdateQueue.poll()) != null) {
@@ -643,13 +654,19 @@ public class Level implements ChunkManager, Metadatable {
 
             try (Timing ignored2 = this.timings.entityTick.startTiming()) {
                 if (!this.updateEntities.isEmpty()) {
-                    this.updateEntities.removeIf(entity -> entity.isClosed() || !entity.onUpdate(currentTick));
+                    this.updateEntities.removeIf(entity -> {
+                        LevelManager.safepoint();
+                        return entity.isClosed() || !entity.onUpdate(currentTick);
+                    });
                 }
             }
 
-            TimingsHistory.tileEntityTicks += this.updateBlockEntities.size();
+            try (Timing ignored2 = this.timings.entityMovementBroadcast.startTiming()) {
+                this.movementBroadcaster.flush(currentTick);
+            }
+
             try (Timing ignored2 = this.timings.blockEntityTick.startTiming()) {
-                this.updateBlockEntities.removeIf(blockEntity -> blockEntity.isClosed() || !blockEntity.onUpdate());
+                this.tickBlockEntities();
             }
 
             try (Timing ignored2 = this.timings.tickChunks.startTiming()) {
@@ -663,6 +680,10 @@ public class Level implements ChunkManager, Metadatable {
                         if (!this.players.isEmpty()) {
                             Iterator<Map.Entry<Long, IntSet>> iter = changedBlocks.entrySet().iterator();
                             while (iter.hasNext()) {
+                                if (this.isTickBudgetExhausted()) {
+                                    this.tickBudgetStats.deferBlockChanges(changedBlocks.size());
+                                    break;
+                                }
                                 Map.Entry<Long, IntSet> entry = iter.next();
                                 long chunkKey = entry.getKey();
                                 IntSet blocks = entry.getValue();
@@ -677,13 +698,9 @@ public class Level implements ChunkManager, Metadatable {
                                     }
                                 } else {
                                     Collection<Player> toSend = this.getChunkPlayers(chunkX, chunkZ);
-                                    Player[] playerArray = toSend.toArray(new Player[0]);
-                                    Block[] blocksArray = new Block[blocks.size()];
-                                    int i = 0;
-                                    for (int blockKey : blocks) {
-                                        blocksArray[i++] = this.getBlock(Chunk.fromKey(chunkKey, blockKey).toVector3()); //TODO: send layers separately
+                                    if (!toSend.isEmpty()) {
+                                        this.sendBlockChanges(toSend.toArray(new Player[0]), chunkKey, blocks);
                                     }
-                                    this.sendBlocks(playerArray, blocksArray, UpdateBlockPacket.FLAG_ALL);
                                 }
                                 iter.remove();
                             }
@@ -723,6 +740,88 @@ public class Level implements ChunkManager, Metadatable {
                     this.levelData.getGameRules().refresh();
                 }
             }
+
+            this.tickLightUpdates();
+            this.tickBudgetStats.endTick();
+        }
+    }
+
+    private boolean isTickBudgetExhausted() {
+        if (this.tickBudget <= 0) {
+            return false;
+        }
+        if (!this.tickBudgetExhausted && System.nanoTime() - this.tickStart >= this.tickBudget) {
+            this.tickBudgetExhausted = true;
+            this.tickBudgetStats.onExhausted();
+        }
+        return this.tickBudgetExhausted;
+    }
+
+    /**
+     * Work the last tick carried over to the next one because the tick budget of this level ran out.
+     *
+     * @return tick budget stats
+     */
+    public TickBudgetStats getTickBudgetStats() {
+        return this.tickBudgetStats;
+    }
+
+    private void tickBlockEntities() {
+        int count;
+        synchronized (this.updateBlockEntities) {
+            Iterator<List<BlockEntity>> wokenUp = this.blockEntityWakeUps.headMap(this.getCurrentTick(), true)
+                    .values().iterator();
+            while (wokenUp.hasNext()) {
+                this.updateBlockEntities.addAll(wokenUp.next());
+                wokenUp.remove();
+            }
+            count = this.updateBlockEntities.size();
+        }
+
+        int ticked = 0;
+        for (; ticked < count; ticked++) {
+            LevelManager.safepoint();
+            if (this.isTickBudgetExhausted()) {
+                this.tickBudgetStats.deferBlockEntities(count - ticked);
+                break;
+            }
+
+            BlockEntity blockEntity;
+            synchronized (this.updateBlockEntities) {
+                if (this.updateBlockEntities.isEmpty()) {
+                    break;
+                }
+                blockEntity = this.updateBlockEntities.removeFirst();
+            }
+
+            if (!blockEntity.isClosed() && blockEntity.onUpdate()) {
+                synchronized (this.updateBlockEntities) {
+                    this.updateBlockEntities.add(blockEntity);
+                }
+            }
+        }
+        TimingsHistory.tileEntityTicks += ticked;
+    }
+
+    private void tickLightUpdates() {
+        synchronized (this.lightQueue) {
+            if (this.tickBudget <= 0) {
+                this.updateBlockLight(this.lightQueue);
+                return;
+            }
+
+            // Light updates are deferred a chunk at a time
+            ObjectIterator<Long2ObjectMap.Entry<ShortSet>> iterator = this.lightQueue.long2ObjectEntrySet().iterator();
+            while (iterator.hasNext()) {
+                if (this.isTickBudgetExhausted()) {
+                    this.tickBudgetStats.deferLightUpdateChunks(this.lightQueue.size());
+                    break;
+                }
+                Long2ObjectMap.Entry<ShortSet> entry = iterator.next();
+                this.lightBatch.put(entry.getLongKey(), entry.getValue());
+                iterator.remove();
+                this.updateBlockLight(this.lightBatch);
+            }
         }
     }
 
@@ -813,47 +912,51 @@ public class Level implements ChunkManager, Metadatable {
             if (block == null) throw new NullPointerException("Null block is update array");
         }
         GenoaUpdateBlockPacket[] packets = new GenoaUpdateBlockPacket[blocks.length * 2];
-        LongSet chunks = null;
-        if (optimizeRebuilds) {
-            chunks = new LongOpenHashSet();
-        }
         for (int i = 0; i < packets.length; i += 2) {
-            boolean first = !optimizeRebuilds;
-
             Block block = blocks[i >> 1];
-            int chunkX = block.getChunk().getX();
-            int chunkZ = block.getChunk().getZ();
-
-            if (optimizeRebuilds) {
-                long index = Chunk.key(chunkX, chunkZ);
-                if (!chunks.contains(index)) {
-                    chunks.add(index);
-                    first = true;
-                }
-            }
-
-            GenoaUpdateBlockPacket genoaUpdateBlockPacket = new GenoaUpdateBlockPacket();
-            genoaUpdateBlockPacket.setBlockPosition(block.getPosition());
-            genoaUpdateBlockPacket.setDataLayer(0);
-            genoaUpdateBlockPacket.getFlags().addAll(flags);
+            packets[i] = this.createBlockPacket(block.getPosition(), 0, block.getState(), flags); // TODO: Remove hardcoding
+            packets[i + 1] = this.createBlockPacket(block.getPosition(), 1, block.getExtra(), flags);
+        }
 
-            GenoaUpdateBlockPacket genoaUpdateBlockPacket2 = new GenoaUpdateBlockPacket();
-            genoaUpdateBlockPacket2.setBlockPosition(block.getPosition());
-            genoaUpdateBlockPacket2.setDataLayer(1);
-            genoaUpdateBlockPacket2.getFlags().addAll(flags);
+        CloudServer.broadcastPackets(target, packets);
+    }
 
-            try {
-                genoaUpdateBlockPacket.setRuntimeId(BlockPalette.INSTANCE.getRuntimeId(block.getState()));
-                genoaUpdateBlockPacket2.setRuntimeId(BlockPalette.INSTANCE.getRuntimeId(block.getExtra()));
-            } catch (RegistryException e) {
-                throw new IllegalStateException("Unable to create BlockUpdatePacket at " +
-                        block.getPosition() + " in " + getName(), e);
+    /**
+     * Sends the changed layers of the blocks of a chunk in one batch, which all viewers of the chunk share.
+     *
+     * @param target    viewers of the chunk
+     * @param chunkKey  key of the chunk
+     * @param blockKeys changed blocks and layers, as created by {@link Chunk#blockKey(int, int, int, int)}
+     */
+    private void sendBlockChanges(Player[] target, long chunkKey, IntSet blockKeys) {
+        BlockAccess access = new BlockAccess(this);
+        GenoaUpdateBlockPacket[] packets = new GenoaUpdateBlockPacket[blockKeys.size()];
+        int count = 0;
+        for (int blockKey : blockKeys) {
+            Vector4i key = Chunk.fromKey(chunkKey, blockKey);
+            BlockState state = access.getBlockState(key.getX(), key.getY(), key.getZ(), key.getW());
+            if (state == null) {
+                // Chunk got unloaded, its viewers will receive it again anyway
+                return;
             }
-                CloudServer.broadcastPacket(target, genoaUpdateBlockPacket); // TODO: Remove hardcoding
-                CloudServer.broadcastPacket(target, genoaUpdateBlockPacket2);
+            packets[count++] = this.createBlockPacket(key.toVector3(), key.getW(), state, UpdateBlockPacket.FLAG_ALL);
         }
 
-        //CloudServer.broadcastPackets(target, packets);
+        CloudServer.broadcastPackets(target, packets);
+    }
+
+    private GenoaUpdateBlockPacket createBlockPacket(Vector3i position, int layer, BlockState state,
+                                                     Set<UpdateBlockPacket.Flag> flags) {
+        GenoaUpdateBlockPacket packet = new GenoaUpdateBlockPacket();
+        packet.setBlockPosition(position);
+        packet.setDataLayer(layer);
+        packet.getFlags().addAll(flags);
+        try {
+            packet.setRuntimeId(BlockPalette.INSTANCE.getRuntimeId(state));
+        } catch (RegistryException e) {
+            throw new IllegalStateException("Unable to create BlockUpdatePacket at " + position + " in " + getName(), e);
+        }
+        return packet;
     }
 
     public boolean save() {
@@ -872,6 +975,11 @@ public class Level implements ChunkManager, Metadatable {
         this.server.getEventManager().fire(new LevelSaveEvent(this));
 
         CompletableFuture<Void> chunksFuture = this.saveChunks();
+        if (force) {
+            // Forced saves bypass the write-behind rate limit and are synced to disk. The chunks are queued by now, so
+            // the flush is requested straight away rather than once the rate limited writes completed.
+            chunksFuture = CompletableFuture.allOf(chunksFuture, this.provider.flush());
+        }
         CompletableFuture<Void> dataFuture = this.provider.saveLevelData(this.levelData);
 
         if (sync) {
@@ -919,8 +1027,19 @@ public class Level implements ChunkManager, Metadatable {
         int blockTest = 0;
 
         if (!chunkTickList.isEmpty()) {
+            int remaining = chunkTickList.size();
             ObjectIterator<Long2IntMap.Entry> iter = chunkTickList.long2IntEntrySet().iterator();
             while (iter.hasNext()) {
+                LevelManager.safepoint();
+                if (this.isTickBudgetExhausted()) {
+                    this.tickBudgetStats.deferRandomTickChunks(remaining);
+                    // Start with the chunks which were not ticked next time
+                    for (int i = 0; i < this.tickedChunks.size(); i++) {
+                        this.chunkTickList.getAndMoveToLast(this.tickedChunks.getLong(i));
+                    }
+                    break;
+                }
+                remaining--;
                 Long2IntMap.Entry entry = iter.next();
                 long index = entry.getLongKey();
                 if (!areNeighboringChunksLoaded(index)) {
@@ -939,32 +1058,36 @@ public class Level implements ChunkManager, Metadatable {
                     continue;
                 } else if (loaders <= 0) {
                     iter.remove();
+                } else {
+                    this.tickedChunks.add(index);
                 }
 
                 chunk.getEntities().forEach(this::scheduleEntityUpdate);
 
                 int tickSpeed = getGameRules().get(GameRules.RANDOM_TICK_SPEED);
 
-                if (tickSpeed > 0) {
-                    ChunkSection[] sections = chunk.getSections();
-                    for (int sectionY = 0; sectionY < sections.length; sectionY++) {
-                        ChunkSection section = sections[sectionY];
-                        if (section != null) {
-                            for (int i = 0; i < tickSpeed; ++i) {
-                                int lcg = this.getUpdateLCG();
-                                int x = lcg & 0x0f;
-                                int y = lcg >>> 8 & 0x0f;
-                                int z = lcg >>> 16 & 0x0f;
-
-                                val state = section.getBlock(x, y, z, 0);
-                                if (randomTickBlocks.contains(state.getType())) {
-                                    Block block = new CloudBlock(this, Vector3i.from(x, y, z), new BlockState[]{
-                                            state,
-                                            section.getBlock(x, y, z, 1)
-                                    });
-
-                                    state.getBehavior().onUpdate(block, BLOCK_UPDATE_RANDOM);
-                                }
+                if (tickSpeed > 0 && chunk.getRandomTickSections(this.randomTickSections)) {
+                    for (int sectionY = 0; sectionY < Chunk.SECTION_COUNT; sectionY++) {
+                        ChunkSection section = this.randomTickSections[sectionY];
+                        if (section == null) {
+                            continue;
+                        }
+                        for (int i = 0; i < tickSpeed; ++i) {
+                            int lcg = this.getUpdateLCG();
+                            int x = lcg & 0x0f;
+                            int y = lcg >>> 8 & 0x0f;
+                            int z = lcg >>> 16 & 0x0f;
+
+                            val state = section.getBlock(x, y, z, 0);
+                            if (ChunkSection.isRandomTickable(state)) {
+                                // Behaviours may keep the block, e.g. for scheduled updates, so it is only created for hits
+                                Vector3i pos = Vector3i.from(chunkX << 4 | x, sectionY << 4 | y, chunkZ << 4 | z);
+                                Block block = new CloudBlock(this, pos, new BlockState[]{
+                                        state,
+                                        section.getBlock(x, y, z, 1)
+                                });
+
+                                state.getBehavior().onUpdate(block, BLOCK_UPDATE_RANDOM);
                             }
                         }
                     }
@@ -972,6 +1095,7 @@ public class Level implements ChunkManager, Metadatable {
             }
         }
 
+        this.tickedChunks.clear();
         if (this.clearChunksOnTick) {
             this.chunkTickList.clear();
         }
@@ -1101,33 +1225,30 @@ public class Level implements ChunkManager, Metadatable {
         int maxY = NukkitMath.ceilDouble(bb.getMaxY());
         int maxZ = NukkitMath.ceilDouble(bb.getMaxZ());
 
-        List<Block> collides = new ArrayList<>();
+        BlockAccess access = new BlockAccess(this);
+        List<Block> collides = null;
 
-        if (targetFirst) {
-            for (int z = minZ; z <= maxZ; ++z) {
-                for (int x = minX; x <= maxX; ++x) {
-                    for (int y = minY; y <= maxY; ++y) {
-                        Block block = this.getLoadedBlock(x, y, z);
-                        if (block != null && block.getState() != BlockStates.AIR && block.getState().getBehavior().collidesWithBB(block, bb)) {
-                            return new Block[]{block};
-                        }
+        for (int z = minZ; z <= maxZ; ++z) {
+            for (int x = minX; x <= maxX; ++x) {
+                for (int y = minY; y <= maxY; ++y) {
+                    BlockState state = access.getBlockState(x, y, z);
+                    if (state == null || state == BlockStates.AIR || !state.getBehavior().collidesWithBB(x, y, z, state, bb)) {
+                        continue;
                     }
-                }
-            }
-        } else {
-            for (int z = minZ; z <= maxZ; ++z) {
-                for (int x = minX; x <= maxX; ++x) {
-                    for (int y = minY; y <= maxY; ++y) {
-                        Block block = this.getLoadedBlock(x, y, z);
-                        if (block != null && block.getState() != BlockStates.AIR && block.getState().getBehavior().collidesWithBB(block, bb)) {
-                            collides.add(block);
-                        }
+                    // Blocks are only created for the blocks which collide
+                    Block block = this.getLoadedBlock(x, y, z);
+                    if (targetFirst) {
+                        return new Block[]{block};
+                    }
+                    if (collides == null) {
+                        collides = new ArrayList<>();
                     }
+                    collides.add(block);
                 }
             }
         }
 
-        return collides.toArray(new Block[0]);
+        return collides == null ? new Block[0] : collides.toArray(new Block[0]);
     }
 
     public boolean isBlockTickPending(Vector3i pos, Block block) {
@@ -1150,26 +1271,37 @@ public class Level implements ChunkManager, Metadatable {
         int maxY = NukkitMath.ceilDouble(bb.getMaxY());
         int maxZ = NukkitMath.ceilDouble(bb.getMaxZ());
 
+        BlockAccess access = new BlockAccess(this);
         List<AxisAlignedBB> collides = new ArrayList<>();
 
         for (int z = minZ; z <= maxZ; ++z) {
             for (int x = minX; x <= maxX; ++x) {
                 for (int y = minY; y <= maxY; ++y) {
-                    Block block = this.getBlock(x, y, z); //TODO: check loaded block
-                    BlockBehavior behavior = block.getState().getBehavior();
-                    if (!behavior.canPassThrough(block.getState()) && behavior.collidesWithBB(block, bb)) {
-                        collides.add(behavior.getBoundingBox(block));
+                    BlockState state = access.getBlockState(x, y, z);
+                    if (state == null) {
+                        // Unloaded chunks are solid, like for hasCollision
+                        AxisAlignedBB unloaded = new SimpleAxisAlignedBB(x, y, z, x + 1, y + 1, z + 1);
+                        if (unloaded.intersectsWith(bb)) {
+                            collides.add(unloaded);
+                        }
+                        continue;
+                    }
+                    BlockBehavior behavior = state.getBehavior();
+                    if (!behavior.canPassThrough(state) && behavior.collidesWithBB(x, y, z, state, bb)) {
+                        collides.add(behavior.getBoundingBox(Vector3i.from(x, y, z), state));
                     }
                 }
             }
         }
 
-        if (entities || solidEntities) {
-            for (Entity ent : this.getCollidingEntities(bb.grow(0.25f, 0.25f, 0.25f), entity)) {
-                if (solidEntities && !ent.canPassThrough()) {
+        // Only solid entities add collision boxes
+        if (solidEntities) {
+            this.forEachCollidingEntity(bb.grow(0.25f, 0.25f, 0.25f), entity, ent -> {
+                if (!ent.canPassThrough()) {
                     collides.add(ent.getBoundingBox().clone());
                 }
-            }
+                return true;
+            });
         }
 
         return collides.toArray(new AxisAlignedBB[0]);
@@ -1193,13 +1325,14 @@ public class Level implements ChunkManager, Metadatable {
         int maxY = NukkitMath.ceilDouble(bb.getMaxY());
         int maxZ = NukkitMath.ceilDouble(bb.getMaxZ());
 
+        BlockAccess access = new BlockAccess(this);
         for (int z = minZ; z <= maxZ; ++z) {
             for (int x = minX; x <= maxX; ++x) {
                 for (int y = minY; y <= maxY; ++y) {
-                    Block block = this.getLoadedBlock(Vector3i.from(x, y, z));
-                    if (block == null) return true; // Shouldn't walk into unloaded chunks.
-                    BlockBehavior behavior = block.getState().getBehavior();
-                    if (!behavior.canPassThrough(block.getState()) && behavior.collidesWithBB(block, bb)) {
+                    BlockState state = access.getBlockState(x, y, z);
+                    if (state == null) return true; // Shouldn't walk into unloaded chunks.
+                    BlockBehavior behavior = state.getBehavior();
+                    if (!behavior.canPassThrough(state) && behavior.collidesWithBB(x, y, z, state, bb)) {
                         return true;
                     }
                 }
@@ -1207,7 +1340,7 @@ public class Level implements ChunkManager, Metadatable {
         }
 
         if (entities) {
-            return !this.getCollidingEntities(bb.grow(0.25f, 0.25f, 0.25f), entity).isEmpty();
+            return !this.forEachCollidingEntity(bb.grow(0.25f, 0.25f, 0.25f), entity, ent -> false);
         }
         return false;
     }
@@ -1517,9 +1650,8 @@ public class Level implements ChunkManager, Metadatable {
             BlockUpdateEvent ev = new BlockUpdateEvent(block);
             this.server.getEventManager().fire(ev);
             if (!ev.isCancelled()) {
-                for (Entity entity : this.getNearbyEntities(new SimpleAxisAlignedBB(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1))) {
-                    this.scheduleEntityUpdate(entity);
-                }
+                this.forEachNearbyEntity(new SimpleAxisAlignedBB(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1), null,
+                        this.scheduleEntityUpdate);
                 behavior.onUpdate(block, BLOCK_UPDATE_NORMAL);
                 this.updateAround(x, y, z);
             }
@@ -1980,31 +2112,24 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public Set<Entity> getCollidingEntities(AxisAlignedBB bb, Entity entity) {
-        ImmutableSet.Builder<Entity> entities = null;
-
-        if (entity == null || entity.canCollide()) {
-            int minX = NukkitMath.floorDouble((bb.getMinX() - 2) / 16);
-            int maxX = NukkitMath.ceilDouble((bb.getMaxX() + 2) / 16);
-            int minZ = NukkitMath.floorDouble((bb.getMinZ() - 2) / 16);
-            int maxZ = NukkitMath.ceilDouble((bb.getMaxZ() + 2) / 16);
+        Set<Entity> entities = new ReferenceOpenHashSet<>();
+        this.forEachCollidingEntity(bb, entity, entities::add);
+        return entities;
+    }
 
-            for (int x = minX; x <= maxX; ++x) {
-                for (int z = minZ; z <= maxZ; ++z) {
-                    Set<Entity> colliding = this.getLoadedChunkEntities(x, z);
-                    for (Entity ent : colliding) {
-                        if ((entity == null || (ent != entity && entity.canCollideWith(ent)))
-                                && ent.getBoundingBox().intersectsWith(bb)) {
-                            if (entities == null) {
-                                entities = ImmutableSet.builder();
-                            }
-                            entities.add(ent);
-                        }
-                    }
-                }
-            }
+    /**
+     * Visits the entities colliding with the box without collecting them first.
+     *
+     * @param bb      box to look in
+     * @param entity  entity to check collisions of, or null for all entities intersecting with the box
+     * @param visitor visitor of the entities found, which can stop the query by returning false
+     * @return false if the visitor stopped the query
+     */
+    public boolean forEachCollidingEntity(AxisAlignedBB bb, @Nullable Entity entity, SpatialEntityIndex.Visitor visitor) {
+        if (entity == null) {
+            return this.entityIndex.forEachInBox(bb, null, visitor);
         }
-
-        return entities == null ? ImmutableSet.of() : entities.build();
+        return !entity.canCollide() || this.entityIndex.forEachCollidingWith(bb, entity, visitor);
     }
 
     public Set<Entity> getNearbyEntities(AxisAlignedBB bb) {
@@ -2016,6 +2141,12 @@ public class Level implements ChunkManager, Metadatable {
     }
 
     public Set<Entity> getNearbyEntities(AxisAlignedBB bb, Entity entity, boolean loadChunks) {
+        if (!loadChunks) {
+            Set<Entity> entities = new ReferenceOpenHashSet<>();
+            this.forEachNearbyEntity(bb, entity, entities::add);
+            return entities;
+        }
+
         int minX = NukkitMath.floorDouble((bb.getMinX() - 2) * 0.0625);
         int maxX = NukkitMath.ceilDouble((bb.getMaxX() + 2) * 0.0625);
         int minZ = NukkitMath.floorDouble((bb.getMinZ() - 2) * 0.0625);
@@ -2025,7 +2156,7 @@ public class Level implements ChunkManager, Metadatable {
 
         for (int x = minX; x <= maxX; ++x) {
             for (int z = minZ; z <= maxZ; ++z) {
-                Set<Entity> entitiesInRange = loadChunks ? this.getChunkEntities(x, z) : this.getLoadedChunkEntities(x, z);
+                Set<Entity> entitiesInRange = this.getChunkEntities(x, z);
                 for (Entity entityInRange : entitiesInRange) {
                     if (entityInRange != entity && entityInRange.getBoundingBox().intersectsWith(bb)) {
                         if (entities == null) {
@@ -2040,6 +2171,22 @@ public class Level implements ChunkManager, Metadatable {
         return entities == null ? ImmutableSet.of() : entities.build();
     }
 
+    /**
+     * Visits the entities intersecting with the box without collecting them first.
+     *
+     * @param bb      box to look in
+     * @param entity  entity to leave out, or null
+     * @param visitor visitor of the entities found, which can stop the query by returning false
+     * @return false if the visitor stopped the query
+     */
+    public boolean forEachNearbyEntity(AxisAlignedBB bb, @Nullable Entity entity, SpatialEntityIndex.Visitor visitor) {
+        return this.entityIndex.forEachInBox(bb, entity, visitor);
+    }
+
+    public SpatialEntityIndex getEntityIndex() {
+        return entityIndex;
+    }
+
     public Set<BlockEntity> getBlockEntities() {
         return blockEntities;
     }
@@ -2186,6 +2333,16 @@ public class Level implements ChunkManager, Metadatable {
         return this.chunkManager.getChunkFuture(chunkX, chunkZ);
     }
 
+    @Nonnull
+    public LevelChunkManager getChunkManager() {
+        return this.chunkManager;
+    }
+
+    @Nonnull
+    public BlockUpdateScheduler getUpdateScheduler() {
+        return this.updateQueue;
+    }
+
     public int getHighestBlockAt(int x, int z) {
         return this.getChunk(x >> 4, z >> 4).getHighestBlock(x & 0x0f, z & 0x0f);
     }
@@ -2260,6 +2417,10 @@ public class Level implements ChunkManager, Metadatable {
         synchronized (entities) {
             this.entities.remove(entity.getUniqueId());
         }
+        this.entityIndex.remove(entity);
+        if (entity instanceof BaseEntity) {
+            this.movementBroadcaster.remove((BaseEntity) entity);
+        }
         this.updateEntities.remove(entity);
     }
 
@@ -2274,6 +2435,7 @@ public class Level implements ChunkManager, Metadatable {
         synchronized (entities) {
             this.entities.put(entity.getUniqueId(), entity);
         }
+        this.entityIndex.add(entity);
     }
 
     public void addBlockEntity(BlockEntity blockEntity) {
@@ -2286,16 +2448,45 @@ public class Level implements ChunkManager, Metadatable {
     public void scheduleBlockEntityUpdate(BlockEntity entity) {
         checkNotNull(entity, "entity");
         Preconditions.checkArgument(entity.getLevel() == this, "BlockEntity is not in this level");
-        if (!updateBlockEntities.contains(entity)) {
+        synchronized (updateBlockEntities) {
             updateBlockEntities.add(entity);
         }
     }
 
+    /**
+     * Lets a block entity sleep until the given number of ticks has passed. Block entities which are woken up earlier,
+     * such as by {@link #scheduleBlockEntityUpdate(BlockEntity)}, are still ticked again once the delay has passed.
+     *
+     * @param entity block entity to tick
+     * @param delay  ticks until the block entity is ticked
+     */
+    public void scheduleBlockEntityUpdate(BlockEntity entity, int delay) {
+        if (delay <= 0) {
+            this.scheduleBlockEntityUpdate(entity);
+            return;
+        }
+        checkNotNull(entity, "entity");
+        Preconditions.checkArgument(entity.getLevel() == this, "BlockEntity is not in this level");
+        synchronized (updateBlockEntities) {
+            blockEntityWakeUps.computeIfAbsent(this.getCurrentTick() + delay, tick -> new ArrayList<>()).add(entity);
+        }
+    }
+
     public void removeBlockEntity(BlockEntity entity) {
         checkNotNull(entity, "entity");
         Preconditions.checkArgument(entity.getLevel() == this, "BlockEntity is not in this level");
         blockEntities.remove(entity);
-        updateBlockEntities.remove(entity);
+        synchronized (updateBlockEntities) {
+            updateBlockEntities.remove(entity);
+            // Drop pending wake-ups as well, so removed block entities are not kept alive until they are due
+            Iterator<List<BlockEntity>> wakeUps = blockEntityWakeUps.values().iterator();
+            while (wakeUps.hasNext()) {
+                List<BlockEntity> entities = wakeUps.next();
+                if (entities.removeIf(blockEntity -> blockEntity == entity) && entities.isEmpty()) {
+                    wakeUps.remove();
+                }
+            }
+        }
     }
 
     public boolean isSpawnChunk(int x, int z) {
@@ -2414,13 +2605,17 @@ public class Level implements ChunkManager, Metadatable {
         this.server.getLevelMetadata().removeMetadata(this, metadataKey, owningPlugin);
     }
 
+    /**
+     * Queues the movement of the entity to be sent to its viewers at the end of the entity tick.
+     *
+     * @see EntityMovementBroadcaster
+     */
     public void addEntityMovement(BaseEntity entity, double x, double y, double z, double yaw, double pitch, double headYaw) {
-        MoveEntityAbsolutePacket packet = new MoveEntityAbsolutePacket();
-        packet.setRuntimeEntityId(entity.getRuntimeId());
-        packet.setPosition(Vector3f.from(x, y, z));
-        packet.setRotation(Vector3f.from(pitch, yaw, headYaw));
+        this.movementBroadcaster.queue(entity, (float) x, (float) y, (float) z, (float) pitch, (float) yaw, (float) headYaw);
+    }
 
-        CloudServer.broadcastPacket(entity.getViewers(), packet);
+    public EntityMovementBroadcaster getMovementBroadcaster() {
+        return movementBroadcaster;
     }
 
     public boolean isRaining() {
@@ -75,7 +75,7 @@ public class LevelBuilder {
             }
         }
 
-        final Executor executor = this.server.getLevelManager().getChunkExecutor();
+        final Executor executor = this.server.getScheduler().getIoExecutor();
 
         // Load chunk provider
         CompletableFuture<LevelProvider> providerFuture = CompletableFuture.supplyAsync(() -> {
@@ -4,8 +4,10 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import lombok.extern.log4j.Log4j2;
 import org.cloudburstmc.server.CloudServer;
+import org.cloudburstmc.server.config.ServerConfig;
 import org.cloudburstmc.server.event.level.LevelLoadEvent;
 import org.cloudburstmc.server.event.level.LevelUnloadEvent;
+import org.cloudburstmc.server.level.chunk.ChunkPacketCache;
 import org.cloudburstmc.server.math.NukkitMath;
 import org.cloudburstmc.server.utils.Utils;
 
@@ -13,25 +15,23 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.Closeable;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.*;
+import java.util.function.Supplier;
 
 @Log4j2
 @Singleton
 public class LevelManager implements Closeable {
-    private final ExecutorService chunkExecutor = Executors.newWorkStealingPool();
     private final CloudServer server;
+    private final ChunkPacketCache chunkPacketCache;
     private final Set<Level> levels = new HashSet<>();
     private final Map<String, Level> levelIds = new HashMap<>();
     private volatile Level defaultLevel;
+    private volatile ParallelLevelTicker parallelTicker;
 
     @Inject
     public LevelManager(CloudServer server) {
         this.server = server;
+        this.chunkPacketCache = new ChunkPacketCache(server);
     }
 
     public synchronized void register(Level level) {
@@ -103,46 +103,127 @@ public class LevelManager implements Closeable {
         for (Level level : this.levels) {
             level.close();
         }
+        this.chunkPacketCache.clear();
+        if (this.parallelTicker != null) {
+            this.parallelTicker.close();
+        }
+    }
+
+    /**
+     * Whether the current thread is ticking a level in parallel to other levels. Code running on such a thread may
+     * only touch its own level and has to hand everything else to the main thread.
+     *
+     * @return true if called from a level tick thread
+     * @see ServerConfig.LevelSettings#isParallelTicking()
+     */
+    public static boolean isLevelTickThread() {
+        return ParallelLevelTicker.isLevelThread();
+    }
+
+    /**
+     * Lets the main thread pause the level ticking on the current thread, see {@link ParallelLevelTicker#safepoint()}.
+     */
+    public static void safepoint() {
+        ParallelLevelTicker.safepoint();
+    }
+
+    /**
+     * Runs the task on the main thread and waits for its result if called from a level tick thread, otherwise runs
+     * it directly.
+     *
+     * @param task task to run
+     * @param <T>  result type
+     * @return result of the task
+     */
+    public <T> T callOnMainThread(Supplier<T> task) {
+        ParallelLevelTicker ticker = this.parallelTicker;
+        return ticker == null ? task.get() : ticker.callOnMainThread(task);
+    }
+
+    /**
+     * Runs the task on the main thread without waiting for it if called from a level tick thread, otherwise runs it
+     * directly.
+     *
+     * @param task task to run
+     */
+    public void runOnMainThread(Runnable task) {
+        ParallelLevelTicker ticker = this.parallelTicker;
+        if (ticker == null) {
+            task.run();
+        } else {
+            ticker.runOnMainThread(task);
+        }
+    }
+
+    /**
+     * Runs the task once all levels have finished ticking if called from a level tick thread, otherwise runs it
+     * directly.
+     *
+     * @param task task to run
+     */
+    public void runAfterTick(Runnable task) {
+        ParallelLevelTicker ticker = this.parallelTicker;
+        if (ticker == null) {
+            task.run();
+        } else {
+            ticker.runAfterTick(task);
+        }
     }
 
     public void tick(int currentTick) {
-        for (Level level : this.levels) {
-            try {
-                long levelTime = System.currentTimeMillis();
-                level.doTick(currentTick);
-                int tickMs = (int) (System.currentTimeMillis() - levelTime);
-                level.tickRateTime = tickMs;
-
-                if (server.isAutoTickRate()) {
-                    if (tickMs < 50 && level.getTickRate() > server.getBaseTickRate()) {
-                        int r;
-                        level.setTickRate(r = level.getTickRate() - 1);
-                        if (r > server.getBaseTickRate()) {
-                            level.tickRateCounter = level.getTickRate();
-                        }
-                        log.debug("Raising level \"" + level.getName() + "\" tick rate to " + level.getTickRate() + " ticks");
-                    } else if (tickMs >= 50) {
-                        if (level.getTickRate() == server.getBaseTickRate()) {
-                            level.setTickRate(Math.max(server.getBaseTickRate() + 1, Math.min(server.getAutoTickRateLimit(), tickMs / 50)));
-                            log.debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
-                        } else if ((tickMs / level.getTickRate()) >= 50 && level.getTickRate() < server.getAutoTickRateLimit()) {
-                            level.setTickRate(level.getTickRate() + 1);
-                            log.debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
-                        }
+        ServerConfig.LevelSettings settings = this.server.getConfig().getLevelSettings();
+        if (settings.isParallelTicking() && this.levels.size() > 1) {
+            if (this.parallelTicker == null) {
+                int threads = settings.getParallelTickThreads();
+                if (threads <= 0) {
+                    threads = Runtime.getRuntime().availableProcessors();
+                }
+                this.parallelTicker = new ParallelLevelTicker(threads);
+            }
+            this.parallelTicker.tick(new ArrayList<>(this.levels), level -> this.tickLevel(level, currentTick));
+        } else {
+            for (Level level : this.levels) {
+                this.tickLevel(level, currentTick);
+            }
+        }
+    }
+
+    private void tickLevel(Level level, int currentTick) {
+        try {
+            long levelTime = System.currentTimeMillis();
+            level.doTick(currentTick);
+            int tickMs = (int) (System.currentTimeMillis() - levelTime);
+            level.tickRateTime = tickMs;
+
+            if (server.isAutoTickRate()) {
+                if (tickMs < 50 && level.getTickRate() > server.getBaseTickRate()) {
+                    int r;
+                    level.setTickRate(r = level.getTickRate() - 1);
+                    if (r > server.getBaseTickRate()) {
                         level.tickRateCounter = level.getTickRate();
                     }
+                    log.debug("Raising level \"" + level.getName() + "\" tick rate to " + level.getTickRate() + " ticks");
+                } else if (tickMs >= 50) {
+                    if (level.getTickRate() == server.getBaseTickRate()) {
+                        level.setTickRate(Math.max(server.getBaseTickRate() + 1, Math.min(server.getAutoTickRateLimit(), tickMs / 50)));
+                        log.debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
+                    } else if ((tickMs / level.getTickRate()) >= 50 && level.getTickRate() < server.getAutoTickRateLimit()) {
+                        level.setTickRate(level.getTickRate() + 1);
+                        log.debug("Level \"" + level.getName() + "\" took " + NukkitMath.round(tickMs, 2) + "ms, setting tick rate to " + level.getTickRate() + " ticks");
+                    }
+                    level.tickRateCounter = level.getTickRate();
                 }
+            }
 
-                if (currentTick % 100 == 0) {
-                    level.doChunkGarbageCollection();
-                }
-            } catch (Exception e) {
-                log.error(server.getLanguage().translate("cloudburst.level.tickError", level.getId(), Utils.getExceptionMessage(e)));
+            if (currentTick % 100 == 0) {
+                level.doChunkGarbageCollection();
             }
+        } catch (Exception e) {
+            log.error(server.getLanguage().translate("cloudburst.level.tickError", level.getId(), Utils.getExceptionMessage(e)));
         }
     }
 
-    public ExecutorService getChunkExecutor() {
-        return chunkExecutor;
+    public ChunkPacketCache getChunkPacketCache() {
+        return chunkPacketCache;
     }
 }
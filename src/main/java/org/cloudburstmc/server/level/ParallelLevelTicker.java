@@ -0,0 +1,215 @@
+package org.cloudburstmc.server.level;
+
+import com.google.common.base.Throwables;
+import lombok.extern.log4j.Log4j2;
+import org.cloudburstmc.server.scheduler.ServerExecutor;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Ticks levels in parallel on a bounded pool of threads while the main thread waits for all of them to finish.
+ * <p>
+ * A level only touches its own chunks and entities during its tick. Everything else is handed back to the main
+ * thread, which keeps running these tasks while it waits:
+ * <ul>
+ * <li>events are fired on the main thread and the level thread waits for the listeners, see
+ * {@link #callOnMainThread(Supplier)}. Listeners may touch any level, so every other level is paused at its next
+ * {@link #safepoint()} until they are done</li>
+ * <li>packet broadcasts are sent from the main thread without waiting, see {@link #runOnMainThread(Runnable)}</li>
+ * <li>teleports to another level are deferred until every level has finished ticking, see
+ * {@link #runAfterTick(Runnable)}</li>
+ * </ul>
+ * Tasks can already be scheduled from any thread and always run on the main thread. Timings are only recorded on the
+ * main thread, so the per-level timers stay empty while levels are ticked in parallel.
+ */
+@Log4j2
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class ParallelLevelTicker implements Closeable {
+    private static final ThreadLocal<ParallelLevelTicker> TICKER = new ThreadLocal<>();
+    private static final Runnable WAKE_UP = () -> {
+    };
+
+    private final ServerExecutor executor;
+    private final BlockingQueue<Runnable> mainThreadTasks = new LinkedBlockingQueue<>();
+    private final Queue<Runnable> postTickTasks = new ConcurrentLinkedQueue<>();
+    /**
+     * Held shared by every level thread while it ticks and exclusively by the main thread while it runs a task a level
+     * thread waits for. Fair, so a level thread passing a safepoint waits for a queued main thread task.
+     */
+    private final ReentrantReadWriteLock pauseLock = new ReentrantReadWriteLock(true);
+
+    ParallelLevelTicker(int threads) {
+        this.executor = new ServerExecutor("Level Tick", threads, 1024);
+    }
+
+    /**
+     * Whether the current thread is ticking a level in parallel to other levels.
+     *
+     * @return true if called from a level tick thread
+     */
+    public static boolean isLevelThread() {
+        return TICKER.get() != null;
+    }
+
+    /**
+     * Pauses the level ticking on the current thread while the main thread runs a task which may touch any level.
+     * Levels call this between the updates of their tick, where their state is consistent. Does nothing if not called
+     * from a level tick thread.
+     */
+    public static void safepoint() {
+        ParallelLevelTicker ticker = TICKER.get();
+        if (ticker != null && ticker.pauseLock.hasQueuedThreads()) {
+            ticker.pauseLock.readLock().unlock();
+            ticker.pauseLock.readLock().lock();
+        }
+    }
+
+    /**
+     * Runs the task on the main thread and waits for its result. All other levels are paused at their next safepoint
+     * while the task runs. Runs the task directly if not called from a level tick thread.
+     *
+     * @param task task to run
+     * @param <T>  result type
+     * @return result of the task
+     */
+    public <T> T callOnMainThread(Supplier<T> task) {
+        if (!isLevelThread()) {
+            return task.get();
+        }
+
+        FutureTask<T> future = new FutureTask<>(task::get);
+        this.mainThreadTasks.add(() -> {
+            this.pauseLock.writeLock().lock();
+            try {
+                future.run();
+            } finally {
+                this.pauseLock.writeLock().unlock();
+            }
+        });
+        // The level waits for the task, so it cannot keep the main thread from pausing the others
+        this.pauseLock.readLock().unlock();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // The main thread is already running the task and the level has to wait for it either way
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        } finally {
+            this.pauseLock.readLock().lock();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the task on the main thread without waiting for it. Runs the task directly if not called from a level tick
+     * thread.
+     *
+     * @param task task to run
+     */
+    public void runOnMainThread(Runnable task) {
+        if (isLevelThread()) {
+            this.mainThreadTasks.add(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Runs the task on the main thread once all levels have finished ticking. Runs the task directly if not called
+     * from a level tick thread.
+     *
+     * @param task task to run
+     */
+    public void runAfterTick(Runnable task) {
+        if (isLevelThread()) {
+            this.postTickTasks.add(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Ticks all levels and returns once they have finished. Must be called from the main thread.
+     *
+     * @param levels levels to tick
+     * @param tick   ticks a single level
+     */
+    void tick(Collection<Level> levels, Consumer<Level> tick) {
+        CountDownLatch latch = new CountDownLatch(levels.size());
+        for (Level level : levels) {
+            this.executor.execute(() -> {
+                // The main thread takes the pause lock exclusively, so it must never hold it shared
+                boolean levelThread = !level.getServer().isPrimaryThread();
+                if (levelThread) {
+                    TICKER.set(this);
+                    this.pauseLock.readLock().lock();
+                }
+                try {
+                    tick.accept(level);
+                } finally {
+                    if (levelThread) {
+                        this.pauseLock.readLock().unlock();
+                        TICKER.remove();
+                    }
+                    latch.countDown();
+                    if (latch.getCount() == 0) {
+                        this.mainThreadTasks.add(WAKE_UP);
+                    }
+                }
+            });
+        }
+
+        boolean interrupted = false;
+        while (latch.getCount() > 0) {
+            try {
+                run(this.mainThreadTasks.take());
+            } catch (InterruptedException e) {
+                // Level threads may be waiting for the main thread, so it cannot stop before they are done
+                interrupted = true;
+            }
+        }
+
+        Runnable task;
+        while ((task = this.mainThreadTasks.poll()) != null) {
+            run(task);
+        }
+        while ((task = this.postTickTasks.poll()) != null) {
+            run(task);
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("Exception whilst running task for level tick", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,343 @@
+package org.cloudburstmc.server.level;
+
+import com.google.common.base.Preconditions;
+import com.nukkitx.math.vector.Vector3f;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import org.cloudburstmc.server.entity.Entity;
+import org.cloudburstmc.server.math.AxisAlignedBB;
+import org.cloudburstmc.server.math.NukkitMath;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Grid of the entities in a level by the column of {@value #CELL_SIZE}x{@value #CELL_SIZE} blocks their position is
+ * in, kept up to date by {@link Level#addEntity(Entity)}, {@link Level#removeEntity(Entity)} and entity movement.
+ * <p>
+ * Queries only look at the cells around the queried area rather than at whole chunks and hand every match to a
+ * {@link Visitor} instead of collecting them. The bounding box of an entity can reach outside of the cell its position
+ * is in, so box and ray queries also look at the entities up to {@value #QUERY_MARGIN} blocks around the queried area,
+ * the same margin the chunk based lookups used.
+ * <p>
+ * Cells are replaced rather than modified when an entity enters or leaves them, so visitors are free to move, add or
+ * remove entities. A running query may or may not see such changes.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class SpatialEntityIndex {
+    private static final int CELL_BITS = 3;
+    public static final int CELL_SIZE = 1 << CELL_BITS;
+    private static final int QUERY_MARGIN = 2;
+    private static final Entity[] EMPTY = new Entity[0];
+
+    private final Long2ObjectMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+    private final Reference2ObjectMap<Entity, Cell> entityCells = new Reference2ObjectOpenHashMap<>();
+
+    /**
+     * Adds the entity at its current position, or moves it there if it has already been added.
+     *
+     * @param entity entity to add
+     */
+    public synchronized void add(Entity entity) {
+        Cell previous = this.entityCells.get(entity);
+        if (previous != null) {
+            this.move(entity, previous);
+        } else {
+            this.entityCells.put(entity, this.link(entity, cellOf(entity.getPosition())));
+        }
+    }
+
+    public synchronized void remove(Entity entity) {
+        Cell cell = this.entityCells.remove(entity);
+        if (cell != null) {
+            this.unlink(entity, cell);
+        }
+    }
+
+    /**
+     * Moves the entity to the cell of its current position. Entities which have not been added are ignored.
+     *
+     * @param entity entity which has moved
+     */
+    public synchronized void update(Entity entity) {
+        Cell previous = this.entityCells.get(entity);
+        if (previous != null) {
+            this.move(entity, previous);
+        }
+    }
+
+    private void move(Entity entity, Cell previous) {
+        long key = cellOf(entity.getPosition());
+        if (previous.key != key) {
+            this.unlink(entity, previous);
+            this.entityCells.put(entity, this.link(entity, key));
+        }
+    }
+
+    public synchronized int size() {
+        return this.entityCells.size();
+    }
+
+    /**
+     * Visits the entities whose bounding box intersects with the box.
+     *
+     * @param bb      box to look in
+     * @param exclude entity to leave out, such as the one looking
+     * @param visitor visitor of the entities found
+     * @return false if the visitor stopped the query
+     */
+    public boolean forEachInBox(AxisAlignedBB bb, @Nullable Entity exclude, Visitor visitor) {
+        return this.forEachInBox(bb, exclude, false, visitor);
+    }
+
+    /**
+     * Visits the entities whose bounding box intersects with the box and which the entity can collide with.
+     *
+     * @param bb      box to look in
+     * @param entity  entity to check collisions of, which is left out itself
+     * @param visitor visitor of the entities found
+     * @return false if the visitor stopped the query
+     */
+    public boolean forEachCollidingWith(AxisAlignedBB bb, Entity entity, Visitor visitor) {
+        return this.forEachInBox(bb, entity, true, visitor);
+    }
+
+    private boolean forEachInBox(AxisAlignedBB bb, @Nullable Entity exclude, boolean collide, Visitor visitor) {
+        int minX = cell(bb.getMinX() - QUERY_MARGIN);
+        int maxX = cell(bb.getMaxX() + QUERY_MARGIN);
+        int minZ = cell(bb.getMinZ() - QUERY_MARGIN);
+        int maxZ = cell(bb.getMaxZ() + QUERY_MARGIN);
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (Entity entity : this.getCell(x, z)) {
+                    if (entity == exclude || !entity.getBoundingBox().intersectsWith(bb)) {
+                        continue;
+                    }
+                    if (collide && !exclude.canCollideWith(entity)) {
+                        continue;
+                    }
+                    if (!visitor.visit(entity)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the entities whose position is within the radius of the point.
+     *
+     * @param x       x of the point
+     * @param y       y of the point
+     * @param z       z of the point
+     * @param radius  radius around the point
+     * @param visitor visitor of the entities found
+     * @return false if the visitor stopped the query
+     */
+    public boolean forEachInRadius(double x, double y, double z, double radius, Visitor visitor) {
+        Preconditions.checkArgument(radius >= 0, "radius must not be negative");
+        double radiusSquared = radius * radius;
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                for (Entity entity : this.getCell(cellX, cellZ)) {
+                    Vector3f pos = entity.getPosition();
+                    double dx = pos.getX() - x;
+                    double dy = pos.getY() - y;
+                    double dz = pos.getZ() - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared && !visitor.visit(entity)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the entities whose bounding box is hit by the ray. Entities are not visited in the order they are hit.
+     *
+     * @param origin      start of the ray
+     * @param direction   direction of the ray, does not have to be normalized
+     * @param maxDistance length of the ray
+     * @param visitor     visitor of the entities found
+     * @return false if the visitor stopped the query
+     */
+    public boolean forEachOnRay(Vector3f origin, Vector3f direction, double maxDistance, Visitor visitor) {
+        double length = direction.length();
+        Preconditions.checkArgument(length > 0, "direction must not be zero");
+        double ox = origin.getX();
+        double oy = origin.getY();
+        double oz = origin.getZ();
+        double dx = direction.getX() / length;
+        double dy = direction.getY() / length;
+        double dz = direction.getZ() / length;
+        double endX = ox + dx * maxDistance;
+        double endZ = oz + dz * maxDistance;
+
+        int minX = cell(Math.min(ox, endX) - QUERY_MARGIN);
+        int maxX = cell(Math.max(ox, endX) + QUERY_MARGIN);
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            // Part of the ray within this column of cells and the margin around it
+            double fromZ;
+            double toZ;
+            if (dx == 0) {
+                fromZ = Math.min(oz, endZ);
+                toZ = Math.max(oz, endZ);
+            } else {
+                double t1 = ((cellX << CELL_BITS) - QUERY_MARGIN - ox) / dx;
+                double t2 = (((cellX + 1) << CELL_BITS) + QUERY_MARGIN - ox) / dx;
+                double tMin = Math.max(0, Math.min(t1, t2));
+                double tMax = Math.min(maxDistance, Math.max(t1, t2));
+                if (tMin > tMax) {
+                    continue;
+                }
+                fromZ = Math.min(oz + dz * tMin, oz + dz * tMax);
+                toZ = Math.max(oz + dz * tMin, oz + dz * tMax);
+            }
+
+            int maxZ = cell(toZ + QUERY_MARGIN);
+            for (int cellZ = cell(fromZ - QUERY_MARGIN); cellZ <= maxZ; cellZ++) {
+                for (Entity entity : this.getCell(cellX, cellZ)) {
+                    if (intersectsRay(entity.getBoundingBox(), ox, oy, oz, dx, dy, dz, maxDistance) &&
+                            !visitor.visit(entity)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean intersectsRay(AxisAlignedBB bb, double ox, double oy, double oz, double dx, double dy,
+                                         double dz, double maxDistance) {
+        double tMin = 0;
+        double tMax = maxDistance;
+
+        if (dx == 0) {
+            if (ox < bb.getMinX() || ox > bb.getMaxX()) {
+                return false;
+            }
+        } else {
+            double t1 = (bb.getMinX() - ox) / dx;
+            double t2 = (bb.getMaxX() - ox) / dx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            if (tMin > tMax) {
+                return false;
+            }
+        }
+
+        if (dy == 0) {
+            if (oy < bb.getMinY() || oy > bb.getMaxY()) {
+                return false;
+            }
+        } else {
+            double t1 = (bb.getMinY() - oy) / dy;
+            double t2 = (bb.getMaxY() - oy) / dy;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            if (tMin > tMax) {
+                return false;
+            }
+        }
+
+        if (dz == 0) {
+            return oz >= bb.getMinZ() && oz <= bb.getMaxZ();
+        }
+        double t1 = (bb.getMinZ() - oz) / dz;
+        double t2 = (bb.getMaxZ() - oz) / dz;
+        tMin = Math.max(tMin, Math.min(t1, t2));
+        tMax = Math.min(tMax, Math.max(t1, t2));
+        return tMin <= tMax;
+    }
+
+    private synchronized Entity[] getCell(int x, int z) {
+        Cell cell = this.cells.get(key(x, z));
+        return cell == null ? EMPTY : cell.entities;
+    }
+
+    private Cell link(Entity entity, long key) {
+        Cell cell = this.cells.get(key);
+        if (cell == null) {
+            cell = new Cell(key);
+            this.cells.put(key, cell);
+        }
+        Entity[] entities = cell.entities;
+        Entity[] copy = Arrays.copyOf(entities, entities.length + 1);
+        copy[entities.length] = entity;
+        cell.entities = copy;
+        return cell;
+    }
+
+    private void unlink(Entity entity, Cell cell) {
+        Entity[] entities = cell.entities;
+        int index = -1;
+        for (int i = 0; i < entities.length; i++) {
+            if (entities[i] == entity) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+        if (entities.length == 1) {
+            cell.entities = EMPTY;
+            this.cells.remove(cell.key);
+            return;
+        }
+        Entity[] copy = new Entity[entities.length - 1];
+        System.arraycopy(entities, 0, copy, 0, index);
+        System.arraycopy(entities, index + 1, copy, index, copy.length - index);
+        cell.entities = copy;
+    }
+
+    private static int cell(double coordinate) {
+        return NukkitMath.floorDouble(coordinate) >> CELL_BITS;
+    }
+
+    private static long cellOf(Vector3f pos) {
+        return key(pos.getFloorX() >> CELL_BITS, pos.getFloorZ() >> CELL_BITS);
+    }
+
+    private static long key(int x, int z) {
+        return (((long) x) << 32) | (z & 0xffffffffL);
+    }
+
+    private static final class Cell {
+        private final long key;
+        /**
+         * Entities in the cell. Replaced as a whole whenever an entity enters or leaves the cell.
+         */
+        private Entity[] entities = EMPTY;
+
+        private Cell(long key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Receives the entities found by a query.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * @param entity entity found
+         * @return false to stop the query
+         */
+        boolean visit(Entity entity);
+    }
+}
@@ -0,0 +1,117 @@
+package org.cloudburstmc.server.level;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports how often the tick budget of a level ran out and the work the last tick carried over to the next one.
+ * <p>
+ * The backlog is only published once a tick has finished, so it can be read from any thread while the level ticks.
+ *
+ * @see org.cloudburstmc.server.config.ServerConfig.LevelSettings#getTickBudget()
+ */
+@ThreadSafe
+public final class TickBudgetStats {
+    private final LongAdder exhaustedTicks = new LongAdder();
+    // Backlog of the tick in progress, only accessed by the thread ticking the level
+    private int pendingBlockEntities;
+    private int pendingRandomTickChunks;
+    private int pendingBlockChanges;
+    private int pendingLightUpdateChunks;
+    // Backlog left by the last tick
+    private volatile int blockEntities;
+    private volatile int randomTickChunks;
+    private volatile int blockChanges;
+    private volatile int lightUpdateChunks;
+
+    TickBudgetStats() {
+    }
+
+    void onExhausted() {
+        this.exhaustedTicks.increment();
+    }
+
+    void deferBlockEntities(int count) {
+        this.pendingBlockEntities = count;
+    }
+
+    void deferRandomTickChunks(int count) {
+        this.pendingRandomTickChunks = count;
+    }
+
+    void deferBlockChanges(int count) {
+        this.pendingBlockChanges = count;
+    }
+
+    void deferLightUpdateChunks(int count) {
+        this.pendingLightUpdateChunks = count;
+    }
+
+    /**
+     * Publishes the backlog of the tick which just finished and starts counting the next one.
+     */
+    void endTick() {
+        this.blockEntities = this.pendingBlockEntities;
+        this.randomTickChunks = this.pendingRandomTickChunks;
+        this.blockChanges = this.pendingBlockChanges;
+        this.lightUpdateChunks = this.pendingLightUpdateChunks;
+        this.pendingBlockEntities = 0;
+        this.pendingRandomTickChunks = 0;
+        this.pendingBlockChanges = 0;
+        this.pendingLightUpdateChunks = 0;
+    }
+
+    /**
+     * Number of ticks in which the budget ran out since the level was loaded.
+     *
+     * @return exhausted tick count
+     */
+    public long getExhaustedTicks() {
+        return this.exhaustedTicks.sum();
+    }
+
+    /**
+     * Whether the last tick carried any work over to the next one.
+     *
+     * @return true if any backlog is non-zero
+     */
+    public boolean hasBacklog() {
+        return this.blockEntities > 0 || this.randomTickChunks > 0 || this.blockChanges > 0 || this.lightUpdateChunks > 0;
+    }
+
+    /**
+     * Number of block entities the last tick did not update.
+     *
+     * @return block entity backlog
+     */
+    public int getBlockEntityBacklog() {
+        return this.blockEntities;
+    }
+
+    /**
+     * Number of chunks the last tick did not random tick.
+     *
+     * @return random tick chunk backlog
+     */
+    public int getRandomTickChunkBacklog() {
+        return this.randomTickChunks;
+    }
+
+    /**
+     * Number of chunks whose block changes the last tick did not broadcast.
+     *
+     * @return block change chunk backlog
+     */
+    public int getBlockChangeBacklog() {
+        return this.blockChanges;
+    }
+
+    /**
+     * Number of chunks whose light the last tick did not update.
+     *
+     * @return light update chunk backlog
+     */
+    public int getLightUpdateChunkBacklog() {
+        return this.lightUpdateChunks;
+    }
+}
@@ -8,6 +8,8 @@ import com.nukkitx.network.VarInts;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
 import lombok.extern.log4j.Log4j2;
 import org.cloudburstmc.server.block.BlockPalette;
@@ -17,6 +19,7 @@ import org.cloudburstmc.server.level.chunk.bitarray.BitArrayVersion;
 import org.cloudburstmc.server.registry.BlockRegistry;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -26,23 +29,34 @@ import static org.cloudburstmc.server.block.BlockStates.AIR;
 public class BlockStorage {
 
     private static final int SIZE = 4096;
+    // Palettes up to this size are searched linearly, larger ones get an index.
+    private static final int INDEX_THRESHOLD = 8;
 
     private final List<BlockState> palette;
+    private Reference2IntMap<BlockState> paletteIndex;
+    // Runtime IDs of the palette entries, built on the first network write and kept up to date by idFor afterwards.
+    private int[] runtimeIds;
     private BitArray bitArray;
+    private boolean compacted = true;
+    // Number of blocks which are ticked randomly, kept up to date by setBlock.
+    private int randomTickables;
 
     public BlockStorage() {
-        this(BitArrayVersion.V1);
+        this(BitArrayVersion.V0);
     }
 
     public BlockStorage(BitArrayVersion version) {
         this.bitArray = version.createPalette(SIZE);
-        this.palette = new ReferenceArrayList<>(16);
+        this.palette = new ReferenceArrayList<>(version == BitArrayVersion.V0 ? 2 : 16);
         this.palette.add(AIR); // Air is at the start of every palette.
     }
 
-    private BlockStorage(BitArray bitArray, List<BlockState> palette) {
+    private BlockStorage(BitArray bitArray, List<BlockState> palette, int[] runtimeIds, int randomTickables) {
         this.palette = palette;
         this.bitArray = bitArray;
+        this.runtimeIds = runtimeIds;
+        this.randomTickables = randomTickables;
+        this.rebuildIndex();
     }
 
     private int getPaletteHeader(BitArrayVersion version, boolean runtime) {
@@ -60,30 +74,50 @@ public class BlockStorage {
     public void setBlock(int index, BlockState blockState) {
         try {
             int idx = this.idFor(blockState);
+            int previous = this.bitArray.get(index);
+            if (previous == idx) {
+                return;
+            }
             this.bitArray.set(index, idx);
+            this.compacted = false;
+
+            if (ChunkSection.isRandomTickable(this.blockFor(previous))) {
+                this.randomTickables--;
+            }
+            if (ChunkSection.isRandomTickable(blockState)) {
+                this.randomTickables++;
+            }
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Unable to set block: " + blockState + ", palette: " + palette, e);
         }
     }
 
     public void writeToNetwork(ByteBuf buffer) {
-        buffer.writeByte(getPaletteHeader(bitArray.getVersion(), true));
+        this.writeWords(buffer, true);
 
-        for (int word : bitArray.getWords()) {
-            buffer.writeIntLE(word);
+        int[] runtimeIds = this.getRuntimeIds();
+        int paletteSize = this.palette.size();
+        VarInts.writeInt(buffer, paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            VarInts.writeInt(buffer, runtimeIds[i]);
         }
+    }
 
-        VarInts.writeInt(buffer, palette.size());
-
-        BlockRegistry registry = BlockRegistry.get();
-        palette.forEach(state -> VarInts.writeInt(buffer, registry.getRuntimeId(state)));
+    private int[] getRuntimeIds() {
+        int[] runtimeIds = this.runtimeIds;
+        if (runtimeIds == null) {
+            BlockRegistry registry = BlockRegistry.get();
+            runtimeIds = new int[Math.max(this.palette.size(), 2)];
+            for (int i = 0; i < this.palette.size(); i++) {
+                runtimeIds[i] = registry.getRuntimeId(this.palette.get(i));
+            }
+            this.runtimeIds = runtimeIds;
+        }
+        return runtimeIds;
     }
 
     public void writeToStorage(ByteBuf buffer) {
-        buffer.writeByte(getPaletteHeader(bitArray.getVersion(), false));
-        for (int word : bitArray.getWords()) {
-            buffer.writeIntLE(word);
-        }
+        this.writeWords(buffer, false);
 
         buffer.writeIntLE(this.palette.size());
 
@@ -109,6 +143,8 @@ public class BlockStorage {
         this.bitArray = version.createPalette(SIZE, words);
 
         this.palette.clear();
+        this.paletteIndex = null;
+        this.runtimeIds = null;
         int paletteSize = buffer.readIntLE();
 
         checkArgument(version.getMaxEntryValue() >= paletteSize - 1,
@@ -135,6 +171,27 @@ public class BlockStorage {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        if (this.palette.size() == 1 && version != BitArrayVersion.V0) {
+            this.bitArray = BitArrayVersion.V0.createPalette(SIZE);
+        }
+        this.rebuildIndex();
+        this.countRandomTickables();
+        this.compacted = false;
+    }
+
+    private void writeWords(ByteBuf buffer, boolean runtime) {
+        BitArrayVersion version = this.bitArray.getVersion();
+        if (version == BitArrayVersion.V0) {
+            // Single value storages are written as an empty one bit storage which every reader understands.
+            buffer.writeByte(getPaletteHeader(BitArrayVersion.V1, runtime));
+            buffer.writeZero(BitArrayVersion.V1.getWordsForSize(SIZE) << 2);
+            return;
+        }
+
+        buffer.writeByte(getPaletteHeader(version, runtime));
+        for (int word : this.bitArray.getWords()) {
+            buffer.writeIntLE(word);
+        }
     }
 
     private void onResize(BitArrayVersion version) {
@@ -147,7 +204,7 @@ public class BlockStorage {
     }
 
     private int idFor(BlockState blockState) {
-        int index = this.palette.indexOf(blockState);
+        int index = this.paletteIndex == null ? this.palette.indexOf(blockState) : this.paletteIndex.getInt(blockState);
         if (index != -1) {
             return index;
         }
@@ -161,17 +218,163 @@ public class BlockStorage {
             }
         }
         this.palette.add(blockState);
+        if (this.runtimeIds != null) {
+            if (index >= this.runtimeIds.length) {
+                this.runtimeIds = Arrays.copyOf(this.runtimeIds, this.runtimeIds.length << 1);
+            }
+            this.runtimeIds[index] = BlockRegistry.get().getRuntimeId(blockState);
+        }
+        if (this.paletteIndex != null) {
+            this.paletteIndex.put(blockState, index);
+        } else if (this.palette.size() > INDEX_THRESHOLD) {
+            this.rebuildIndex();
+        }
         return index;
     }
 
+    private void rebuildIndex() {
+        if (this.palette.size() <= INDEX_THRESHOLD) {
+            this.paletteIndex = null;
+            return;
+        }
+        this.paletteIndex = new Reference2IntOpenHashMap<>(this.palette.size());
+        this.paletteIndex.defaultReturnValue(-1);
+        for (int i = 0; i < this.palette.size(); i++) {
+            this.paletteIndex.putIfAbsent(this.palette.get(i), i);
+        }
+    }
+
+    /**
+     * Drops palette entries which are no longer referenced and shrinks the bit array to the smallest version able to
+     * hold the remaining entries. The first palette entry, usually air, keeps its index unless a single block state
+     * is left, in which case the storage becomes a single value storage.
+     *
+     * @return whether the storage changed
+     */
+    public boolean compact() {
+        if (this.compacted) {
+            return false;
+        }
+        this.compacted = true;
+
+        int paletteSize = this.palette.size();
+        int[] remap = new int[paletteSize];
+        Arrays.fill(remap, -1);
+        remap[0] = 0;
+        int used = 1;
+        boolean firstUsed = false;
+        for (int i = 0; i < SIZE; i++) {
+            int id = this.bitArray.get(i);
+            if (id == 0) {
+                firstUsed = true;
+            } else if (remap[id] == -1) {
+                remap[id] = used++;
+            }
+        }
+
+        if (used == 1 || (used == 2 && !firstUsed)) {
+            // Uniform storage
+            if (paletteSize == 1 && this.bitArray.getVersion() == BitArrayVersion.V0) {
+                return false;
+            }
+            BlockState state = this.palette.get(this.bitArray.get(0));
+            this.bitArray = BitArrayVersion.V0.createPalette(SIZE);
+            this.palette.clear();
+            this.palette.add(state);
+            this.runtimeIds = null;
+            this.rebuildIndex();
+            return true;
+        }
+
+        BitArrayVersion version = BitArrayVersion.V1;
+        while (version.getMaxEntryValue() < used - 1) {
+            version = version.next();
+        }
+        if (used == paletteSize && version == this.bitArray.getVersion()) {
+            return false;
+        }
+
+        BlockState[] newPalette = new BlockState[used];
+        for (int i = 0; i < paletteSize; i++) {
+            if (remap[i] != -1) {
+                newPalette[remap[i]] = this.palette.get(i);
+            }
+        }
+
+        BitArray newBitArray = version.createPalette(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            newBitArray.set(i, remap[this.bitArray.get(i)]);
+        }
+
+        int[] runtimeIds = this.runtimeIds;
+        if (runtimeIds != null) {
+            int[] newRuntimeIds = new int[Math.max(used, 2)];
+            for (int i = 0; i < paletteSize; i++) {
+                if (remap[i] != -1) {
+                    newRuntimeIds[remap[i]] = runtimeIds[i];
+                }
+            }
+            runtimeIds = newRuntimeIds;
+        }
+
+        this.bitArray = newBitArray;
+        this.palette.clear();
+        this.palette.addAll(Arrays.asList(newPalette));
+        this.runtimeIds = runtimeIds;
+        this.rebuildIndex();
+        return true;
+    }
+
+    private void countRandomTickables() {
+        int paletteSize = this.palette.size();
+        boolean[] tickable = new boolean[paletteSize];
+        boolean any = false;
+        for (int i = 0; i < paletteSize; i++) {
+            any |= tickable[i] = ChunkSection.isRandomTickable(this.palette.get(i));
+        }
+
+        int count = 0;
+        if (any) {
+            for (int i = 0; i < SIZE; i++) {
+                if (tickable[this.bitArray.get(i)]) {
+                    count++;
+                }
+            }
+        }
+        this.randomTickables = count;
+    }
+
+    /**
+     * Number of blocks in this storage which are ticked randomly.
+     *
+     * @return random tickable block count
+     * @see ChunkSection#isRandomTickable(BlockState)
+     */
+    public int getRandomTickableCount() {
+        return this.randomTickables;
+    }
+
     private BlockState blockFor(int index) {
         return this.palette.get(index);
     }
 
     public boolean isEmpty() {
+        int airIndex = this.paletteIndex == null ? this.palette.indexOf(AIR) : this.paletteIndex.getInt(AIR);
+        if (airIndex == -1) {
+            return false;
+        }
         if (this.palette.size() == 1) {
             return true;
         }
+        if (airIndex != 0) {
+            // Air was added to a single value storage of another block.
+            for (int i = 0; i < SIZE; i++) {
+                if (this.bitArray.get(i) != airIndex) {
+                    return false;
+                }
+            }
+            return true;
+        }
         for (int word : this.bitArray.getWords()) {
             if (Integer.toUnsignedLong(word) != 0L) {
                 return false;
@@ -181,6 +384,8 @@ public class BlockStorage {
     }
 
     public BlockStorage copy() {
-        return new BlockStorage(this.bitArray.copy(), new ReferenceArrayList<>(this.palette));
+        int[] runtimeIds = this.runtimeIds;
+        return new BlockStorage(this.bitArray.copy(), new ReferenceArrayList<>(this.palette),
+                runtimeIds == null ? null : runtimeIds.clone(), this.randomTickables);
     }
 }
@@ -6,12 +6,15 @@ import com.google.common.collect.ImmutableSet;
 import com.nukkitx.math.vector.Vector3i;
 import com.nukkitx.math.vector.Vector4i;
 import com.nukkitx.nbt.NBTOutputStream;
+import com.nukkitx.nbt.NbtMap;
+import com.nukkitx.nbt.NbtMapBuilder;
 import com.nukkitx.nbt.NbtUtils;
 import com.nukkitx.network.VarInts;
+import com.nukkitx.protocol.bedrock.BedrockSession;
 import com.nukkitx.protocol.bedrock.packet.LevelChunkPacket;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
-import io.netty.buffer.Unpooled;
 import lombok.NonNull;
 import lombok.Synchronized;
 import lombok.extern.log4j.Log4j2;
@@ -22,7 +25,9 @@ import org.cloudburstmc.server.level.BlockUpdate;
 import org.cloudburstmc.server.level.ChunkLoader;
 import org.cloudburstmc.server.level.Level;
 import org.cloudburstmc.server.level.chunk.bitarray.BitArrayVersion;
+import org.cloudburstmc.server.network.BatchEncoder;
 import org.cloudburstmc.server.player.Player;
+import org.cloudburstmc.server.utils.BlockUpdateEntry;
 import org.cloudburstmc.server.utils.ChunkException;
 
 import javax.annotation.Nonnull;
@@ -31,7 +36,6 @@ import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.Closeable;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -50,6 +54,8 @@ public final class Chunk implements IChunk, Closeable {
 
     private static final ChunkSection EMPTY = new ChunkSection(new BlockStorage[]{new BlockStorage(BitArrayVersion.V1)});
 
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
     private final Lock readLock; //avoid pointer chasing and an additional interface method call
     private final Lock writeLock;
 
@@ -59,7 +65,7 @@ public final class Chunk implements IChunk, Closeable {
 
     private final Set<Player> playerLoaders = Collections.newSetFromMap(new IdentityHashMap<>());
 
-    private SoftReference<LevelChunkPacket> cached = null;
+    private volatile byte[] cachedBlockEntities;
 
     private Collection<ChunkDataLoader> chunkDataLoaders;
 
@@ -139,6 +145,49 @@ public final class Chunk implements IChunk, Closeable {
         }
     }
 
+    /**
+     * Puts the sections which contain random tickable blocks into the given array and leaves the others null, without
+     * copying the section array of the chunk.
+     *
+     * @param sections array of at least {@link #SECTION_COUNT} sections to fill
+     * @return whether any section has random tickable blocks
+     * @see ChunkSection#hasRandomTickables()
+     */
+    public boolean getRandomTickSections(ChunkSection[] sections) {
+        boolean any = false;
+        this.readLock.lock();
+        try {
+            ChunkSection[] unsafeSections = unsafe.getSections();
+            for (int y = 0; y < SECTION_COUNT; y++) {
+                ChunkSection section = unsafeSections[y];
+                if (section != null && section.hasRandomTickables()) {
+                    sections[y] = section;
+                    any = true;
+                } else {
+                    sections[y] = null;
+                }
+            }
+        } finally {
+            this.readLock.unlock();
+        }
+        return any;
+    }
+
+    /**
+     * Copies the sections of the chunk into the array, which is cheaper than {@link #getSections()} for callers which
+     * reuse the array. Sections without blocks may be null.
+     *
+     * @param sections array of at least {@link #SECTION_COUNT} sections to fill
+     */
+    public void copySections(ChunkSection[] sections) {
+        this.readLock.lock();
+        try {
+            System.arraycopy(unsafe.getSections(), 0, sections, 0, SECTION_COUNT);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
     @Nonnull
     @Override
     public ChunkSection[] getSections() {
@@ -385,15 +434,25 @@ public final class Chunk implements IChunk, Closeable {
         }
     }
 
-    @Synchronized("loaders")
     public void removeLoader(ChunkLoader chunkLoader) {
         Preconditions.checkNotNull(chunkLoader, "chunkLoader");
-        this.loaders.remove(chunkLoader);
-        if (chunkLoader instanceof Player) {
-            this.playerLoaders.remove(chunkLoader);
+        boolean empty;
+        synchronized (this.loaders) {
+            empty = this.loaders.remove(chunkLoader) && this.loaders.isEmpty();
+            if (chunkLoader instanceof Player) {
+                this.playerLoaders.remove(chunkLoader);
+            }
+        }
+        if (empty) {
+            this.getLevel().getChunkManager().queueUnload(this.getX(), this.getZ());
         }
     }
 
+    @Synchronized("loaders")
+    public boolean hasLoaders() {
+        return !this.loaders.isEmpty();
+    }
+
     @Nonnull
     @Synchronized("loaders")
     public Set<ChunkLoader> getLoaders() {
@@ -407,18 +466,84 @@ public final class Chunk implements IChunk, Closeable {
     }
 
 
-    private synchronized void clearCache() {
-        // Clear cached packet
-        if (this.cached != null) {
-            LevelChunkPacket packet = this.cached.get();
-            this.cached = null;
-        }
+    private void clearCache() {
+        // Clear cached payload and batch, unchanged sections stay cached
+        this.getPacketCache().invalidatePayload(this);
     }
 
     public void tick(int tick) {
         //todo
     }
 
+    /**
+     * Drops unused block palette entries and shrinks the block storages of all sections.
+     */
+    public void compact() {
+        this.writeLock.lock();
+        try {
+            for (ChunkSection section : this.unsafe.getSections()) {
+                if (section != null) {
+                    section.compact();
+                }
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the persistent data of this chunk so that it can be saved without holding the chunk's lock. Only the
+     * block storages and 2D arrays are copied while the read lock is held; block entity and entity tags are built
+     * afterwards on the calling thread.
+     *
+     * @return snapshot of this chunk
+     */
+    @Nonnull
+    public ChunkSnapshot createSnapshot() {
+        ChunkSection[] sections = new ChunkSection[SECTION_COUNT];
+        int[] heightMap;
+        byte[] biomes;
+        int state;
+        List<BlockEntity> blockEntities;
+        List<Entity> entities;
+
+        try (Timing ignored = unsafe.getLevel().timings.syncChunkSaveSnapshotTimer.startTiming()) {
+            this.readLock.lock();
+            try {
+                ChunkSection[] unsafeSections = this.unsafe.getSections();
+                for (int i = 0; i < SECTION_COUNT; i++) {
+                    if (unsafeSections[i] != null) {
+                        sections[i] = unsafeSections[i].copy();
+                    }
+                }
+                heightMap = this.unsafe.getHeightMapArray().clone();
+                biomes = this.unsafe.getBiomeArray().clone();
+                state = this.unsafe.getState();
+                blockEntities = new ArrayList<>(this.unsafe.getBlockEntities());
+                entities = new ArrayList<>(this.unsafe.getEntities());
+            } finally {
+                this.readLock.unlock();
+            }
+        }
+
+        List<NbtMap> blockEntityTags = new ArrayList<>(blockEntities.size());
+        for (BlockEntity blockEntity : blockEntities) {
+            blockEntityTags.add(blockEntity.getServerTag());
+        }
+        List<NbtMap> entityTags = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            NbtMapBuilder tag = NbtMap.builder();
+            entity.saveAdditionalData(tag);
+            entityTags.add(tag.build());
+        }
+
+        Level level = this.unsafe.getLevel();
+        List<BlockUpdateEntry> blockUpdates = level.getUpdateScheduler().getChunkUpdates(this.getX(), this.getZ());
+
+        return new ChunkSnapshot(this.getX(), this.getZ(), state, sections, heightMap, biomes, blockEntityTags,
+                entityTags, blockUpdates, level.getCurrentTick());
+    }
+
     public LockableChunk readLockable() {
         return this.readLockable;
     }
@@ -436,7 +561,8 @@ public final class Chunk implements IChunk, Closeable {
         } finally {
             this.writeLock.unlock();
         }
-        this.clearCache();
+        // All sections are replaced, so none of the cached encodings can be reused
+        this.getPacketCache().invalidate(this);
     }
 
     @Override
@@ -447,7 +573,8 @@ public final class Chunk implements IChunk, Closeable {
         } finally {
             this.writeLock.unlock();
         }
-        this.clearCache();
+        // Drop the whole entry, which references the chunk and its sections
+        this.getPacketCache().invalidate(this);
     }
 
 //    private static class CacheSoftReference extends FinalizableSoftReference<LevelChunkPacket> {
@@ -533,23 +660,92 @@ public final class Chunk implements IChunk, Closeable {
     }
 
     @Nonnull
-    public synchronized LevelChunkPacket createChunkPacket() {
+    public LevelChunkPacket createChunkPacket() {
+        LevelChunkPacket packet = new LevelChunkPacket();
+        packet.setChunkX(this.getX());
+        packet.setChunkZ(this.getZ());
+
+        if (this.getX() > -2 && this.getX() < 2 && this.getZ() > -2 && this.getZ() < 2) { // Earth doesnt like too much going on
+            ByteBuf payload = this.getNetworkPayload();
+            try {
+                byte[] data = new byte[payload.readableBytes()];
+                payload.readBytes(data);
+                packet.setData(data);
+            } finally {
+                payload.release();
+            }
+        } else {
+            packet.setData(EMPTY_BYTES);
+        }
+        return packet;
+    }
+
+    /**
+     * Returns a compressed batch containing the {@link LevelChunkPacket} of this chunk encoded for the given session.
+     * The batch is shared between all viewers using the same codec while the chunk is unchanged.
+     *
+     * @param session session the batch is encoded for
+     * @return compressed batch, must be released by the caller
+     */
+    @Nonnull
+    public ByteBuf createChunkBatch(BedrockSession session) {
+        this.checkCache();
+        ChunkPacketCache cache = this.getPacketCache();
+        ByteBuf batch = cache.getBatch(this, session.getPacketCodec());
+        if (batch == null) {
+            int compressionLevel = this.getLevel().getServer().getConfig().getNetwork().getCompressionLevel();
+            batch = BatchEncoder.encode(session, this.createChunkPacket(), compressionLevel);
+            cache.putBatch(this, session.getPacketCodec(), batch);
+        }
+        return batch;
+    }
+
+    private ByteBuf getNetworkPayload() {
+        this.checkCache();
+        ChunkPacketCache cache = this.getPacketCache();
+        ByteBuf payload = cache.getPayload(this);
+        if (payload == null) {
+            payload = this.encodeNetworkPayload(cache, cache.allocate());
+            cache.putPayload(this, payload);
+        }
+        return payload;
+    }
+
+    private void checkCache() {
         if (UnsafeChunk.CLEAR_CACHE_FIELD.compareAndSet(unsafe, 1, 0)) {
             this.clearCache();
         }
-        if (this.cached != null) {
-            LevelChunkPacket packet = this.cached.get();
-            if (packet != null) {
-                return packet;
-            } else {
-                this.cached = null;
-            }
+    }
+
+    private ChunkPacketCache getPacketCache() {
+        return this.getLevel().getServer().getLevelManager().getChunkPacketCache();
+    }
+
+    private byte[] encodeBlockEntities() throws IOException {
+        Collection<BlockEntity> tiles = unsafe.getBlockEntities();
+        if (tiles.isEmpty()) {
+            return EMPTY_BYTES;
         }
 
-        LevelChunkPacket packet = new LevelChunkPacket();
-        packet.setChunkX(this.getX());
-        packet.setChunkZ(this.getZ());
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            try (ByteBufOutputStream stream = new ByteBufOutputStream(buffer);
+                 NBTOutputStream nbtOutputStream = NbtUtils.createNetworkWriter(stream)) {
+                for (BlockEntity blockEntity : tiles) {
+                    if (blockEntity.isSpawnable()) {
+                        nbtOutputStream.writeTag(blockEntity.getChunkTag());
+                    }
+                }
+            }
+            byte[] data = new byte[buffer.readableBytes()];
+            buffer.readBytes(data);
+            return data;
+        } finally {
+            buffer.release();
+        }
+    }
 
+    private ByteBuf encodeNetworkPayload(ChunkPacketCache cache, ByteBuf buffer) {
         this.readLock.lock();
         try {
             ChunkSection[] sections = unsafe.getSections();
@@ -567,66 +763,46 @@ public final class Chunk implements IChunk, Closeable {
                 }
             }
 
-            //packet.setSubChunksLength(subChunkCount);
-
-            ByteBuf buffer = Unpooled.buffer();
-
             buffer.writeByte(subChunkCount);
 
-
-            try {
-                for (int i = 0; i < subChunkCount; i++) {
-                    networkSections[i].writeToNetwork(buffer);
-                }
-
-                //for (int height: unsafe.getHeightMapArray()) {
-                //    buffer.writeByte(height);
-                //}
-                //buffer.writeBytes(new byte[256]);
-
-                buffer.writeBytes(unsafe.getBiomeArray()); // Biomes - 256 bytes
-                buffer.writeByte(0); // Border blocks size - Education Edition only
-
-                // Extra Data length. Replaced by second block layer.
-                VarInts.writeUnsignedInt(buffer, 0);
-
-                Collection<BlockEntity> tiles = unsafe.getBlockEntities();
-                // Block entities
-                if (!tiles.isEmpty()) {
-                    try (ByteBufOutputStream stream = new ByteBufOutputStream(buffer);
-                         NBTOutputStream nbtOutputStream = NbtUtils.createNetworkWriter(stream)) {
-                        tiles.forEach(blockEntity -> {
-                            if (blockEntity.isSpawnable()) {
-                                try {
-                                    nbtOutputStream.writeTag(blockEntity.getChunkTag());
-                                } catch (IOException e) {
-                                    throw new RuntimeException(e);
-                                }
-                            }
-                        });
-                    }
+            byte[][] encodedSections = cache.getSections(this, networkSections);
+            int[] versions = new int[subChunkCount];
+            boolean changed = false;
+            for (int i = 0; i < subChunkCount; i++) {
+                versions[i] = networkSections[i].getVersion();
+                if (encodedSections[i] == null) {
+                    encodedSections[i] = networkSections[i].encodeNetwork();
+                    changed = true;
                 }
+                buffer.writeBytes(encodedSections[i]);
+            }
+            if (changed) {
+                cache.putSections(this, networkSections, versions, encodedSections);
+            }
 
-                byte[] data = new byte[buffer.readableBytes()];
-                buffer.readBytes(data);
+            //for (int height: unsafe.getHeightMapArray()) {
+            //    buffer.writeByte(height);
+            //}
+            //buffer.writeBytes(new byte[256]);
 
-                packet.setData(data);
+            buffer.writeBytes(unsafe.getBiomeArray()); // Biomes - 256 bytes
+            buffer.writeByte(0); // Border blocks size - Education Edition only
 
-                this.cached = new SoftReference<>(packet);
+            // Extra Data length. Replaced by second block layer.
+            VarInts.writeUnsignedInt(buffer, 0);
 
-                if (this.getX() > -2 && this.getX() < 2 && this.getZ() > -2 && this.getZ() < 2) // Earth doesnt like too much going on
-                return packet;
-                else {
-                    packet.setData(new byte[0]);
-                    return packet;
-                }
-            } catch (IOException e) {
-                log.error("Error whilst encoding chunk", e);
-                this.cached = null;
-                throw new ChunkException("Unable to create chunk packet", e);
-            } finally {
-                buffer.release();
+            // Block entities
+            byte[] blockEntities = this.cachedBlockEntities;
+            if (UnsafeChunk.CLEAR_BLOCK_ENTITY_CACHE_FIELD.compareAndSet(unsafe, 1, 0) || blockEntities == null) {
+                blockEntities = this.encodeBlockEntities();
+                this.cachedBlockEntities = blockEntities;
             }
+            buffer.writeBytes(blockEntities);
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            log.error("Error whilst encoding chunk", e);
+            throw new ChunkException("Unable to create chunk packet", e);
         } finally {
             this.readLock.unlock();
         }
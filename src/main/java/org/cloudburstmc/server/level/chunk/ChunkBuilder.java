@@ -37,6 +37,10 @@ public class ChunkBuilder {
         return z;
     }
 
+    public Level getLevel() {
+        return level;
+    }
+
     public ChunkBuilder sections(ChunkSection[] sections) {
         this.sections = Preconditions.checkNotNull(sections, "sections");
         return this;
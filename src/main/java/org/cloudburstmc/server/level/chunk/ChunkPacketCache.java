@@ -0,0 +1,235 @@
+package org.cloudburstmc.server.level.chunk;
+
+import com.google.common.base.Preconditions;
+import com.nukkitx.protocol.bedrock.BedrockPacketCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.extern.log4j.Log4j2;
+import org.cloudburstmc.server.CloudServer;
+import org.cloudburstmc.server.config.ServerConfig;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the encoded network payload of chunks, the encoding of each of their sections and, if {@link ServerConfig.ChunkSending#isCacheChunks()} is enabled, a
+ * compressed batch of their {@link com.nukkitx.protocol.bedrock.packet.LevelChunkPacket} that can be shared by every
+ * viewer. Buffers are pooled and the total size is bounded by {@link ServerConfig.ChunkSending#getCacheSize()}; the
+ * least recently used chunks are evicted first.
+ * <p>
+ * Section encodings outlive {@link #invalidatePayload(Chunk)} so that a chunk column only re-encodes the sections
+ * which changed. They are matched to the section instance and its {@link ChunkSection#getVersion() version}.
+ * <p>
+ * Buffers returned by this cache are retained duplicates and must be released by the caller.
+ */
+@Log4j2
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class ChunkPacketCache {
+
+    private final CloudServer server;
+    private final Map<Chunk, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long size;
+
+    public ChunkPacketCache(CloudServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Allocates a buffer to encode a chunk payload into.
+     *
+     * @return pooled buffer
+     */
+    public ByteBuf allocate() {
+        if (this.getConfig().isCacheDirect()) {
+            return ByteBufAllocator.DEFAULT.directBuffer();
+        }
+        return ByteBufAllocator.DEFAULT.heapBuffer();
+    }
+
+    @Nullable
+    public synchronized ByteBuf getPayload(Chunk chunk) {
+        Entry entry = this.entries.get(chunk);
+        return entry == null || entry.payload == null ? null : entry.payload.retainedDuplicate();
+    }
+
+    @Nullable
+    public synchronized ByteBuf getBatch(Chunk chunk, BedrockPacketCodec codec) {
+        Entry entry = this.entries.get(chunk);
+        if (entry == null || entry.batch == null || entry.codec != codec) {
+            return null;
+        }
+        return entry.batch.retainedDuplicate();
+    }
+
+    /**
+     * Stores the encoded payload of a chunk. The cache takes its own reference to the buffer.
+     *
+     * @param chunk   chunk
+     * @param payload encoded payload
+     */
+    public synchronized void putPayload(Chunk chunk, ByteBuf payload) {
+        Entry entry = this.entries.computeIfAbsent(chunk, c -> new Entry());
+        if (entry.payload != null) {
+            this.size -= entry.payload.readableBytes();
+            entry.payload.release();
+        }
+        entry.payload = payload.retainedDuplicate();
+        this.size += payload.readableBytes();
+        this.trim();
+    }
+
+    /**
+     * Stores the compressed batch of a chunk. The cache takes its own reference to the buffer. Nothing is stored if
+     * batch caching is disabled.
+     *
+     * @param chunk chunk
+     * @param codec codec the batch was encoded with
+     * @param batch compressed batch
+     */
+    public synchronized void putBatch(Chunk chunk, BedrockPacketCodec codec, ByteBuf batch) {
+        if (!this.getConfig().isCacheChunks()) {
+            return;
+        }
+        Entry entry = this.entries.computeIfAbsent(chunk, c -> new Entry());
+        if (entry.batch != null) {
+            this.size -= entry.batch.readableBytes();
+            entry.batch.release();
+        }
+        entry.codec = codec;
+        entry.batch = batch.retainedDuplicate();
+        this.size += batch.readableBytes();
+        this.trim();
+    }
+
+    /**
+     * Returns the cached encodings of the sections of a chunk. An element is null if its section was not encoded or
+     * changed since.
+     *
+     * @param chunk    chunk
+     * @param sections sections to look up
+     * @return encoding of each section
+     */
+    public synchronized byte[][] getSections(Chunk chunk, ChunkSection[] sections) {
+        byte[][] encoded = new byte[sections.length][];
+        Entry entry = this.entries.get(chunk);
+        if (entry == null || entry.sections == null) {
+            return encoded;
+        }
+        int length = Math.min(sections.length, entry.sections.length);
+        for (int i = 0; i < length; i++) {
+            if (entry.sectionOwners[i] == sections[i] && entry.sectionVersions[i] == sections[i].getVersion()) {
+                encoded[i] = entry.sections[i];
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Stores the encodings of the sections of a chunk, replacing all previously stored ones.
+     *
+     * @param chunk    chunk
+     * @param sections sections which were encoded
+     * @param versions version of each section when it was encoded
+     * @param encoded  encoding of each section
+     */
+    public synchronized void putSections(Chunk chunk, ChunkSection[] sections, int[] versions, byte[][] encoded) {
+        Preconditions.checkArgument(sections.length == versions.length && sections.length == encoded.length,
+                "Sections, versions and encodings differ in length");
+        Entry entry = this.entries.computeIfAbsent(chunk, c -> new Entry());
+        this.size -= entry.sectionBytes;
+        entry.sectionOwners = sections.clone();
+        entry.sectionVersions = versions.clone();
+        entry.sections = encoded.clone();
+        long sectionBytes = 0;
+        for (byte[] section : encoded) {
+            sectionBytes += section.length;
+        }
+        entry.sectionBytes = sectionBytes;
+        this.size += sectionBytes;
+        this.trim();
+    }
+
+    /**
+     * Drops the payload and batch of a chunk but keeps the encodings of its sections.
+     *
+     * @param chunk chunk
+     */
+    public synchronized void invalidatePayload(Chunk chunk) {
+        Entry entry = this.entries.get(chunk);
+        if (entry != null) {
+            this.size -= entry.releasePayload();
+        }
+    }
+
+    public synchronized void invalidate(Chunk chunk) {
+        Entry entry = this.entries.remove(chunk);
+        if (entry != null) {
+            this.size -= entry.release();
+        }
+    }
+
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : this.entries.values()) {
+            entry.release();
+        }
+        this.entries.clear();
+        this.size = 0;
+    }
+
+    private void trim() {
+        long maxSize = this.getConfig().getCacheSize() * 1024L * 1024L;
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (this.size > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            this.size -= entry.release();
+        }
+    }
+
+    private ServerConfig.ChunkSending getConfig() {
+        return this.server.getConfig().getChunkSending();
+    }
+
+    private static class Entry {
+        private ByteBuf payload;
+        private ByteBuf batch;
+        private BedrockPacketCodec codec;
+        private ChunkSection[] sectionOwners;
+        private int[] sectionVersions;
+        private byte[][] sections;
+        private long sectionBytes;
+
+        private long release() {
+            long released = this.releasePayload() + this.sectionBytes;
+            this.sectionOwners = null;
+            this.sectionVersions = null;
+            this.sections = null;
+            this.sectionBytes = 0;
+            return released;
+        }
+
+        private long releasePayload() {
+            long released = 0;
+            if (this.payload != null) {
+                released += this.payload.readableBytes();
+                this.payload.release();
+                this.payload = null;
+            }
+            if (this.batch != null) {
+                released += this.batch.readableBytes();
+                this.batch.release();
+                this.batch = null;
+            }
+            return released;
+        }
+    }
+}
@@ -2,9 +2,16 @@ package org.cloudburstmc.server.level.chunk;
 
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.cloudburstmc.server.block.BlockIds;
 import org.cloudburstmc.server.block.BlockState;
+import org.cloudburstmc.server.utils.Identifier;
 import org.cloudburstmc.server.utils.NibbleArray;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 import static com.google.common.base.Preconditions.checkElementIndex;
 
 public class ChunkSection {
@@ -12,9 +19,43 @@ public class ChunkSection {
     public static final int CHUNK_SECTION_VERSION = 8; // 1 works, 7/8 a little buggy (needs testing)
     public static final int SIZE = 4096;
 
+    // The blocks that can randomly tick
+    private static final Set<Identifier> RANDOM_TICK_BLOCKS = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    static {
+        RANDOM_TICK_BLOCKS.add(BlockIds.GRASS);
+        RANDOM_TICK_BLOCKS.add(BlockIds.FARMLAND);
+        RANDOM_TICK_BLOCKS.add(BlockIds.MYCELIUM);
+        RANDOM_TICK_BLOCKS.add(BlockIds.SAPLING);
+        RANDOM_TICK_BLOCKS.add(BlockIds.LEAVES);
+        RANDOM_TICK_BLOCKS.add(BlockIds.LEAVES2);
+        RANDOM_TICK_BLOCKS.add(BlockIds.SNOW_LAYER);
+        RANDOM_TICK_BLOCKS.add(BlockIds.ICE);
+        RANDOM_TICK_BLOCKS.add(BlockIds.FLOWING_LAVA);
+        RANDOM_TICK_BLOCKS.add(BlockIds.LAVA);
+        RANDOM_TICK_BLOCKS.add(BlockIds.CACTUS);
+        RANDOM_TICK_BLOCKS.add(BlockIds.BEETROOT);
+        RANDOM_TICK_BLOCKS.add(BlockIds.CARROTS);
+        RANDOM_TICK_BLOCKS.add(BlockIds.POTATOES);
+        RANDOM_TICK_BLOCKS.add(BlockIds.MELON_STEM);
+        RANDOM_TICK_BLOCKS.add(BlockIds.PUMPKIN_STEM);
+        RANDOM_TICK_BLOCKS.add(BlockIds.WHEAT);
+        RANDOM_TICK_BLOCKS.add(BlockIds.REEDS);
+        RANDOM_TICK_BLOCKS.add(BlockIds.RED_MUSHROOM);
+        RANDOM_TICK_BLOCKS.add(BlockIds.BROWN_MUSHROOM);
+        RANDOM_TICK_BLOCKS.add(BlockIds.NETHER_WART_BLOCK);
+        RANDOM_TICK_BLOCKS.add(BlockIds.FIRE);
+        RANDOM_TICK_BLOCKS.add(BlockIds.LIT_REDSTONE_ORE);
+        RANDOM_TICK_BLOCKS.add(BlockIds.COCOA);
+    }
+
     private final BlockStorage[] storage;
     private final NibbleArray blockLight;
     private final NibbleArray skyLight;
+    /**
+     * Incremented whenever a block changes, so that cached network encodings of this section can be told apart.
+     */
+    private volatile int version;
 
     public ChunkSection() {
         this(new BlockStorage[]{new BlockStorage(), new BlockStorage()}, new NibbleArray(SIZE),
@@ -43,6 +84,10 @@ public class ChunkSection {
         this.skyLight = skyLight;
     }
 
+    public static boolean isRandomTickable(BlockState state) {
+        return RANDOM_TICK_BLOCKS.contains(state.getType());
+    }
+
     public static int blockIndex(int x, int y, int z) {
         return (x << 8) | (z << 4) | y;
     }
@@ -67,6 +112,16 @@ public class ChunkSection {
         checkBounds(x, y, z);
         checkLayer(layer);
         this.storage[layer].setBlock(blockIndex(x, y, z), blockState);
+        this.version++;
+    }
+
+    /**
+     * Whether any block of the first layer is ticked randomly. Random ticks skip sections without any.
+     *
+     * @return whether the section has random tickable blocks
+     */
+    public boolean hasRandomTickables() {
+        return this.storage[0].getRandomTickableCount() > 0;
     }
 
     public byte getSkyLight(int x, int y, int z) {
@@ -89,6 +144,15 @@ public class ChunkSection {
         this.blockLight.set(blockIndex(x, y, z), val);
     }
 
+    /**
+     * Version of the blocks of this section. Changes whenever a block is set.
+     *
+     * @return version
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
     public void writeToNetwork(ByteBuf buffer) {
         buffer.writeByte(CHUNK_SECTION_VERSION);
         buffer.writeByte(this.storage.length);
@@ -97,6 +161,23 @@ public class ChunkSection {
         }
     }
 
+    /**
+     * Encodes this section for the network into a new array.
+     *
+     * @return encoded section
+     */
+    public byte[] encodeNetwork() {
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            this.writeToNetwork(buffer);
+            byte[] encoded = new byte[buffer.readableBytes()];
+            buffer.readBytes(encoded);
+            return encoded;
+        } finally {
+            buffer.release();
+        }
+    }
+
     public NibbleArray getSkyLightArray() {
         return skyLight;
     }
@@ -118,11 +199,22 @@ public class ChunkSection {
         return true;
     }
 
+    /**
+     * Compacts the palettes of all block storages. The network encoding stays valid as the blocks do not change.
+     *
+     * @see BlockStorage#compact()
+     */
+    public void compact() {
+        for (BlockStorage blockStorage : this.storage) {
+            blockStorage.compact();
+        }
+    }
+
     public ChunkSection copy() {
         BlockStorage[] storage = new BlockStorage[this.storage.length];
         for (int i = 0; i < storage.length; i++) {
             storage[i] = this.storage[i].copy();
         }
-        return new ChunkSection(storage, skyLight.copy(), blockLight.copy());
+        return new ChunkSection(storage, blockLight.copy(), skyLight.copy());
     }
 }
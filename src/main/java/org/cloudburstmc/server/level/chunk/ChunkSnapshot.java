@@ -0,0 +1,70 @@
+package org.cloudburstmc.server.level.chunk;
+
+import com.nukkitx.nbt.NbtMap;
+import lombok.Getter;
+import org.cloudburstmc.server.utils.BlockUpdateEntry;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * Copy of the persistent data of a {@link Chunk} at one point in time. Taking a snapshot only copies the block
+ * storages under the chunk's read lock, so serialization and compression can happen on another thread without
+ * blocking writers to the chunk.
+ *
+ * @see Chunk#createSnapshot()
+ */
+@Getter
+@Immutable
+@ParametersAreNonnullByDefault
+public final class ChunkSnapshot {
+
+    private final int x;
+    private final int z;
+    private final int state;
+    private final ChunkSection[] sections;
+    private final int[] heightMap;
+    private final byte[] biomes;
+    private final List<NbtMap> blockEntities;
+    private final List<NbtMap> entities;
+    private final List<BlockUpdateEntry> blockUpdates;
+    /**
+     * Level tick the snapshot was taken at, which the due ticks of the {@link #blockUpdates} are relative to.
+     */
+    private final long currentTick;
+
+    ChunkSnapshot(int x, int z, int state, ChunkSection[] sections, int[] heightMap, byte[] biomes,
+                  List<NbtMap> blockEntities, List<NbtMap> entities, List<BlockUpdateEntry> blockUpdates,
+                  long currentTick) {
+        this.x = x;
+        this.z = z;
+        this.state = state;
+        this.sections = sections;
+        this.heightMap = heightMap;
+        this.biomes = biomes;
+        this.blockEntities = blockEntities;
+        this.entities = entities;
+        this.blockUpdates = blockUpdates;
+        this.currentTick = currentTick;
+    }
+
+    @Nullable
+    public ChunkSection getSection(int y) {
+        return this.sections[y];
+    }
+
+    /**
+     * Compacts the copied sections. This does not affect the chunk the snapshot was taken of.
+     *
+     * @see ChunkSection#compact()
+     */
+    public void compact() {
+        for (ChunkSection section : this.sections) {
+            if (section != null) {
+                section.compact();
+            }
+        }
+    }
+}
@@ -32,6 +32,8 @@ public final class UnsafeChunk implements IChunk, Closeable {
             .newUpdater(UnsafeChunk.class, "closed");
     static final AtomicIntegerFieldUpdater<UnsafeChunk> CLEAR_CACHE_FIELD = AtomicIntegerFieldUpdater
             .newUpdater(UnsafeChunk.class, "clearCache");
+    static final AtomicIntegerFieldUpdater<UnsafeChunk> CLEAR_BLOCK_ENTITY_CACHE_FIELD = AtomicIntegerFieldUpdater
+            .newUpdater(UnsafeChunk.class, "clearBlockEntityCache");
 
     private final int x;
 
@@ -61,6 +63,8 @@ public final class UnsafeChunk implements IChunk, Closeable {
 
     private volatile int clearCache;
 
+    private volatile int clearBlockEntityCache = 1;
+
     public UnsafeChunk(int x, int z, Level level) {
         this.x = x;
         this.z = z;
@@ -110,7 +114,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
         if (section == null) {
             section = new ChunkSection();
             this.sections[y] = section;
-            this.setDirty();
+            this.setStorageDirty();
         }
         return section;
     }
@@ -164,7 +168,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
         }
 
         section.setBlock(x, y & 0xf, z, layer, blockState);
-        this.setDirty();
+        this.setBlocksDirty();
     }
 
     @Override
@@ -180,7 +184,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
         int oldBiome = this.biomes[index] & 0xf;
         if (oldBiome != biome) {
             this.biomes[index] = (byte) biome;
-            this.setDirty();
+            this.setBlocksDirty();
         }
     }
 
@@ -195,7 +199,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
     public void setSkyLight(int x, int y, int z, int level) {
         checkBounds(x, y, z);
         this.getOrCreateSection(y >> 4).setSkyLight(x, y & 0xf, z, (byte) level);
-        setDirty();
+        setStorageDirty();
     }
 
     @Override
@@ -209,7 +213,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
     public void setBlockLight(int x, int y, int z, int level) {
         checkBounds(x, y, z);
         this.getOrCreateSection(y >> 4).setBlockLight(x, y & 0xf, z, (byte) level);
-        setDirty();
+        setStorageDirty();
     }
 
     @Override
@@ -247,7 +251,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
         if (entity instanceof Player) {
             this.players.add((Player) entity);
         } else if (this.entities.add(entity) && this.initialized == 1) {
-            this.setDirty();
+            this.setStorageDirty();
         }
     }
 
@@ -257,7 +261,7 @@ public final class UnsafeChunk implements IChunk, Closeable {
         if (entity instanceof Player) {
             this.players.remove(entity);
         } else if (this.entities.remove(entity) && this.initialized == 1) {
-            this.setDirty();
+            this.setStorageDirty();
         }
     }
 
@@ -378,11 +382,29 @@ public final class UnsafeChunk implements IChunk, Closeable {
     @Override
     public void setDirty(boolean dirty) {
         if (dirty) {
+            CLEAR_BLOCK_ENTITY_CACHE_FIELD.set(this, 1);
             CLEAR_CACHE_FIELD.set(this, 1);
         }
         DIRTY_FIELD.set(this, dirty ? 1 : 0);
     }
 
+    /**
+     * Marks the chunk as needing to be saved and its network payload as stale. Block storages keep track of their own
+     * encoded sections, so the cached block entity data is kept.
+     */
+    private void setBlocksDirty() {
+        CLEAR_CACHE_FIELD.set(this, 1);
+        DIRTY_FIELD.set(this, 1);
+    }
+
+    /**
+     * Marks the chunk as needing to be saved without touching the network cache, for data that is not sent to clients
+     * with the chunk such as light and entities.
+     */
+    private void setStorageDirty() {
+        DIRTY_FIELD.set(this, 1);
+    }
+
     @Override
     public boolean clearDirty() {
         return this.state >= STATE_GENERATED && DIRTY_FIELD.compareAndSet(this, 1, 0);
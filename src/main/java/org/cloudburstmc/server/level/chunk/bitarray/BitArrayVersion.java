@@ -1,5 +1,7 @@
 package org.cloudburstmc.server.level.chunk.bitarray;
 
+import com.google.common.base.Preconditions;
+
 public enum BitArrayVersion {
     V16(16, 2, null),
     V8(8, 4, V16),
@@ -8,7 +10,8 @@ public enum BitArrayVersion {
     V4(4, 8, V5),
     V3(3, 10, V4), // 2 bit padding
     V2(2, 16, V3),
-    V1(1, 32, V2);
+    V1(1, 32, V2),
+    V0(0, 0, V1); // single value, no words
 
     final byte bits;
     final byte entriesPerWord;
@@ -40,6 +43,9 @@ public enum BitArrayVersion {
     }
 
     public int getWordsForSize(int size) {
+        if (this == V0) {
+            return 0;
+        }
         return (size / entriesPerWord) + (size % entriesPerWord == 0 ? 0 : 1);
     }
 
@@ -52,7 +58,10 @@ public enum BitArrayVersion {
     }
 
     public BitArray createPalette(int size, int[] words) {
-        if (this == V3 || this == V5 || this == V6) {
+        if (this == V0) {
+            Preconditions.checkArgument(words.length == 0, "Single value palettes have no words");
+            return new SingleValueBitArray(size);
+        } else if (this == V3 || this == V5 || this == V6) {
             // Padded palettes aren't able to use bitwise operations due to their padding.
             return new PaddedBitArray(this, size, words);
         } else {
@@ -37,7 +37,7 @@ public class PaddedBitArray implements BitArray {
     public void set(int index, int value) {
         Preconditions.checkElementIndex(index, this.size);
         Preconditions.checkArgument(value >= 0 && value <= this.version.maxEntryValue,
-                "Max value: %s. Received value", this.version.maxEntryValue, value);
+                "Max value: %s. Received value %s", this.version.maxEntryValue, value);
         int arrayIndex = index / this.version.entriesPerWord;
         int offset = (index % this.version.entriesPerWord) * this.version.bits;
 
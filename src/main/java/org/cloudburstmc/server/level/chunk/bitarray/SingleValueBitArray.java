@@ -0,0 +1,53 @@
+package org.cloudburstmc.server.level.chunk.bitarray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A zero bit array where every entry is {@code 0}, used for storages with a single palette entry. It has no backing
+ * words at all; the owning storage replaces it with a larger version as soon as a second value is needed.
+ */
+public class SingleValueBitArray implements BitArray {
+
+    private static final int[] EMPTY_WORDS = new int[0];
+
+    /**
+     * Number of entries in this palette
+     */
+    private final int size;
+
+    SingleValueBitArray(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public void set(int index, int value) {
+        Preconditions.checkElementIndex(index, this.size);
+        Preconditions.checkArgument(value == 0, "Max value: 0. Received value %s", value);
+    }
+
+    @Override
+    public int get(int index) {
+        Preconditions.checkElementIndex(index, this.size);
+        return 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int[] getWords() {
+        return EMPTY_WORDS;
+    }
+
+    @Override
+    public BitArrayVersion getVersion() {
+        return BitArrayVersion.V0;
+    }
+
+    @Override
+    public BitArray copy() {
+        return this;
+    }
+}
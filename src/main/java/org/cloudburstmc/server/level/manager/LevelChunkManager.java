@@ -4,11 +4,10 @@ import co.aikar.timings.Timing;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.spotify.futures.CompletableFutures;
-import it.unimi.dsi.fastutil.longs.Long2LongMap;
-import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
 import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.message.ParameterizedMessage;
@@ -18,17 +17,20 @@ import org.cloudburstmc.server.level.Level;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.level.chunk.ChunkBuilder;
 import org.cloudburstmc.server.level.provider.LevelProvider;
+import org.cloudburstmc.server.scheduler.ServerExecutor;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 @Log4j2
 @ParametersAreNonnullByDefault
@@ -37,13 +39,34 @@ public final class LevelChunkManager {
     private static final AtomicIntegerFieldUpdater<LoadingChunk> GENERATION_RUNNING_UPDATER = AtomicIntegerFieldUpdater.newUpdater(LoadingChunk.class, "generationRunning");
     private static final AtomicIntegerFieldUpdater<LoadingChunk> POPULATION_RUNNING_UPDATER = AtomicIntegerFieldUpdater.newUpdater(LoadingChunk.class, "populationRunning");
     private static final AtomicIntegerFieldUpdater<LoadingChunk> FINISH_RUNNING_UPDATER = AtomicIntegerFieldUpdater.newUpdater(LoadingChunk.class, "finishRunning");
+    private static final AtomicIntegerFieldUpdater<LoadingChunk> UNLOAD_QUEUED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(LoadingChunk.class, "unloadQueued");
 
     private final Level level;
     private final LevelProvider provider;
-    private final Long2ObjectMap<LoadingChunk> chunks = new Long2ObjectOpenHashMap<>();
-    private final Long2LongMap chunkLoadedTimes = new Long2LongOpenHashMap();
-    private final Long2LongMap chunkLastAccessTimes = new Long2LongOpenHashMap();
-    private final Executor executor;
+    /**
+     * Chunk lookups happen from the main thread, generation workers and network threads at the same time, so the map
+     * must not be guarded by a single monitor. Lookups only lock a stripe of the map; state transitions of a single
+     * chunk are guarded by its {@link LoadingChunk} instead.
+     */
+    private final StripedLong2ObjectMap<LoadingChunk> chunks = new StripedLong2ObjectMap<>();
+    /**
+     * Chunks that may be unloaded, ordered by the time they become eligible. A chunk is queued once it has loaded and
+     * again whenever its last loader leaves. Accesses only move {@link LoadingChunk#lastAccessTime} forward; the new
+     * deadline is picked up when the entry comes due and is re-queued. Guarded by itself.
+     */
+    private final PriorityQueue<LoadingChunk> unloadQueue = new PriorityQueue<>(Comparator.comparingLong((LoadingChunk chunk) -> chunk.unloadDeadline));
+    private final ServerExecutor executor;
+    /**
+     * Chunks requested ahead of time by {@link #prefetchChunk(int, int)} which have not started loading yet, in the
+     * order they were requested. They are only started while generation workers are idle, so chunks which are needed
+     * now overtake them. Guarded by itself.
+     */
+    private final Long2ObjectLinkedOpenHashMap<CompletableFuture<Chunk>> prefetchQueue = new Long2ObjectLinkedOpenHashMap<>();
+    /**
+     * Time spent by asynchronous chunk saves and their count, handed to the timings on the main thread.
+     */
+    private final LongAdder saveTime = new LongAdder();
+    private final LongAdder saveCount = new LongAdder();
 
     public LevelChunkManager(Level level) {
         this(level, level.getProvider());
@@ -51,7 +74,7 @@ public final class LevelChunkManager {
 
     public LevelChunkManager(Level level, LevelProvider provider) {
         this.level = level;
-        this.executor = this.level.getServer().getScheduler().getAsyncPool();
+        this.executor = this.level.getServer().getScheduler().getGenerationExecutor();
         this.provider = provider;
     }
 
@@ -61,7 +84,7 @@ public final class LevelChunkManager {
      * @return chunks
      */
     @Nonnull
-    public synchronized Set<Chunk> getLoadedChunks() {
+    public Set<Chunk> getLoadedChunks() {
         ImmutableSet.Builder<Chunk> chunks = ImmutableSet.builder();
         for (LoadingChunk loadingChunk : this.chunks.values()) {
             Chunk chunk = loadingChunk.getChunk();
@@ -72,7 +95,7 @@ public final class LevelChunkManager {
         return chunks.build();
     }
 
-    public synchronized int getLoadedCount() {
+    public int getLoadedCount() {
         return this.chunks.size();
     }
 
@@ -83,7 +106,7 @@ public final class LevelChunkManager {
      * @return chunk or null
      */
     @Nullable
-    public synchronized Chunk getLoadedChunk(long key) {
+    public Chunk getLoadedChunk(long key) {
         LoadingChunk chunk = this.chunks.get(key);
         return chunk == null ? null : chunk.getChunk();
     }
@@ -96,7 +119,7 @@ public final class LevelChunkManager {
      * @return chunk or null
      */
     @Nullable
-    public synchronized Chunk getLoadedChunk(int x, int z) {
+    public Chunk getLoadedChunk(int x, int z) {
         return getLoadedChunk(Chunk.key(x, z));
     }
 
@@ -130,10 +153,23 @@ public final class LevelChunkManager {
     }
 
     @Nonnull
-    private synchronized CompletableFuture<Chunk> getChunkFuture(int chunkX, int chunkZ, boolean generate, boolean populate, boolean finish) {
+    private CompletableFuture<Chunk> getChunkFuture(int chunkX, int chunkZ, boolean generate, boolean populate, boolean finish) {
         final long chunkKey = Chunk.key(chunkX, chunkZ);
-        this.chunkLastAccessTimes.put(chunkKey, System.currentTimeMillis());
-        LoadingChunk chunk = this.chunks.computeIfAbsent(chunkKey, key -> new LoadingChunk(key, true));
+        LoadingChunk chunk;
+        while (true) {
+            chunk = this.chunks.get(chunkKey);
+            if (chunk == null) {
+                chunk = this.chunks.computeIfAbsent(chunkKey, key -> new LoadingChunk(key, true));
+            }
+            // Unloading happens under the same monitor, so a chunk still mapped here is not closed until it has been
+            // idle again for the unload timeout
+            synchronized (chunk) {
+                if (this.chunks.get(chunkKey) == chunk) {
+                    chunk.lastAccessTime = System.currentTimeMillis();
+                    break;
+                }
+            }
+        }
 
         if (finish) {
             chunk.finish();
@@ -146,16 +182,99 @@ public final class LevelChunkManager {
         return chunk.getFuture();
     }
 
-    public synchronized boolean isChunkLoaded(long hash) {
+    /**
+     * Queues the chunk to be loaded once the generation workers are idle, for chunks which may be needed soon but are
+     * not needed yet. Chunks which are loaded or loading already are not queued.
+     *
+     * @param x chunk x
+     * @param z chunk z
+     * @return chunk future, cancelled if the chunk is dropped by {@link #cancelPrefetch(int, int)}
+     */
+    @Nonnull
+    public CompletableFuture<Chunk> prefetchChunk(int x, int z) {
+        long chunkKey = Chunk.key(x, z);
+        if (this.chunks.get(chunkKey) != null) {
+            return this.getChunkFuture(x, z);
+        }
+        synchronized (this.prefetchQueue) {
+            CompletableFuture<Chunk> future = this.prefetchQueue.get(chunkKey);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                this.prefetchQueue.put(chunkKey, future);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Drops a chunk queued by {@link #prefetchChunk(int, int)} if it has not started loading yet.
+     *
+     * @param x chunk x
+     * @param z chunk z
+     * @return whether the chunk was dropped
+     */
+    public boolean cancelPrefetch(int x, int z) {
+        CompletableFuture<Chunk> future;
+        synchronized (this.prefetchQueue) {
+            future = this.prefetchQueue.remove(Chunk.key(x, z));
+        }
+        return future != null && future.cancel(false);
+    }
+
+    /**
+     * Starts loading the chunks queued by {@link #prefetchChunk(int, int)} for which generation workers are idle. Called
+     * every level tick, as prefetched chunks are only useful for a few seconds.
+     */
+    public void startPrefetches() {
+        LongList keys;
+        List<CompletableFuture<Chunk>> futures;
+        synchronized (this.prefetchQueue) {
+            if (this.prefetchQueue.isEmpty()) {
+                return;
+            }
+            int idle = this.executor.getQueueDepth() > 0 ? 0 :
+                    this.executor.getMaximumPoolSize() - this.executor.getActiveCount();
+            keys = new LongArrayList();
+            futures = new ArrayList<>();
+            LongIterator iterator = this.prefetchQueue.keySet().iterator();
+            while (iterator.hasNext()) {
+                long chunkKey = iterator.nextLong();
+                // Chunks which started loading for another reason are handed over without taking a worker
+                if (this.chunks.get(chunkKey) == null) {
+                    if (idle <= 0) {
+                        continue;
+                    }
+                    idle--;
+                }
+                keys.add(chunkKey);
+                futures.add(this.prefetchQueue.get(chunkKey));
+                iterator.remove();
+            }
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            long chunkKey = keys.getLong(i);
+            CompletableFuture<Chunk> future = futures.get(i);
+            this.getChunkFuture(Chunk.fromKeyX(chunkKey), Chunk.fromKeyZ(chunkKey)).whenComplete((chunk, throwable) -> {
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(chunk);
+                }
+            });
+        }
+    }
+
+    public boolean isChunkLoaded(long hash) {
         LoadingChunk chunk = this.chunks.get(hash);
         return chunk != null && chunk.getChunk() != null;
     }
 
-    public synchronized boolean isChunkLoaded(int x, int z) {
+    public boolean isChunkLoaded(int x, int z) {
         return this.isChunkLoaded(Chunk.key(x, z));
     }
 
-    public synchronized boolean unloadChunk(long hash) {
+    public boolean unloadChunk(long hash) {
         return this.unloadChunk(hash, true, true);
     }
 
@@ -175,51 +294,65 @@ public final class LevelChunkManager {
     }
 
     public boolean unloadChunk(long chunkKey, boolean save, boolean safe) {
-        boolean result = unloadChunk0(chunkKey, save, safe);
-        if (result) {
-            this.chunks.remove(chunkKey);
-        }
-        return result;
-    }
-
-    private synchronized boolean unloadChunk0(long chunkKey, boolean save, boolean safe) {
         LoadingChunk loadingChunk = this.chunks.get(chunkKey);
         if (loadingChunk == null) {
             return false;
         }
         Chunk chunk = loadingChunk.getChunk();
-        if (chunk == null) {
-            return false;
-        }
-        if (!chunk.getLoaders().isEmpty()) {
+        if (chunk == null || chunk.hasLoaders()) {
             return false;
         }
 
-
         try (Timing ignored = this.level.timings.doChunkUnload.startTiming()) {
-            ChunkUnloadEvent chunkUnloadEvent = new ChunkUnloadEvent(chunk);
-            this.level.getServer().getEventManager().fire(chunkUnloadEvent);
-            if (chunkUnloadEvent.isCancelled()) {
+            if (!this.callUnloadEvent(chunk)) {
                 return false;
             }
-
-            if (save) {
-                this.saveChunk(chunk);
+            synchronized (loadingChunk) {
+                return this.unloadChunk0(chunkKey, loadingChunk, chunk, save, safe);
             }
+        }
+    }
 
-            if (safe && !this.level.getChunkPlayers(chunk.getX(), chunk.getZ()).isEmpty()) {
-                return false;
-            }
+    /**
+     * Fires the {@link ChunkUnloadEvent} of a chunk. Listeners may be run on the main thread while this thread waits,
+     * so this must never be called while holding the monitor of a chunk.
+     *
+     * @return whether the chunk may be unloaded
+     */
+    private boolean callUnloadEvent(Chunk chunk) {
+        ChunkUnloadEvent chunkUnloadEvent = new ChunkUnloadEvent(chunk);
+        this.level.getServer().getEventManager().fire(chunkUnloadEvent);
+        return !chunkUnloadEvent.isCancelled();
+    }
+
+    /**
+     * Closes a chunk after its unload event passed. Must be called while holding the monitor of the chunk.
+     */
+    private boolean unloadChunk0(long chunkKey, LoadingChunk loadingChunk, Chunk chunk, boolean save, boolean safe) {
+        // The chunk may have been replaced or used again while the event was fired. It cannot change while its
+        // monitor is held.
+        if (this.chunks.get(chunkKey) != loadingChunk || loadingChunk.getChunk() != chunk || chunk.hasLoaders()) {
+            return false;
+        }
 
-            this.chunkLastAccessTimes.remove(chunkKey);
-            this.chunkLoadedTimes.remove(chunkKey);
+        if (save) {
+            this.saveChunk(chunk);
+        }
 
-            chunk.close();
-            return true;
+        if (safe && !this.level.getChunkPlayers(chunk.getX(), chunk.getZ()).isEmpty()) {
+            return false;
         }
+
+        // Scheduled updates were saved with the chunk and are scheduled again when it loads. They are dropped
+        // while the chunk is still mapped, so the updates of the chunk loading again cannot be dropped instead.
+        this.level.getUpdateScheduler().unloadChunk(chunkKey);
+        this.chunks.remove(chunkKey, loadingChunk);
+
+        chunk.close();
+        return true;
     }
 
-    public synchronized CompletableFuture<Void> saveChunks() {
+    public CompletableFuture<Void> saveChunks() {
         List<CompletableFuture<?>> futures = new ArrayList<>();
         for (LoadingChunk loadingChunk : this.chunks.values()) {
             Chunk chunk = loadingChunk.getChunk();
@@ -236,63 +369,133 @@ public final class LevelChunkManager {
         Preconditions.checkArgument(chunk.getLevel() == this.level,
                 "Chunk is not from this ChunkManager's Level");
         if (chunk.isDirty()) {
-            return this.provider.saveChunk(chunk).exceptionally(throwable -> {
-                log.warn("Unable to save chunk", throwable);
+            long start = System.nanoTime();
+            return this.provider.saveChunk(chunk).handle((v, throwable) -> {
+                this.saveTime.add(System.nanoTime() - start);
+                this.saveCount.increment();
+                if (throwable != null) {
+                    log.warn("Unable to save chunk", throwable);
+                }
                 return null;
             });
         }
         return COMPLETED_VOID_FUTURE;
     }
 
-    public synchronized void tick() {
-        if (this.chunks.isEmpty()) {
-            return;
+    /**
+     * Queues the chunk at the specified coordinates to be unloaded once it has timed out. This is called when the last
+     * loader of a chunk leaves; chunks which still have loaders when they come due are dropped from the queue.
+     *
+     * @param x chunk x
+     * @param z chunk z
+     */
+    public void queueUnload(int x, int z) {
+        LoadingChunk loadingChunk = this.chunks.get(Chunk.key(x, z));
+        if (loadingChunk != null) {
+            this.queueUnload(loadingChunk, this.getUnloadDeadline(loadingChunk));
+        }
+    }
+
+    private void queueUnload(LoadingChunk loadingChunk, long deadline) {
+        if (UNLOAD_QUEUED_UPDATER.compareAndSet(loadingChunk, 0, 1)) {
+            synchronized (this.unloadQueue) {
+                loadingChunk.unloadDeadline = deadline;
+                this.unloadQueue.add(loadingChunk);
+            }
+        }
+    }
+
+    private long getUnloadDeadline(LoadingChunk loadingChunk) {
+        ServerConfig.LevelSettings settings = this.level.getServer().getConfig().getLevelSettings();
+        return Math.max(loadingChunk.loadedTime + TimeUnit.SECONDS.toMillis(settings.getChunkTimeoutAfterLoad()),
+                loadingChunk.lastAccessTime + TimeUnit.SECONDS.toMillis(settings.getChunkTimeoutAfterLastAccess()));
+    }
+
+    @Nullable
+    private LoadingChunk pollUnloadQueue(long time) {
+        synchronized (this.unloadQueue) {
+            LoadingChunk loadingChunk = this.unloadQueue.peek();
+            if (loadingChunk == null || loadingChunk.unloadDeadline > time) {
+                return null;
+            }
+            this.unloadQueue.poll();
+            UNLOAD_QUEUED_UPDATER.set(loadingChunk, 0);
+            return loadingChunk;
         }
+    }
+
+    public void tick() {
+        this.level.timings.asyncChunkSaveTimer.addTime(this.saveTime.sumThenReset(), (int) this.saveCount.sumThenReset());
 
         long time = System.currentTimeMillis();
+        LoadingChunk loadingChunk = this.pollUnloadQueue(time);
+        if (loadingChunk == null) {
+            return;
+        }
 
         // Spawn chunk
         final int spawnX = this.level.getSafeSpawn().getChunkX();
         final int spawnZ = this.level.getSafeSpawn().getChunkZ();
         final int spawnRadius = 4;//server.getConfiguration().getAdvanced().getSpawnChunkRadius();
 
-        ServerConfig serverConfig = this.level.getServer().getConfig();
+        ServerConfig.LevelSettings settings = this.level.getServer().getConfig().getLevelSettings();
+        final long retryDelay = TimeUnit.SECONDS.toMillis(settings.getChunkTimeoutAfterLastAccess());
+        int budget = settings.getChunkUnloadsPerTick();
 
         // Do chunk garbage collection
         try (Timing ignored = this.level.timings.doChunkGC.startTiming()) {
-            ObjectIterator<Long2ObjectMap.Entry<LoadingChunk>> iterator = this.chunks.long2ObjectEntrySet().iterator();
-            while (iterator.hasNext()) {
-                Long2ObjectMap.Entry<LoadingChunk> entry = iterator.next();
-                long chunkKey = entry.getLongKey();
-                LoadingChunk loadingChunk = entry.getValue();
+            do {
+                long chunkKey = Chunk.key(loadingChunk.x, loadingChunk.z);
+                if (this.chunks.get(chunkKey) != loadingChunk) {
+                    continue; // Already unloaded
+                }
+
                 Chunk chunk = loadingChunk.getChunk();
                 if (chunk == null) {
+                    this.queueUnload(loadingChunk, time + retryDelay);
                     continue; // Chunk hasn't loaded
                 }
 
-                if ((Math.abs(chunk.getX() - spawnX) <= spawnRadius && Math.abs(chunk.getZ() - spawnZ) <= spawnRadius) ||
-                        !chunk.getLoaders().isEmpty()) {
-                    continue; // Spawn protection or is loaded
+                if (chunk.hasLoaders()) {
+                    continue; // Will be queued again when the last loader leaves
                 }
 
-                long loadedTime = this.chunkLoadedTimes.get(chunkKey);
-                if ((time - loadedTime) <= TimeUnit.SECONDS.toMillis(serverConfig.getLevelSettings().getChunkTimeoutAfterLoad())) {
-                    continue;
+                if (Math.abs(chunk.getX() - spawnX) <= spawnRadius && Math.abs(chunk.getZ() - spawnZ) <= spawnRadius) {
+                    this.queueUnload(loadingChunk, time + retryDelay);
+                    continue; // Spawn protection
                 }
 
-                long lastAccessTime = this.chunkLastAccessTimes.get(chunkKey);
-                if ((time - lastAccessTime) <= TimeUnit.SECONDS.toMillis(serverConfig.getLevelSettings().getChunkTimeoutAfterLastAccess())) {
-                    continue;
+                long deadline = this.getUnloadDeadline(loadingChunk);
+                if (deadline > time) {
+                    this.queueUnload(loadingChunk, deadline);
+                    continue; // Accessed since it was queued
                 }
 
-                if (this.unloadChunk0(chunkKey, true, true)) {
-                    iterator.remove();
-
+                boolean unloaded;
+                try (Timing unloadTiming = this.level.timings.doChunkUnload.startTiming()) {
+                    if (!this.callUnloadEvent(chunk)) {
+                        unloaded = false;
+                    } else {
+                        synchronized (loadingChunk) {
+                            // Accessed while the event was fired
+                            deadline = this.getUnloadDeadline(loadingChunk);
+                            if (deadline > time) {
+                                this.queueUnload(loadingChunk, deadline);
+                                continue;
+                            }
+                            unloaded = this.unloadChunk0(chunkKey, loadingChunk, chunk, true, true);
+                        }
+                    }
+                }
+                if (unloaded) {
+                    budget--;
 //                    if (log.isTraceEnabled()) {
 //                        log.trace("Cleared chunk ({},{}) from {}", chunk.getX(), chunk.getZ(), level.getId());
 //                    }
+                } else if (!chunk.hasLoaders()) {
+                    this.queueUnload(loadingChunk, time + retryDelay);
                 }
-            }
+            } while (budget > 0 && (loadingChunk = this.pollUnloadQueue(time)) != null);
         }
     }
 
@@ -301,11 +504,15 @@ public final class LevelChunkManager {
 
         private final int x;
         private final int z;
-        private CompletableFuture<Chunk> future;
+        private volatile CompletableFuture<Chunk> future;
         volatile int generationRunning;
         volatile int populationRunning;
         volatile int finishRunning;
-        private Chunk chunk;
+        volatile int unloadQueued;
+        private volatile Chunk chunk;
+        private volatile long loadedTime;
+        private volatile long lastAccessTime;
+        private long unloadDeadline;
 
         public LoadingChunk(long key, boolean load) {
             this.x = Chunk.fromKeyX(key);
@@ -324,14 +531,10 @@ public final class LevelChunkManager {
                     if (throwable != null) {
                         log.warn(new ParameterizedMessage("Unable to load chunk ({}, {}) in level {} ",
                                 this.x, this.z, LevelChunkManager.this.level.getId()), throwable);
-                        synchronized (LevelChunkManager.this) {
-                            LevelChunkManager.this.chunks.remove(key);
-                        }
+                        LevelChunkManager.this.chunks.remove(key, this);
                     } else {
-                        long currentTime = System.currentTimeMillis();
-                        synchronized (LevelChunkManager.this) {
-                            LevelChunkManager.this.chunkLoadedTimes.put(key, currentTime);
-                        }
+                        this.loadedTime = System.currentTimeMillis();
+                        LevelChunkManager.this.queueUnload(this, LevelChunkManager.this.getUnloadDeadline(this));
                     }
                 });
             } else {
@@ -352,7 +555,7 @@ public final class LevelChunkManager {
             return null;
         }
 
-        private void generate() {
+        private synchronized void generate() {
             if ((this.chunk == null || !this.chunk.isGenerated()) && GENERATION_RUNNING_UPDATER.compareAndSet(this, 0, 1)) {
                 future = future.thenApplyAsync(GenerationTask.INSTANCE, LevelChunkManager.this.executor);
                 future.thenRun(() -> GENERATION_RUNNING_UPDATER.compareAndSet(this, 1, 0));
@@ -360,41 +563,47 @@ public final class LevelChunkManager {
         }
 
         private void populate() {
-            this.generate();
-            if ((this.chunk == null || !this.chunk.isPopulated()) && POPULATION_RUNNING_UPDATER.compareAndSet(this, 0, 1)) {
-                // Load and generate chunks around the chunk to be populated.
-                List<CompletableFuture<Chunk>> chunksToLoad = new ArrayList<>(8);
-                for (int z = this.z - 1, maxZ = this.z + 1; z <= maxZ; z++) {
-                    for (int x = this.x - 1, maxX = this.x + 1; x <= maxX; x++) {
-                        if (x == this.x && z == this.z) continue;
-                        chunksToLoad.add(LevelChunkManager.this.getChunkFuture(x, z, true, false, false));
+            if ((this.chunk == null || !this.chunk.isPopulated()) && this.populationRunning == 0) {
+                // Load and generate chunks around the chunk to be populated. The neighbours are requested before this
+                // chunk's monitor is taken so that two adjacent chunks populating at once cannot deadlock.
+                CompletableFuture<List<Chunk>> aroundFuture = this.getAround(true, false);
+                synchronized (this) {
+                    this.generate();
+                    if ((this.chunk == null || !this.chunk.isPopulated()) && POPULATION_RUNNING_UPDATER.compareAndSet(this, 0, 1)) {
+                        future = future.thenCombineAsync(aroundFuture, PopulationTask.INSTANCE, LevelChunkManager.this.executor);
+                        future.thenRun(() -> POPULATION_RUNNING_UPDATER.compareAndSet(this, 1, 0));
                     }
                 }
-                CompletableFuture<List<Chunk>> aroundFuture = CompletableFutures.allAsList(chunksToLoad);
-
-                future = future.thenCombineAsync(aroundFuture, PopulationTask.INSTANCE, LevelChunkManager.this.executor);
-                future.thenRun(() -> POPULATION_RUNNING_UPDATER.compareAndSet(this, 1, 0));
+            } else {
+                this.generate();
             }
         }
 
         private void finish() {
             this.populate();
-            if ((this.chunk == null || !this.chunk.isFinished()) && FINISH_RUNNING_UPDATER.compareAndSet(this, 0, 1)) {
-                List<CompletableFuture<Chunk>> chunksToLoad = new ArrayList<>(8);
-                for (int z = this.z - 1, maxZ = this.z + 1; z <= maxZ; z++) {
-                    for (int x = this.x - 1, maxX = this.x + 1; x <= maxX; x++) {
-                        if (x == this.x && z == this.z) continue;
-                        chunksToLoad.add(LevelChunkManager.this.getChunkFuture(x, z, true, true, false));
+            if ((this.chunk == null || !this.chunk.isFinished()) && this.finishRunning == 0) {
+                CompletableFuture<List<Chunk>> aroundFuture = this.getAround(true, true);
+                synchronized (this) {
+                    if ((this.chunk == null || !this.chunk.isFinished()) && FINISH_RUNNING_UPDATER.compareAndSet(this, 0, 1)) {
+                        future = future.thenCombineAsync(aroundFuture, FinishingTask.INSTANCE, LevelChunkManager.this.executor);
+                        future.thenRun(() -> FINISH_RUNNING_UPDATER.compareAndSet(this, 1, 0));
                     }
                 }
-                CompletableFuture<List<Chunk>> aroundFuture = CompletableFutures.allAsList(chunksToLoad);
+            }
+        }
 
-                future = future.thenCombineAsync(aroundFuture, FinishingTask.INSTANCE, LevelChunkManager.this.executor);
-                future.thenRun(() -> FINISH_RUNNING_UPDATER.compareAndSet(this, 1, 0));
+        private CompletableFuture<List<Chunk>> getAround(boolean generate, boolean populate) {
+            List<CompletableFuture<Chunk>> chunksToLoad = new ArrayList<>(8);
+            for (int z = this.z - 1, maxZ = this.z + 1; z <= maxZ; z++) {
+                for (int x = this.x - 1, maxX = this.x + 1; x <= maxX; x++) {
+                    if (x == this.x && z == this.z) continue;
+                    chunksToLoad.add(LevelChunkManager.this.getChunkFuture(x, z, generate, populate, false));
+                }
             }
+            return CompletableFutures.allAsList(chunksToLoad);
         }
 
-        private void clear() {
+        private synchronized void clear() {
             this.future = future.thenApply(chunk -> {
                 chunk.clear();
                 GENERATION_RUNNING_UPDATER.set(this, 0);
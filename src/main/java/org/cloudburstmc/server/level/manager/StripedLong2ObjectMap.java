@@ -0,0 +1,142 @@
+package org.cloudburstmc.server.level.manager;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Long keyed map split into {@value #STRIPES} maps which are each guarded by their own lock, so threads working on
+ * different keys rarely wait for each other and keys are not boxed.
+ * <p>
+ * Lookups are optimistic reads which only take the read lock if the stripe was written to while reading it.
+ *
+ * @param <V> value type
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+final class StripedLong2ObjectMap<V> {
+    private static final int STRIPES = 64;
+
+    private final Stripe<V>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    StripedLong2ObjectMap() {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe<>();
+        }
+    }
+
+    private Stripe<V> stripe(long key) {
+        return this.stripes[(int) HashCommon.mix(key) & (STRIPES - 1)];
+    }
+
+    @Nullable
+    V get(long key) {
+        Stripe<V> stripe = this.stripe(key);
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            V value = null;
+            try {
+                value = stripe.map.get(key);
+            } catch (RuntimeException e) {
+                // The map was rehashed while reading it, the stamp is invalid and the read is retried below
+            }
+            if (stripe.lock.validate(stamp)) {
+                return value;
+            }
+        }
+
+        stamp = stripe.lock.readLock();
+        try {
+            return stripe.map.get(key);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        V value = this.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        Stripe<V> stripe = this.stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            value = stripe.map.get(key);
+            if (value == null) {
+                value = mappingFunction.apply(key);
+                stripe.map.put(key, value);
+            }
+            return value;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the mapping of the key only if it is mapped to the value.
+     *
+     * @param key   key
+     * @param value expected value
+     * @return whether the mapping was removed
+     */
+    boolean remove(long key, V value) {
+        Stripe<V> stripe = this.stripe(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            if (stripe.map.get(key) != value) {
+                return false;
+            }
+            stripe.map.remove(key);
+            return true;
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<V> stripe : this.stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.map.size();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copies the values. The copy of each stripe is consistent, but the stripes are copied one after another.
+     *
+     * @return values at the time of the call
+     */
+    List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Stripe<V> stripe : this.stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                values.addAll(stripe.map.values());
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return values;
+    }
+
+    private static final class Stripe<V> {
+        private final StampedLock lock = new StampedLock();
+        private final Long2ObjectMap<V> map = new Long2ObjectOpenHashMap<>();
+    }
+}
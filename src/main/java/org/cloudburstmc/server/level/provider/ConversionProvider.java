@@ -47,6 +47,11 @@ public class ConversionProvider implements LevelProvider {
         return this.newChunkProvider.saveChunk(chunk);
     }
 
+    @Override
+    public CompletableFuture<Void> flush() {
+        return this.newChunkProvider.flush();
+    }
+
     @Override
     public CompletableFuture<Void> forEachChunk(ChunkBuilder.Factory factory, BiConsumer<Chunk, Throwable> consumer) {
         throw new UnsupportedOperationException();
@@ -39,6 +39,15 @@ public interface LevelProvider extends PlayerDataProvider, Closeable {
      */
     CompletableFuture<Void> saveChunk(Chunk chunk);
 
+    /**
+     * Writes all chunks queued by {@link #saveChunk(Chunk)} to durable storage.
+     *
+     * @return void future when all chunks queued before this call are stored durably.
+     */
+    default CompletableFuture<Void> flush() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Iterate over all chunks that the provider has.
      *
@@ -163,6 +163,8 @@ class AnvilProvider implements LevelProvider {
         int workers = 1;
         if (this.executor instanceof ForkJoinPool) {
             workers = ((ForkJoinPool) this.executor).getParallelism();
+        } else if (this.executor instanceof ThreadPoolExecutor) {
+            workers = ((ThreadPoolExecutor) this.executor).getMaximumPoolSize();
         }
 
         log.info("Using {} workers to convert", workers);
@@ -250,7 +252,7 @@ class AnvilProvider implements LevelProvider {
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-        });
+        }, this.executor);
     }
 
     @Override
@@ -4,11 +4,12 @@ import com.google.common.base.Preconditions;
 import io.netty.buffer.Unpooled;
 import lombok.extern.log4j.Log4j2;
 import net.daporkchop.ldbjni.LevelDB;
+import org.cloudburstmc.server.CloudServer;
+import org.cloudburstmc.server.config.ServerConfig;
 import org.cloudburstmc.server.level.LevelData;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.level.chunk.ChunkBuilder;
 import org.cloudburstmc.server.level.chunk.IChunk;
-import org.cloudburstmc.server.level.chunk.LockableChunk;
 import org.cloudburstmc.server.level.provider.LevelProvider;
 import org.cloudburstmc.server.level.provider.leveldb.serializer.*;
 import org.cloudburstmc.server.utils.LoadState;
@@ -30,6 +31,7 @@ class LevelDBProvider implements LevelProvider {
     private final Path path;
     private final Executor executor;
     private final DB db;
+    private final LevelDBSaveQueue saveQueue;
     private volatile boolean closed;
 
     LevelDBProvider(String levelId, Path worldPath, Executor executor) throws IOException {
@@ -45,6 +47,10 @@ class LevelDBProvider implements LevelProvider {
                 .compressionType(CompressionType.ZLIB_RAW)
                 .blockSize(64 * 1024);
         this.db = LevelDB.PROVIDER.open(dbPath.toFile(), options);
+
+        ServerConfig.LevelSettings settings = CloudServer.getInstance().getConfig().getLevelSettings();
+        this.saveQueue = new LevelDBSaveQueue(this.db, executor, CloudServer.getInstance().getScheduler(),
+                settings.getChunkSaveBatchSize(), settings.getChunkSaveRateLimit() * 1024L);
     }
 
     @Override
@@ -57,69 +63,59 @@ class LevelDBProvider implements LevelProvider {
         final int x = chunkBuilder.getX();
         final int z = chunkBuilder.getZ();
 
-        return CompletableFuture.supplyAsync(() -> {
-            byte[] versionValue = this.db.get(LevelDBKey.VERSION.getKey(x, z));
-            if (versionValue == null || versionValue.length != 1) {
-                return null;
-            }
+        // The data on disk is outdated until a queued save of the chunk has been written
+        CompletableFuture<Void> pendingSave = this.saveQueue.awaitPending(Chunk.key(x, z));
+        if (pendingSave != null) {
+            return pendingSave.handle((v, throwable) -> null)
+                    .thenApplyAsync(v -> this.loadChunk(chunkBuilder, x, z), this.executor);
+        }
+        return CompletableFuture.supplyAsync(() -> this.loadChunk(chunkBuilder, x, z), this.executor);
+    }
 
-            byte[] finalizationState = this.db.get(LevelDBKey.STATE_FINALIZATION.getKey(x, z));
-            if (finalizationState == null) {
-                chunkBuilder.state(IChunk.STATE_FINISHED);
-            } else {
-                chunkBuilder.state(Unpooled.wrappedBuffer(finalizationState).readIntLE() + 1);
-            }
+    private Chunk loadChunk(ChunkBuilder chunkBuilder, int x, int z) {
+        byte[] versionValue = this.db.get(LevelDBKey.VERSION.getKey(x, z));
+        if (versionValue == null || versionValue.length != 1) {
+            return null;
+        }
 
-            byte chunkVersion = versionValue[0];
+        byte[] finalizationState = this.db.get(LevelDBKey.STATE_FINALIZATION.getKey(x, z));
+        if (finalizationState == null) {
+            chunkBuilder.state(IChunk.STATE_FINISHED);
+        } else {
+            chunkBuilder.state(Unpooled.wrappedBuffer(finalizationState).readIntLE() + 1);
+        }
 
-            if (chunkVersion < 7) {
-                chunkBuilder.dirty();
-            }
+        byte chunkVersion = versionValue[0];
 
-            ChunkSerializers.deserializeChunk(this.db, chunkBuilder, chunkVersion);
-            Data2dSerializer.deserialize(this.db, chunkBuilder);
+        if (chunkVersion < 7) {
+            chunkBuilder.dirty();
+        }
 
-            BlockEntitySerializer.loadBlockEntities(this.db, chunkBuilder);
-            EntitySerializer.loadEntities(this.db, chunkBuilder);
+        ChunkSerializers.deserializeChunk(this.db, chunkBuilder, chunkVersion);
+        Data2dSerializer.deserialize(this.db, chunkBuilder);
 
-            return chunkBuilder.build();
-        }, this.executor);
+        BlockEntitySerializer.loadBlockEntities(this.db, chunkBuilder);
+        EntitySerializer.loadEntities(this.db, chunkBuilder);
+        PendingTickSerializer.loadPendingTicks(this.db, chunkBuilder);
+
+        return chunkBuilder.build();
     }
 
     @Override
     public CompletableFuture<Void> saveChunk(Chunk chunk) {
-        final int x = chunk.getX();
-        final int z = chunk.getZ();
+        checkForClosed();
 
-        return CompletableFuture.supplyAsync(() -> {
-            //we clear the dirty flag here instead of in LevelChunkManager in case there are modifications to the chunk between now and the time it was enqueued
-            if (!chunk.isGenerated() || !chunk.clearDirty()) {
-                //the chunk was not dirty, do nothing
-                return null;
-            }
-            try (WriteBatch batch = this.db.createWriteBatch()) {
-                LockableChunk lockableChunk = chunk.readLockable();
-                lockableChunk.lock();
-                try {
-                    ChunkSerializers.serializeChunk(batch, chunk, 19);
-                    Data2dSerializer.serialize(batch, chunk);
-
-                    batch.put(LevelDBKey.VERSION.getKey(x, z), new byte[]{19});
-                    batch.put(LevelDBKey.STATE_FINALIZATION.getKey(x, z), Unpooled.buffer(4).writeIntLE(lockableChunk.getState() - 1).array());
-
-                    BlockEntitySerializer.saveBlockEntities(batch, chunk);
-                    EntitySerializer.saveEntities(batch, chunk);
-                } finally {
-                    lockableChunk.unlock();
-                }
-
-                this.db.write(batch);
-                return null;
-            } catch (IOException e) {
-                //can't happen
-                throw new RuntimeException(e);
-            }
-        }, this.executor);
+        //we clear the dirty flag before taking the snapshot so that modifications made after it mark the chunk dirty again
+        if (!chunk.isGenerated() || !chunk.clearDirty()) {
+            //the chunk was not dirty, do nothing
+            return CompletableFuture.completedFuture(null);
+        }
+        return this.saveQueue.save(chunk.createSnapshot());
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return this.saveQueue.flush();
     }
 
     @Override
@@ -155,7 +151,7 @@ class LevelDBProvider implements LevelProvider {
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-        }).exceptionally((e) -> {
+        }, this.executor).exceptionally((e) -> {
             log.catching(e);
             return null;
         });
@@ -164,6 +160,7 @@ class LevelDBProvider implements LevelProvider {
     @Override
     public void close() throws IOException {
         this.closed = true;
+        this.saveQueue.close();
         this.db.close();
     }
 
@@ -0,0 +1,409 @@
+package org.cloudburstmc.server.level.provider.leveldb;
+
+import com.google.common.base.Preconditions;
+import io.netty.buffer.Unpooled;
+import lombok.extern.log4j.Log4j2;
+import org.cloudburstmc.server.level.chunk.Chunk;
+import org.cloudburstmc.server.level.chunk.ChunkSnapshot;
+import org.cloudburstmc.server.level.provider.leveldb.serializer.BlockEntitySerializer;
+import org.cloudburstmc.server.level.provider.leveldb.serializer.ChunkSerializers;
+import org.cloudburstmc.server.level.provider.leveldb.serializer.Data2dSerializer;
+import org.cloudburstmc.server.level.provider.leveldb.serializer.EntitySerializer;
+import org.cloudburstmc.server.level.provider.leveldb.serializer.PendingTickSerializer;
+import org.cloudburstmc.server.scheduler.ServerScheduler;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for the chunks of a single {@link LevelDBProvider}.
+ * <p>
+ * Saves are queued as {@link ChunkSnapshot}s and written on the I/O executor by one task at a time. A chunk that is
+ * saved again before its pending save was written replaces the queued snapshot, so hot chunks are only written once.
+ * Up to {@code batchSize} chunks are grouped into one {@link WriteBatch} and the written bytes are limited to
+ * {@code bytesPerSecond} to spread autosaves out. While the limit holds writes back no thread is blocked; the server
+ * scheduler resumes writing once the limit allows it. {@link #flush()} and {@link #close()} bypass the limit and
+ * finish with a synchronous write.
+ * <p>
+ * Reads must wait for {@link #awaitPending(long)}, as the data on disk is outdated while a save of the chunk is queued
+ * or being written.
+ */
+@Log4j2
+@ThreadSafe
+@ParametersAreNonnullByDefault
+class LevelDBSaveQueue implements Closeable {
+    private static final WriteOptions ASYNC_WRITE = new WriteOptions().sync(false);
+    private static final WriteOptions SYNC_WRITE = new WriteOptions().sync(true);
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final DB db;
+    private final Executor executor;
+    private final ServerScheduler scheduler;
+    private final int batchSize;
+    private final long bytesPerSecond;
+    /**
+     * Pending saves in the order they were first queued. Guarded by itself, as are all other mutable fields.
+     */
+    private final Map<Long, PendingSave> pending = new LinkedHashMap<>();
+    /**
+     * Saves taken from {@link #pending} which are being written.
+     */
+    private final Map<Long, PendingSave> writing = new HashMap<>();
+    /**
+     * Pending saves of chunks which are waiting to be read. They are written first and regardless of the rate limit.
+     */
+    private final Queue<PendingSave> urgent = new ArrayDeque<>();
+    private final List<CompletableFuture<Void>> flushes = new ArrayList<>();
+    /**
+     * First write failure since the outstanding {@link #flushes} were requested.
+     */
+    private Throwable flushFailure;
+    private long nextWriteTime;
+    private boolean running;
+    private boolean resumeScheduled;
+    private boolean closed;
+
+    LevelDBSaveQueue(DB db, Executor executor, ServerScheduler scheduler, int batchSize, long bytesPerSecond) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+        this.db = db;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Queues a chunk to be written.
+     *
+     * @param snapshot chunk data
+     * @return future completed once the chunk, or a later snapshot of it, has been written
+     */
+    CompletableFuture<Void> save(ChunkSnapshot snapshot) {
+        long key = Chunk.key(snapshot.getX(), snapshot.getZ());
+        PendingSave save;
+        boolean start;
+        synchronized (this.pending) {
+            Preconditions.checkState(!this.closed, "Save queue closed");
+            save = this.pending.get(key);
+            if (save != null) {
+                save.snapshot = snapshot;
+                return save.future;
+            }
+            save = new PendingSave(key, snapshot);
+            this.pending.put(key, save);
+            start = this.tryStart();
+        }
+        if (start) {
+            this.start();
+        }
+        return save.future;
+    }
+
+    /**
+     * Returns the future of the latest save of a chunk which has not been written yet and moves it to the front of the
+     * queue.
+     *
+     * @param key chunk key
+     * @return future completed once the chunk has been written, or null if no save of it is outstanding
+     */
+    @Nullable
+    CompletableFuture<Void> awaitPending(long key) {
+        CompletableFuture<Void> future;
+        boolean start;
+        synchronized (this.pending) {
+            PendingSave save = this.pending.get(key);
+            if (save == null) {
+                save = this.writing.get(key);
+                return save == null ? null : save.future;
+            }
+            this.urgent.add(save);
+            future = save.future;
+            start = this.tryStart();
+        }
+        if (start) {
+            this.start();
+        }
+        return future;
+    }
+
+    /**
+     * Writes all queued chunks without rate limiting.
+     *
+     * @return future completed once everything queued before this call has been synced to disk, or exceptionally if a
+     * write failed in the meantime
+     */
+    CompletableFuture<Void> flush() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        boolean start;
+        synchronized (this.pending) {
+            if (this.closed) {
+                future.complete(null);
+                return future;
+            }
+            this.flushes.add(future);
+            start = this.tryStart();
+        }
+        if (start) {
+            this.start();
+        }
+        return future;
+    }
+
+    /**
+     * Flushes all queued chunks and waits for them to be written.
+     */
+    @Override
+    public void close() {
+        boolean start;
+        synchronized (this.pending) {
+            if (!this.closed) {
+                this.closed = true;
+                this.flushes.add(new CompletableFuture<>());
+            }
+            start = this.tryStart();
+        }
+        if (start) {
+            this.start();
+        }
+
+        synchronized (this.pending) {
+            try {
+                while (this.running) {
+                    this.pending.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted whilst flushing chunks", e);
+            }
+        }
+    }
+
+    /**
+     * Claims the right to run the writer. Must be called while holding the lock.
+     *
+     * @return whether the caller has to {@link #start()} the writer
+     */
+    private boolean tryStart() {
+        if (this.running) {
+            return false;
+        }
+        this.running = true;
+        return true;
+    }
+
+    private void start() {
+        try {
+            this.executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            // The executor was already shut down, the remaining chunks still have to be written.
+            this.run();
+        }
+    }
+
+    private void resume() {
+        boolean start;
+        synchronized (this.pending) {
+            this.resumeScheduled = false;
+            start = this.tryStart();
+        }
+        if (start) {
+            this.start();
+        }
+    }
+
+    private void run() {
+        List<PendingSave> saves = new ArrayList<>(this.batchSize);
+        List<CompletableFuture<Void>> flushes = new ArrayList<>();
+        while (true) {
+            boolean sync;
+            Throwable flushFailure = null;
+            synchronized (this.pending) {
+                boolean flushing = !this.flushes.isEmpty();
+                if (this.pending.isEmpty() && !flushing) {
+                    this.stop();
+                    return;
+                }
+                long delay = this.nextWriteTime - System.nanoTime();
+                if (!flushing && this.urgent.isEmpty() && delay > 0) {
+                    this.stop();
+                    if (!this.resumeScheduled) {
+                        this.resumeScheduled = true;
+                        int ticks = (int) Math.max(1, (delay + TICK_NANOS - 1) / TICK_NANOS);
+                        this.scheduler.scheduleDelayedTask(null, this::resume, ticks);
+                    }
+                    return;
+                }
+
+                PendingSave save;
+                while (saves.size() < this.batchSize && (save = this.urgent.poll()) != null) {
+                    if (this.pending.remove(save.key, save)) {
+                        saves.add(save);
+                    }
+                }
+                Iterator<PendingSave> iterator = this.pending.values().iterator();
+                while (saves.size() < this.batchSize && iterator.hasNext()) {
+                    saves.add(iterator.next());
+                    iterator.remove();
+                }
+                for (PendingSave writing : saves) {
+                    this.writing.put(writing.key, writing);
+                }
+                // The batch which empties the queue during a flush is synced, which also syncs all earlier writes.
+                sync = flushing && this.pending.isEmpty();
+                if (sync) {
+                    flushes.addAll(this.flushes);
+                    this.flushes.clear();
+                    flushFailure = this.flushFailure;
+                    this.flushFailure = null;
+                }
+            }
+
+            Throwable error = this.write(saves, sync);
+
+            synchronized (this.pending) {
+                for (PendingSave save : saves) {
+                    this.writing.remove(save.key, save);
+                }
+                // Chunks which were lost while a flush was outstanding have to fail the flush as well.
+                if (error != null && !this.flushes.isEmpty() && this.flushFailure == null) {
+                    this.flushFailure = error;
+                }
+            }
+            for (PendingSave save : saves) {
+                save.complete();
+            }
+            if (flushFailure == null) {
+                flushFailure = error;
+            }
+            for (CompletableFuture<Void> future : flushes) {
+                if (flushFailure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(flushFailure);
+                }
+            }
+            saves.clear();
+            flushes.clear();
+        }
+    }
+
+    /**
+     * Stops the writer. Must be called while holding the lock.
+     */
+    private void stop() {
+        this.running = false;
+        this.pending.notifyAll();
+    }
+
+    /**
+     * Writes a batch of saves.
+     *
+     * @return the failure of the write, or null if it succeeded
+     */
+    @Nullable
+    private Throwable write(List<PendingSave> saves, boolean sync) {
+        long bytes = 0;
+        Throwable error = null;
+        try (WriteBatch writeBatch = this.db.createWriteBatch()) {
+            SizedWriteBatch batch = new SizedWriteBatch(writeBatch);
+            for (PendingSave save : saves) {
+                serialize(batch, save.snapshot);
+            }
+            bytes = batch.getSize();
+            this.db.write(writeBatch, sync ? SYNC_WRITE : ASYNC_WRITE);
+        } catch (Throwable t) {
+            error = t;
+            for (PendingSave save : saves) {
+                save.error = t;
+            }
+        }
+
+        if (this.bytesPerSecond > 0) {
+            long now = System.nanoTime();
+            this.nextWriteTime = Math.max(this.nextWriteTime, now) + bytes * TimeUnit.SECONDS.toNanos(1) / this.bytesPerSecond;
+        }
+        return error;
+    }
+
+    private static void serialize(WriteBatch batch, ChunkSnapshot snapshot) {
+        final int x = snapshot.getX();
+        final int z = snapshot.getZ();
+
+        snapshot.compact();
+        ChunkSerializers.serializeChunk(batch, snapshot, 19);
+        Data2dSerializer.serialize(batch, snapshot);
+
+        batch.put(LevelDBKey.VERSION.getKey(x, z), new byte[]{19});
+        batch.put(LevelDBKey.STATE_FINALIZATION.getKey(x, z), Unpooled.buffer(4).writeIntLE(snapshot.getState() - 1).array());
+
+        BlockEntitySerializer.saveBlockEntities(batch, snapshot);
+        EntitySerializer.saveEntities(batch, snapshot);
+        PendingTickSerializer.savePendingTicks(batch, snapshot);
+    }
+
+    private static class PendingSave {
+        private final long key;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile ChunkSnapshot snapshot;
+        private Throwable error;
+
+        private PendingSave(long key, ChunkSnapshot snapshot) {
+            this.key = key;
+            this.snapshot = snapshot;
+        }
+
+        private void complete() {
+            if (this.error == null) {
+                this.future.complete(null);
+            } else {
+                this.future.completeExceptionally(this.error);
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes put into a batch for the rate limit.
+     */
+    private static class SizedWriteBatch implements WriteBatch {
+        private final WriteBatch batch;
+        private long size;
+
+        private SizedWriteBatch(WriteBatch batch) {
+            this.batch = batch;
+        }
+
+        private long getSize() {
+            return this.size;
+        }
+
+        @Override
+        public WriteBatch put(byte[] key, byte[] value) {
+            this.size += key.length + value.length;
+            this.batch.put(key, value);
+            return this;
+        }
+
+        @Override
+        public WriteBatch delete(byte[] key) {
+            this.size += key.length;
+            this.batch.delete(key);
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.batch.close();
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.cloudburstmc.server.blockentity.BlockEntityType;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.level.chunk.ChunkBuilder;
 import org.cloudburstmc.server.level.chunk.ChunkDataLoader;
+import org.cloudburstmc.server.level.chunk.ChunkSnapshot;
 import org.cloudburstmc.server.level.provider.leveldb.LevelDBKey;
 import org.cloudburstmc.server.registry.BlockEntityRegistry;
 import org.iq80.leveldb.DB;
@@ -22,7 +23,6 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 @Log4j2
@@ -49,20 +49,19 @@ public class BlockEntitySerializer {
         builder.dataLoader(new BlockEntityLoader(blockEntityTags));
     }
 
-    public static void saveBlockEntities(WriteBatch db, Chunk chunk) {
+    public static void saveBlockEntities(WriteBatch db, ChunkSnapshot chunk) {
         byte[] key = LevelDBKey.BLOCK_ENTITIES.getKey(chunk.getX(), chunk.getZ());
-        if (chunk.getBlockEntities().isEmpty()) {
+        List<NbtMap> blockEntities = chunk.getBlockEntities();
+        if (blockEntities.isEmpty()) {
             db.delete(key);
             return;
         }
 
-        Collection<BlockEntity> entities = chunk.getBlockEntities();
-
         byte[] value;
         try (ByteArrayOutputStream stream = new ByteArrayOutputStream();
              NBTOutputStream nbtOutputStream = NbtUtils.createWriterLE(stream)) {
-            for (BlockEntity entity : entities) {
-                nbtOutputStream.writeTag(entity.getServerTag());
+            for (NbtMap tag : blockEntities) {
+                nbtOutputStream.writeTag(tag);
             }
             value = stream.toByteArray();
         } catch (IOException e) {
@@ -11,6 +11,7 @@ import org.cloudburstmc.server.level.chunk.BlockStorage;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.level.chunk.ChunkBuilder;
 import org.cloudburstmc.server.level.chunk.ChunkSection;
+import org.cloudburstmc.server.level.chunk.ChunkSnapshot;
 import org.cloudburstmc.server.level.provider.leveldb.LevelDBKey;
 import org.cloudburstmc.server.registry.BlockRegistry;
 import org.cloudburstmc.server.utils.ChunkException;
@@ -23,7 +24,7 @@ class ChunkSerializerV3 extends ChunkSerializerV1 {
     static ChunkSerializer INSTANCE = new ChunkSerializerV3();
 
     @Override
-    public void serialize(WriteBatch db, Chunk chunk) {
+    public void serialize(WriteBatch db, ChunkSnapshot chunk) {
         // Write chunk sections
         for (int ySection = 0; ySection < Chunk.SECTION_COUNT; ySection++) {
             ChunkSection section = chunk.getSection(ySection);
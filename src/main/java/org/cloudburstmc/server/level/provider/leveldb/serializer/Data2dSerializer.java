@@ -2,21 +2,21 @@ package org.cloudburstmc.server.level.provider.leveldb.serializer;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.level.chunk.ChunkBuilder;
+import org.cloudburstmc.server.level.chunk.ChunkSnapshot;
 import org.cloudburstmc.server.level.provider.leveldb.LevelDBKey;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.WriteBatch;
 
 public class Data2dSerializer {
 
-    public static void serialize(WriteBatch db, Chunk chunk) {
+    public static void serialize(WriteBatch db, ChunkSnapshot chunk) {
         // Write height map and biomes.
         byte[] data2d = new byte[768];
         ByteBuf buffer = Unpooled.wrappedBuffer(data2d);
         buffer.writerIndex(0);
-        int[] heightMap = chunk.getHeightMapArray();
-        byte[] biomes = chunk.getBiomeArray();
+        int[] heightMap = chunk.getHeightMap();
+        byte[] biomes = chunk.getBiomes();
         for (int height : heightMap) {
             buffer.writeShortLE(height);
         }
@@ -11,6 +11,7 @@ import org.cloudburstmc.server.level.Location;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.level.chunk.ChunkBuilder;
 import org.cloudburstmc.server.level.chunk.ChunkDataLoader;
+import org.cloudburstmc.server.level.chunk.ChunkSnapshot;
 import org.cloudburstmc.server.level.provider.leveldb.LevelDBKey;
 import org.cloudburstmc.server.registry.EntityRegistry;
 import org.cloudburstmc.server.utils.Identifier;
@@ -22,7 +23,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -50,9 +50,9 @@ public class EntitySerializer {
         builder.dataLoader(new DataLoader(entityTags));
     }
 
-    public static void saveEntities(WriteBatch db, Chunk chunk) {
+    public static void saveEntities(WriteBatch db, ChunkSnapshot chunk) {
         byte[] key = LevelDBKey.ENTITIES.getKey(chunk.getX(), chunk.getZ());
-        Set<Entity> entities = chunk.getEntities();
+        List<NbtMap> entities = chunk.getEntities();
         if (entities.isEmpty()) {
             db.delete(key);
             return;
@@ -61,10 +61,8 @@ public class EntitySerializer {
         byte[] value;
         try (ByteArrayOutputStream stream = new ByteArrayOutputStream();
              NBTOutputStream nbtOutputStream = NbtUtils.createWriterLE(stream)) {
-            for (Entity entity : entities) {
-                NbtMapBuilder tag = NbtMap.builder();
-                entity.saveAdditionalData(tag);
-                nbtOutputStream.writeTag(tag.build());
+            for (NbtMap tag : entities) {
+                nbtOutputStream.writeTag(tag);
             }
             value = stream.toByteArray();
         } catch (IOException e) {
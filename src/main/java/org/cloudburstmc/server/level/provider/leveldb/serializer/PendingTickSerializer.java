@@ -0,0 +1,122 @@
+package org.cloudburstmc.server.level.provider.leveldb.serializer;
+
+import com.nukkitx.math.vector.Vector3i;
+import com.nukkitx.nbt.*;
+import lombok.extern.log4j.Log4j2;
+import org.cloudburstmc.api.registry.RegistryException;
+import org.cloudburstmc.server.block.BlockPalette;
+import org.cloudburstmc.server.block.BlockState;
+import org.cloudburstmc.server.block.BlockStates;
+import org.cloudburstmc.server.block.BlockTypes;
+import org.cloudburstmc.server.block.CloudBlock;
+import org.cloudburstmc.server.level.BlockUpdate;
+import org.cloudburstmc.server.level.Level;
+import org.cloudburstmc.server.level.chunk.ChunkBuilder;
+import org.cloudburstmc.server.level.chunk.ChunkSnapshot;
+import org.cloudburstmc.server.level.provider.leveldb.LevelDBKey;
+import org.cloudburstmc.server.registry.BlockRegistry;
+import org.cloudburstmc.server.utils.BlockUpdateEntry;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.WriteBatch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scheduled block updates of a chunk, stored like vanilla as a tick list with due ticks relative to the tick the chunk
+ * was saved at.
+ */
+@Log4j2
+public class PendingTickSerializer {
+
+    public static void loadPendingTicks(DB db, ChunkBuilder builder) {
+        byte[] value = db.get(LevelDBKey.PENDING_TICKS.getKey(builder.getX(), builder.getZ()));
+        if (value == null) {
+            return;
+        }
+
+        for (BlockUpdate update : readTickList(value, builder.getLevel())) {
+            builder.blockUpdate(update);
+        }
+    }
+
+    public static void savePendingTicks(WriteBatch db, ChunkSnapshot chunk) {
+        byte[] key = LevelDBKey.PENDING_TICKS.getKey(chunk.getX(), chunk.getZ());
+        List<BlockUpdateEntry> blockUpdates = chunk.getBlockUpdates();
+        if (blockUpdates.isEmpty()) {
+            db.delete(key);
+            return;
+        }
+
+        db.put(key, writeTickList(blockUpdates, chunk.getCurrentTick()));
+    }
+
+    static List<BlockUpdate> readTickList(byte[] value, Level level) {
+        NbtMap tag;
+        try (ByteArrayInputStream stream = new ByteArrayInputStream(value);
+             NBTInputStream nbtInputStream = NbtUtils.createReaderLE(stream)) {
+            tag = (NbtMap) nbtInputStream.readTag();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        long currentTick = tag.getInt("currentTick");
+        List<NbtMap> tickList = tag.getList("tickList", NbtType.COMPOUND);
+        List<BlockUpdate> updates = new ArrayList<>(tickList.size());
+        for (NbtMap tick : tickList) {
+            BlockState state;
+            BlockState extra = BlockStates.AIR;
+            try {
+                state = BlockRegistry.get().getBlock(tick.getCompound("blockState"));
+                if (tick.containsKey("extraBlockState", NbtType.COMPOUND)) {
+                    extra = BlockRegistry.get().getBlock(tick.getCompound("extraBlockState"));
+                }
+            } catch (RegistryException e) {
+                log.debug("Skipping scheduled update of unknown block", e);
+                continue;
+            }
+            if (state.getType() == BlockTypes.AIR) {
+                continue;
+            }
+
+            Vector3i pos = Vector3i.from(tick.getInt("x"), tick.getInt("y"), tick.getInt("z"));
+            int delay = (int) Math.max(0, tick.getLong("time") - currentTick);
+            CloudBlock block = new CloudBlock(level, pos, new BlockState[]{state, extra});
+            updates.add(BlockUpdate.of(block, pos, delay, tick.getInt("p"), false));
+        }
+        return updates;
+    }
+
+    static byte[] writeTickList(List<BlockUpdateEntry> blockUpdates, long currentTick) {
+        List<NbtMap> tickList = new ArrayList<>(blockUpdates.size());
+        for (BlockUpdateEntry entry : blockUpdates) {
+            NbtMapBuilder tick = NbtMap.builder()
+                    .putCompound("blockState", BlockPalette.INSTANCE.getSerialized(entry.block.getState()));
+            BlockState extra = entry.block.getExtra();
+            if (extra != BlockStates.AIR) {
+                tick.putCompound("extraBlockState", BlockPalette.INSTANCE.getSerialized(extra));
+            }
+            tickList.add(tick.putLong("time", entry.delay)
+                    .putInt("p", entry.priority)
+                    .putInt("x", entry.pos.getX())
+                    .putInt("y", entry.pos.getY())
+                    .putInt("z", entry.pos.getZ())
+                    .build());
+        }
+        NbtMap tag = NbtMap.builder()
+                .putInt("currentTick", (int) currentTick)
+                .putList("tickList", NbtType.COMPOUND, tickList)
+                .build();
+
+        try (ByteArrayOutputStream stream = new ByteArrayOutputStream();
+             NBTOutputStream nbtOutputStream = NbtUtils.createWriterLE(stream)) {
+            nbtOutputStream.writeTag(tag);
+            return stream.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.cloudburstmc.server.network;
+
+import com.nukkitx.network.VarInts;
+import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.BedrockPacketCodec;
+import com.nukkitx.protocol.bedrock.BedrockSession;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.experimental.UtilityClass;
+import lombok.extern.log4j.Log4j2;
+import org.cloudburstmc.server.utils.Zlib;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Encodes packets into a compressed batch which can be handed to {@link BedrockSession#sendWrapped(ByteBuf, boolean)}
+ * by any number of sessions that use the same codec, so the packets are serialized and compressed only once.
+ */
+@Log4j2
+@UtilityClass
+@ParametersAreNonnullByDefault
+public class BatchEncoder {
+
+    public static ByteBuf encode(BedrockSession session, BedrockPacket packet, int compressionLevel) {
+        return encode(session, Collections.singletonList(packet), compressionLevel);
+    }
+
+    /**
+     * Serializes and compresses the packets using the codec of the given session.
+     *
+     * @param session          session to take the codec from
+     * @param packets          packets to encode
+     * @param compressionLevel zlib compression level
+     * @return compressed batch, owned by the caller
+     */
+    public static ByteBuf encode(BedrockSession session, Collection<? extends BedrockPacket> packets, int compressionLevel) {
+        BedrockPacketCodec codec = session.getPacketCodec();
+        ByteBuf uncompressed = ByteBufAllocator.DEFAULT.ioBuffer(packets.size() << 3);
+        try {
+            for (BedrockPacket packet : packets) {
+                ByteBuf packetBuffer = ByteBufAllocator.DEFAULT.ioBuffer();
+                try {
+                    int header = codec.getId(packet) & 0x3ff;
+                    header |= (packet.getSenderId() & 3) << 10;
+                    header |= (packet.getClientId() & 3) << 12;
+                    VarInts.writeUnsignedInt(packetBuffer, header);
+                    codec.tryEncode(packetBuffer, packet, session);
+
+                    VarInts.writeUnsignedInt(uncompressed, packetBuffer.readableBytes());
+                    uncompressed.writeBytes(packetBuffer);
+                } finally {
+                    packetBuffer.release();
+                }
+            }
+
+            ByteBuf compressed = ByteBufAllocator.DEFAULT.ioBuffer();
+            try {
+                Zlib.GZIP.deflate(uncompressed, compressed, compressionLevel);
+            } catch (Throwable t) {
+                compressed.release();
+                throw t;
+            }
+            return compressed;
+        } finally {
+            uncompressed.release();
+        }
+    }
+}
@@ -83,10 +83,12 @@ import org.cloudburstmc.server.math.BlockRayTrace;
 import org.cloudburstmc.server.math.NukkitMath;
 import org.cloudburstmc.server.math.SimpleAxisAlignedBB;
 import org.cloudburstmc.server.metadata.MetadataValue;
+import org.cloudburstmc.server.network.BatchEncoder;
 import org.cloudburstmc.server.permission.PermissibleBase;
 import org.cloudburstmc.server.permission.Permission;
 import org.cloudburstmc.server.permission.PermissionAttachment;
 import org.cloudburstmc.server.permission.PermissionAttachmentInfo;
+import org.cloudburstmc.server.player.handler.InboundPacketQueue;
 import org.cloudburstmc.server.player.handler.PlayerPacketHandler;
 import org.cloudburstmc.server.player.manager.PlayerChunkManager;
 import org.cloudburstmc.server.registry.CloudItemRegistry;
@@ -172,7 +174,13 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
     protected int viewDistance;
     protected final int chunksPerTick;
     protected final int spawnThreshold;
-    private final Queue<BedrockPacket> inboundQueue = new ConcurrentLinkedQueue<>();
+    private final InboundPacketQueue inboundQueue = new InboundPacketQueue();
+    /**
+     * Packets sent through {@link #sendPacket(BedrockPacket)} which have not been handed to the session yet. They are
+     * kept here instead of in the queue of the session, so they can be flushed ahead of batches and packets which are
+     * sent straight away and reach the client in the order they were sent.
+     */
+    private final Queue<BedrockPacket> outboundQueue = new ConcurrentLinkedQueue<>();
 
     protected int inAirTicks = 0;
     protected int startAirTicks = 5;
@@ -931,10 +939,60 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
         return true;
     }
 
+    /**
+     * Sends an already compressed batch, such as one created by {@link org.cloudburstmc.server.network.BatchEncoder}.
+     * The caller keeps its reference to the batch.
+     *
+     * @param batch compressed batch
+     * @return batch successfully sent
+     */
+    public boolean sendWrapped(ByteBuf batch) {
+        if (!this.connected) {
+            return false;
+        }
+
+        synchronized (this.outboundQueue) {
+            this.flushPackets0();
+            this.session.sendWrapped(batch.retainedDuplicate(), true);
+        }
+        return true;
+    }
+
     public void sendPacketInternal(BedrockPacket packet) {
         try (Timing ignored = Timings.getSendDataPacketTiming(packet).startTiming()) {
-            this.session.sendPacket(packet);
+            this.outboundQueue.offer(packet);
+        }
+    }
+
+    /**
+     * Sends the packets queued by {@link #sendPacket(BedrockPacket)} as one batch. Called once per tick and before
+     * anything is sent straight away.
+     */
+    public void flushPackets() {
+        synchronized (this.outboundQueue) {
+            this.flushPackets0();
+        }
+    }
+
+    private void flushPackets0() {
+        if (this.outboundQueue.isEmpty() || this.session.isClosed()) {
+            return;
+        }
+
+        List<BedrockPacket> packets = new ArrayList<>(this.outboundQueue.size());
+        BedrockPacket packet;
+        while ((packet = this.outboundQueue.poll()) != null) {
+            packets.add(packet);
         }
+
+        ByteBuf batch;
+        try {
+            batch = BatchEncoder.encode(this.session, packets, this.server.networkCompressionLevel);
+        } catch (Exception e) {
+            log.error("Unable to encode packets " + packets, e);
+            return;
+        }
+        this.session.sendWrapped(batch, true);
     }
 
     @Deprecated
@@ -967,6 +1025,10 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
         return new ItemStack[0];
     }
 
+    public BedrockServerSession getSession() {
+        return session;
+    }
+
     /**
      * 0 is true
      * -1 is false
@@ -981,7 +1043,10 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
         }
 
         try (Timing ignored = Timings.getSendDataPacketTiming(packet).startTiming()) {
-            this.session.sendPacketImmediately(packet);
+            synchronized (this.outboundQueue) {
+                this.flushPackets0();
+                this.session.sendPacketImmediately(packet);
+            }
         }
         return true;
     }
@@ -1225,6 +1290,7 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
 
             if (diffX != 0 || diffY != 0 || diffZ != 0) {
                 this.position = newPosition;
+                this.level.getEntityIndex().update(this);
                 float radius = this.getWidth() / 2;
                 this.boundingBox.setBounds(this.position.getX() - radius, this.position.getY(), this.position.getZ() - radius,
                         this.position.getX() + radius, this.position.getY() + this.getHeight(), this.position.getZ() + radius);
@@ -1577,22 +1643,25 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
             return;
         }
 
-        try (Timing ignore = Timings.playerNetworkReceiveTimer.startTiming()) {
-            BedrockPacket packet;
-            while ((packet = this.inboundQueue.poll()) != null) {
-                packetHandler.handle(packet);
-            }
+        if (this.inboundQueue.isOverflowed()) {
+            log.warn("{} sent too many packets and was disconnected", this.getName());
+            this.close(this.getLeaveMessage(), "Too many packets");
+            return;
         }
 
-        if (!this.loggedIn) {
-            return;
+        try (Timing ignore = Timings.playerNetworkReceiveTimer.startTiming()) {
+            this.inboundQueue.drain(packetHandler::handle);
         }
 
-        this.getChunkManager().sendQueued();
+        if (this.loggedIn) {
+            this.getChunkManager().sendQueued();
 
-        if (this.getChunkManager().getChunksSent() >= this.spawnThreshold && !this.spawned && this.teleportPosition == null) {
-            this.doFirstSpawn();
+            if (this.getChunkManager().getChunksSent() >= this.spawnThreshold && !this.spawned && this.teleportPosition == null) {
+                this.doFirstSpawn();
+            }
         }
+
+        this.flushPackets();
     }
 
     public void processLogin() {
@@ -2033,6 +2102,7 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
             super.close();
 
             if (!this.session.isClosed()) {
+                this.flushPackets();
                 this.session.disconnect(notify ? reason : "");
             }
 
@@ -2993,6 +3063,14 @@ public class Player extends Human implements CommandSender, InventoryHolder, Chu
             to = event.getTo();
         }
 
+        if (to.getLevel() != this.getLevel() && LevelManager.isLevelTickThread()) {
+            // The target level may be ticking on another thread. The event was fired already, so the player is only
+            // moved once all levels finished ticking and the teleport can no longer be cancelled.
+            Location target = to;
+            this.server.getLevelManager().runAfterTick(() -> this.teleport(target, null));
+            return true;
+        }
+
         //TODO Remove it! A hack to solve the client-side teleporting bug! (inside into the block)
         if (super.teleport(to.getY() == to.getFloorY() ? to.add(0, 0.00001, 0) : to, null)) { // null to prevent fire of duplicate EntityTeleportEvent
             this.removeAllWindows();
@@ -0,0 +1,128 @@
+package org.cloudburstmc.server.player.handler;
+
+import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.packet.*;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Packets received from a player waiting to be handled on the next tick.
+ * <p>
+ * Packets are handled in the order they were received, except that a run of movement packets only has its last
+ * packet handled, as each of them replaces the position or input of the one before. Every other packet is handled,
+ * and a pending movement is always handled before the next other packet so both are seen in the order they were sent.
+ * <p>
+ * Expensive packets are limited to a number per tick. Once a limit is reached the packet and everything received
+ * after it stays queued until the next tick, so a client flooding them only slows down itself. At most
+ * {@value #MAX_PENDING} packets are queued, further packets are refused and the queue is marked as overflowed so the
+ * client can be disconnected.
+ */
+@ParametersAreNonnullByDefault
+public class InboundPacketQueue {
+    static final int MAX_PENDING = 4096;
+    private static final Reference2IntMap<Class<? extends BedrockPacket>> LIMITS = new Reference2IntOpenHashMap<>();
+
+    static {
+        LIMITS.put(InventoryTransactionPacket.class, 16);
+        LIMITS.put(PlayerActionPacket.class, 16);
+        LIMITS.put(InteractPacket.class, 16);
+        LIMITS.put(BlockPickRequestPacket.class, 4);
+        LIMITS.put(BlockEntityDataPacket.class, 4);
+        LIMITS.put(CommandRequestPacket.class, 4);
+        LIMITS.put(TextPacket.class, 4);
+        LIMITS.put(MapInfoRequestPacket.class, 4);
+        LIMITS.put(PlayerSkinPacket.class, 1);
+    }
+
+    private final Queue<BedrockPacket> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean overflowed;
+    private final Reference2IntMap<Class<? extends BedrockPacket>> handled = new Reference2IntOpenHashMap<>();
+
+    /**
+     * Queues a received packet. May be called from any thread.
+     *
+     * @param packet received packet
+     * @return false if too many packets are queued already, in which case the packet is dropped
+     */
+    public boolean offer(BedrockPacket packet) {
+        if (this.pending.incrementAndGet() > MAX_PENDING) {
+            this.pending.decrementAndGet();
+            this.overflowed = true;
+            return false;
+        }
+        this.queue.offer(packet);
+        return true;
+    }
+
+    /**
+     * Whether a packet has been dropped because too many packets were queued.
+     *
+     * @return overflowed
+     */
+    public boolean isOverflowed() {
+        return this.overflowed;
+    }
+
+    private BedrockPacket poll() {
+        BedrockPacket packet = this.queue.poll();
+        this.pending.decrementAndGet();
+        return packet;
+    }
+
+    /**
+     * Handles the queued packets due this tick. Must only be called by one thread at a time.
+     *
+     * @param handler handler of the packets
+     */
+    public void drain(Consumer<BedrockPacket> handler) {
+        this.handled.clear();
+        MovePlayerPacket move = null;
+        PlayerInputPacket input = null;
+
+        BedrockPacket packet;
+        while ((packet = this.queue.peek()) != null) {
+            if (packet instanceof MovePlayerPacket) {
+                move = (MovePlayerPacket) this.poll();
+                continue;
+            }
+            if (packet instanceof PlayerInputPacket) {
+                input = (PlayerInputPacket) this.poll();
+                continue;
+            }
+
+            Class<? extends BedrockPacket> type = packet.getClass();
+            int limit = LIMITS.getInt(type);
+            if (limit > 0 && this.handled.getInt(type) >= limit) {
+                break;
+            }
+            this.poll();
+
+            if (move != null) {
+                handler.accept(move);
+                move = null;
+            }
+            if (input != null) {
+                handler.accept(input);
+                input = null;
+            }
+            if (limit > 0) {
+                this.handled.put(type, this.handled.getInt(type) + 1);
+            }
+            handler.accept(packet);
+        }
+
+        if (move != null) {
+            handler.accept(move);
+        }
+        if (input != null) {
+            handler.accept(input);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.cloudburstmc.server.player.manager;
+
+import com.nukkitx.math.vector.Vector3f;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.cloudburstmc.server.level.Level;
+import org.cloudburstmc.server.level.chunk.Chunk;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the chunks a fast moving player is heading towards before they enter its view, so they do not have to be
+ * read or generated once the player reaches them.
+ * <p>
+ * The velocity of the player is averaged over the last ticks. Once it is fast enough, the chunks in a corridor along
+ * the heading, from the edge of the view up to where the player will be in {@value #LOOKAHEAD_TICKS} ticks, are
+ * loaded into the level without adding the player as a loader or sending them. They are unloaded again like any other
+ * chunk nobody uses if the player does not reach them.
+ * <p>
+ * Chunks are queued through {@link org.cloudburstmc.server.level.manager.LevelChunkManager#prefetchChunk(int, int)},
+ * which only starts them while the generation workers are idle, so the chunks players actually see go first. Only a
+ * few chunks per player and across all players are queued or loading at a time. The corridor is worked out again
+ * every tick and queued chunks which left it are cancelled, so they are dropped as soon as the player turns away or
+ * slows down. Loads which already started cannot be aborted and are left to finish.
+ */
+class ChunkPrefetcher {
+    /**
+     * Speed in blocks per tick below which nothing is prefetched, about that of a player sprinting and jumping.
+     */
+    private static final double MIN_SPEED = 0.4;
+    /**
+     * Speed in blocks per tick above which the player is assumed to have teleported.
+     */
+    private static final double MAX_SPEED = 10;
+    private static final int LOOKAHEAD_TICKS = 60;
+    private static final int MAX_LOOKAHEAD_CHUNKS = 8;
+    /**
+     * Chunks on either side of the heading to prefetch.
+     */
+    private static final int CORRIDOR_HALF_WIDTH = 1;
+    private static final AtomicInteger LOADING_GLOBAL = new AtomicInteger();
+    /**
+     * Weight of the last tick in the velocity average.
+     */
+    private static final double VELOCITY_WEIGHT = 0.3;
+
+    private final int maxLoading;
+    private final int maxLoadingGlobal;
+    private final LongSet loading = new LongOpenHashSet();
+    /**
+     * Chunks ahead of the player found in the last tick, nearest first.
+     */
+    private final LongList corridor = new LongArrayList();
+    private Level level;
+    private double lastX;
+    private double lastZ;
+    private double velocityX;
+    private double velocityZ;
+
+    /**
+     * @param maxLoading       most chunks queued or loading for this player at a time, 0 turns prefetching off
+     * @param maxLoadingGlobal most chunks queued or loading across all players at a time
+     */
+    ChunkPrefetcher(int maxLoading, int maxLoadingGlobal) {
+        this.maxLoading = maxLoading;
+        this.maxLoadingGlobal = maxLoadingGlobal;
+    }
+
+    /**
+     * Updates the velocity of the player, queues the chunks ahead of it and cancels the queued chunks which are no
+     * longer ahead.
+     *
+     * @param level    level the player is in
+     * @param position position of the player
+     * @param view     chunks the player can see
+     * @param radius   view radius in chunks
+     */
+    void tick(Level level, Vector3f position, ChunkView view, int radius) {
+        double x = position.getX();
+        double z = position.getZ();
+        this.corridor.clear();
+        if (this.level != level) {
+            if (this.level != null) {
+                this.cancelOutsideCorridor(this.level);
+            }
+            this.level = level;
+            this.reset(x, z);
+            return;
+        }
+
+        double dx = x - this.lastX;
+        double dz = z - this.lastZ;
+        this.lastX = x;
+        this.lastZ = z;
+        if (dx * dx + dz * dz > MAX_SPEED * MAX_SPEED) {
+            this.reset(x, z);
+            this.cancelOutsideCorridor(level);
+            return;
+        }
+        this.velocityX += (dx - this.velocityX) * VELOCITY_WEIGHT;
+        this.velocityZ += (dz - this.velocityZ) * VELOCITY_WEIGHT;
+
+        double speed = Math.sqrt(this.velocityX * this.velocityX + this.velocityZ * this.velocityZ);
+        if (speed >= MIN_SPEED && this.maxLoading > 0) {
+            this.findCorridor(level, x, z, speed, view, radius);
+        }
+        this.cancelOutsideCorridor(level);
+
+        int budget;
+        synchronized (this.loading) {
+            budget = this.maxLoading - this.loading.size();
+        }
+        for (int i = 0; i < this.corridor.size() && budget > 0; i++) {
+            long key = this.corridor.getLong(i);
+            if (this.load(level, key, Chunk.fromKeyX(key), Chunk.fromKeyZ(key))) {
+                budget--;
+            } else if (LOADING_GLOBAL.get() >= this.maxLoadingGlobal) {
+                return;
+            }
+        }
+    }
+
+    private void findCorridor(Level level, double x, double z, double speed, ChunkView view, int radius) {
+        double headingX = this.velocityX / speed;
+        double headingZ = this.velocityZ / speed;
+        int lookahead = Math.min(MAX_LOOKAHEAD_CHUNKS, (int) Math.ceil(speed * LOOKAHEAD_TICKS / 16));
+
+        // Nearest chunks first, starting at the edge of the view
+        for (int step = 0; step <= lookahead; step++) {
+            double distance = (radius + step) * 16.0;
+            double aheadX = x + headingX * distance;
+            double aheadZ = z + headingZ * distance;
+            for (int side = 0; side <= CORRIDOR_HALF_WIDTH * 2; side++) {
+                // 0, -1, 1, -2, 2...
+                int offset = ((side + 1) >> 1) * ((side & 1) == 0 ? 1 : -1) * 16;
+                int chunkX = (int) Math.floor(aheadX - headingZ * offset) >> 4;
+                int chunkZ = (int) Math.floor(aheadZ + headingX * offset) >> 4;
+                long key = Chunk.key(chunkX, chunkZ);
+                if (view.contains(key) || this.corridor.contains(key) || level.getLoadedChunk(chunkX, chunkZ) != null) {
+                    continue;
+                }
+                this.corridor.add(key);
+            }
+        }
+    }
+
+    /**
+     * Cancels the chunks queued for this player which are not in the corridor and have not started loading.
+     */
+    private void cancelOutsideCorridor(Level level) {
+        long[] queued;
+        synchronized (this.loading) {
+            if (this.loading.isEmpty()) {
+                return;
+            }
+            queued = this.loading.toLongArray();
+        }
+        for (long key : queued) {
+            if (!this.corridor.contains(key)) {
+                // Releases the slot through the completion of the future
+                level.getChunkManager().cancelPrefetch(Chunk.fromKeyX(key), Chunk.fromKeyZ(key));
+            }
+        }
+    }
+
+    private boolean load(Level level, long key, int chunkX, int chunkZ) {
+        synchronized (this.loading) {
+            if (this.loading.contains(key)) {
+                return false;
+            }
+            if (LOADING_GLOBAL.incrementAndGet() > this.maxLoadingGlobal) {
+                LOADING_GLOBAL.decrementAndGet();
+                return false;
+            }
+            this.loading.add(key);
+        }
+
+        level.getChunkManager().prefetchChunk(chunkX, chunkZ).whenComplete((chunk, throwable) -> {
+            synchronized (this.loading) {
+                this.loading.remove(key);
+            }
+            LOADING_GLOBAL.decrementAndGet();
+        });
+        return true;
+    }
+
+    private void reset(double x, double z) {
+        this.lastX = x;
+        this.lastZ = z;
+        this.velocityX = 0;
+        this.velocityZ = 0;
+    }
+}
@@ -0,0 +1,82 @@
+package org.cloudburstmc.server.player.manager;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Decides how many chunks a player is sent per tick, between one and the configured
+ * {@link org.cloudburstmc.server.config.ServerConfig.ChunkSending#getPerTick()}.
+ * <p>
+ * The round trip time of the session is compared to the lowest one seen so far. When it grows well beyond that,
+ * packets are queuing up somewhere on the way to the client, so the number of chunks per tick is halved, at most once
+ * per round trip. While the round trip time stays low and the sender keeps using its whole allowance, the allowance
+ * slowly grows back.
+ */
+@NotThreadSafe
+class ChunkSendPacer {
+    private static final long MIN_LATENCY_MARGIN = 50;
+    private static final int TICK_MILLIS = 50;
+    private static final double INCREASE_PER_TICK = 0.25;
+    /**
+     * Ticks after which the lowest round trip time is raised by a millisecond, so it follows a route that got slower.
+     */
+    private static final int BASE_LATENCY_DECAY_TICKS = 100;
+
+    private final int maxPerTick;
+    private double allowance;
+    private long baseLatency = -1;
+    private int ticksSinceDecrease;
+    private int ticksSinceDecay;
+    private int sentThisTick;
+
+    ChunkSendPacer(int maxPerTick) {
+        Preconditions.checkArgument(maxPerTick > 0, "Chunks per tick must be positive");
+        this.maxPerTick = maxPerTick;
+        this.allowance = maxPerTick;
+    }
+
+    /**
+     * Starts a tick, adjusting the allowance to the current round trip time.
+     *
+     * @param latency current round trip time of the session in milliseconds
+     * @return chunks which may be sent this tick
+     */
+    int startTick(long latency) {
+        boolean limited = this.sentThisTick >= (int) this.allowance;
+        this.sentThisTick = 0;
+        this.ticksSinceDecrease++;
+
+        if (latency >= 0) {
+            if (this.baseLatency < 0 || latency < this.baseLatency) {
+                this.baseLatency = latency;
+                this.ticksSinceDecay = 0;
+            } else if (++this.ticksSinceDecay >= BASE_LATENCY_DECAY_TICKS) {
+                this.baseLatency++;
+                this.ticksSinceDecay = 0;
+            }
+
+            long ticksPerRoundTrip = latency / TICK_MILLIS + 1;
+            if (latency > this.baseLatency * 2 + MIN_LATENCY_MARGIN) {
+                if (this.ticksSinceDecrease >= ticksPerRoundTrip) {
+                    this.allowance = Math.max(1, this.allowance / 2);
+                    this.ticksSinceDecrease = 0;
+                }
+                return (int) this.allowance;
+            }
+        }
+
+        // Only grow while the allowance is what holds sending back, not the chunks being ready
+        if (limited) {
+            this.allowance = Math.min(this.maxPerTick, this.allowance + INCREASE_PER_TICK);
+        }
+        return (int) this.allowance;
+    }
+
+    /**
+     * Records a chunk sent during the current tick.
+     */
+    void onSent() {
+        this.sentThisTick++;
+    }
+}
@@ -0,0 +1,183 @@
+package org.cloudburstmc.server.player.manager;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.longs.*;
+import org.cloudburstmc.server.level.chunk.Chunk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * The circle of chunks a player can see.
+ * <p>
+ * When the center moves and the radius stays the same, only the rows the old and new circle share are compared, so
+ * just the strips of chunks which enter and leave the circle are touched. Everything is recomputed when the radius
+ * changes, the center jumps further than the diameter of the circle or the view was {@link #invalidate() invalidated}.
+ * The sets and lists used are kept between updates.
+ */
+@NotThreadSafe
+class ChunkView {
+    private final LongSet chunks = new LongOpenHashSet();
+    private final LongSet circle = new LongOpenHashSet();
+    private final LongList entered = new LongArrayList();
+    private final LongList left = new LongArrayList();
+    /**
+     * Half of the width of each row of the circle by its distance to the center row.
+     */
+    private int[] halfWidths = new int[0];
+    private int radius = -1;
+    private int centerX;
+    private int centerZ;
+    private boolean outdated = true;
+
+    /**
+     * Moves the view to the new center and radius. The chunks which entered and left the view are available through
+     * {@link #getEntered()} and {@link #getLeft()} until the next update.
+     *
+     * @param chunkX x of the center chunk
+     * @param chunkZ z of the center chunk
+     * @param radius radius in chunks
+     * @return whether any chunk entered or left the view
+     */
+    boolean update(int chunkX, int chunkZ, int radius) {
+        Preconditions.checkArgument(radius >= 0, "radius must not be negative");
+        this.entered.clear();
+        this.left.clear();
+
+        if (this.outdated || radius != this.radius || Math.abs(chunkX - this.centerX) > radius << 1 ||
+                Math.abs(chunkZ - this.centerZ) > radius << 1) {
+            if (radius != this.radius) {
+                this.halfWidths = halfWidths(radius);
+                this.radius = radius;
+            }
+            this.fill(chunkX, chunkZ);
+        } else if (chunkX != this.centerX || chunkZ != this.centerZ) {
+            this.move(chunkX, chunkZ);
+        }
+
+        this.outdated = false;
+        this.centerX = chunkX;
+        this.centerZ = chunkZ;
+        return !this.entered.isEmpty() || !this.left.isEmpty();
+    }
+
+    private void fill(int chunkX, int chunkZ) {
+        LongSet circle = this.circle;
+        circle.clear();
+        for (int dz = -this.radius; dz <= this.radius; dz++) {
+            int halfWidth = this.halfWidths[Math.abs(dz)];
+            for (int x = chunkX - halfWidth; x <= chunkX + halfWidth; x++) {
+                long key = Chunk.key(x, chunkZ + dz);
+                circle.add(key);
+                if (this.chunks.add(key)) {
+                    this.entered.add(key);
+                }
+            }
+        }
+
+        LongIterator iterator = this.chunks.iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.nextLong();
+            if (!circle.contains(key)) {
+                iterator.remove();
+                this.left.add(key);
+            }
+        }
+    }
+
+    private void move(int chunkX, int chunkZ) {
+        int radius = this.radius;
+        int minZ = Math.min(chunkZ, this.centerZ) - radius;
+        int maxZ = Math.max(chunkZ, this.centerZ) + radius;
+        for (int z = minZ; z <= maxZ; z++) {
+            int newDz = Math.abs(z - chunkZ);
+            int oldDz = Math.abs(z - this.centerZ);
+            // Empty ranges for rows outside of a circle
+            int newFrom = 0, newTo = -1, oldFrom = 0, oldTo = -1;
+            if (newDz <= radius) {
+                newFrom = chunkX - this.halfWidths[newDz];
+                newTo = chunkX + this.halfWidths[newDz];
+            }
+            if (oldDz <= radius) {
+                oldFrom = this.centerX - this.halfWidths[oldDz];
+                oldTo = this.centerX + this.halfWidths[oldDz];
+            }
+
+            for (int x = newFrom; x <= newTo; x++) {
+                if (x >= oldFrom && x <= oldTo) {
+                    x = oldTo;
+                    continue;
+                }
+                long key = Chunk.key(x, z);
+                if (this.chunks.add(key)) {
+                    this.entered.add(key);
+                }
+            }
+            for (int x = oldFrom; x <= oldTo; x++) {
+                if (x >= newFrom && x <= newTo) {
+                    x = newTo;
+                    continue;
+                }
+                long key = Chunk.key(x, z);
+                if (this.chunks.remove(key)) {
+                    this.left.add(key);
+                }
+            }
+        }
+    }
+
+    private static int[] halfWidths(int radius) {
+        int radiusSquared = radius * radius;
+        int[] halfWidths = new int[radius + 1];
+        for (int dz = 0; dz <= radius; dz++) {
+            int halfWidth = (int) Math.sqrt(radiusSquared - dz * dz);
+            while (halfWidth * halfWidth + dz * dz > radiusSquared) {
+                halfWidth--;
+            }
+            while ((halfWidth + 1) * (halfWidth + 1) + dz * dz <= radiusSquared) {
+                halfWidth++;
+            }
+            halfWidths[dz] = halfWidth;
+        }
+        return halfWidths;
+    }
+
+    /**
+     * Makes the next {@link #update(int, int, int)} recompute the whole view, so chunks removed through
+     * {@link #remove(long)} are added again.
+     */
+    void invalidate() {
+        this.outdated = true;
+    }
+
+    boolean contains(long key) {
+        return this.chunks.contains(key);
+    }
+
+    /**
+     * Removes a chunk from the view until the view is recomputed.
+     *
+     * @param key chunk key
+     * @return whether the chunk was in the view
+     */
+    boolean remove(long key) {
+        this.invalidate();
+        return this.chunks.remove(key);
+    }
+
+    void clear() {
+        this.chunks.clear();
+        this.invalidate();
+    }
+
+    LongSet getChunks() {
+        return this.chunks;
+    }
+
+    LongList getEntered() {
+        return this.entered;
+    }
+
+    LongList getLeft() {
+        return this.left;
+    }
+}
@@ -4,13 +4,13 @@ import co.aikar.timings.Timing;
 import co.aikar.timings.Timings;
 import com.nukkitx.math.vector.Vector3f;
 import com.nukkitx.protocol.bedrock.packet.ChunkRadiusUpdatedPacket;
-import com.nukkitx.protocol.bedrock.packet.LevelChunkPacket;
 import com.nukkitx.protocol.bedrock.packet.NetworkChunkPublisherUpdatePacket;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.longs.*;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
-import lombok.AccessLevel;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.cloudburstmc.server.CloudServer;
+import org.cloudburstmc.server.config.ServerConfig;
 import org.cloudburstmc.server.entity.Entity;
 import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.math.NukkitMath;
@@ -26,15 +26,27 @@ public class PlayerChunkManager {
 
     private final Player player;
     private final AroundPlayerChunkComparator comparator;
-    private final LongSet loadedChunks = new LongOpenHashSet();
-    private final Long2ObjectMap<LevelChunkPacket> sendQueue = new Long2ObjectOpenHashMap<>();
+    private final ChunkView view = new ChunkView();
+    private final Long2ObjectMap<ByteBuf> sendQueue = new Long2ObjectOpenHashMap<>();
+    /**
+     * Keys of {@link #sendQueue} by priority. Keys which left the send queue are skipped once they come up.
+     */
+    private LongPriorityQueue sendOrder;
+    private final ChunkSendPacer pacer;
+    private final ChunkPrefetcher prefetcher;
+    private boolean sendQueueOutdated;
     private final AtomicLong chunksSentCounter = new AtomicLong();
     private final LongConsumer removeChunkLoader;
     private volatile int radius;
 
     public PlayerChunkManager(Player player) {
         this.player = player;
-        this.comparator = new AroundPlayerChunkComparator(player);
+        this.comparator = new AroundPlayerChunkComparator();
+        this.sendOrder = new LongHeapPriorityQueue(this.comparator);
+        // The player is still being constructed, so its server is not set yet
+        ServerConfig.ChunkSending config = CloudServer.getInstance().getConfig().getChunkSending();
+        this.pacer = new ChunkSendPacer(config.getPerTick());
+        this.prefetcher = new ChunkPrefetcher(config.getPrefetchPerPlayer(), config.getPrefetchGlobal());
         this.removeChunkLoader = chunkKey -> {
             Chunk chunk = this.player.getLevel().getLoadedChunk(chunkKey);
             if (chunk != null) {
@@ -47,47 +59,40 @@ public class PlayerChunkManager {
     }
 
     public synchronized void sendQueued() {
-        int chunksPerTick = 16; //this.player.getServer().getConfig("chunk-sending.per-tick", 4);
-        ObjectIterator<Long2ObjectMap.Entry<LevelChunkPacket>> sendQueueIterator = this.sendQueue.long2ObjectEntrySet().iterator();
-        // Remove chunks which are out of range
-        while (sendQueueIterator.hasNext()) {
-            Long2ObjectMap.Entry<LevelChunkPacket> entry = sendQueueIterator.next();
-            long key = entry.getLongKey();
-            if (!this.loadedChunks.contains(key)) {
-//                LevelChunkPacket packet = entry.getValue();
-//                if (packet != null) {
-//                    packet.release();
-//                }
-                sendQueueIterator.remove();
-
-                Chunk chunk = this.player.getLevel().getLoadedChunk(key);
-                if (chunk != null) {
-                    chunk.removeLoader(this.player);
-                }
-            }
+        if (this.sendQueueOutdated) {
+            this.sendQueueOutdated = false;
+            this.removeOutOfRange();
         }
 
-        LongList list = new LongArrayList(this.sendQueue.keySet());
-
         try (Timing ignored = Timings.playerChunkOrderTimer.startTiming()) {
             // Order chunks around player.
-            list.unstableSort(this.comparator);
+            Vector3f pos = this.player.getPosition();
+            this.updateOrder(pos.getFloorX() >> 4, pos.getFloorZ() >> 4);
         }
 
+        int chunksPerTick = this.pacer.startTick(this.player.getPing());
+
         try (Timing ignored = Timings.playerChunkSendTimer.startTiming()) {
-            for (long key : list.toLongArray()) {
-                if (chunksPerTick < 0) {
-                    break;
+            while (chunksPerTick > 0 && !this.sendOrder.isEmpty()) {
+                long key = this.sendOrder.firstLong();
+                if (!this.sendQueue.containsKey(key)) {
+                    this.sendOrder.dequeueLong();
+                    continue;
                 }
 
-                LevelChunkPacket packet = this.sendQueue.get(key);
-                if (packet == null) {
+                ByteBuf batch = this.sendQueue.get(key);
+                if (batch == null) {
                     // Next packet is not available.
                     break;
                 }
 
+                this.sendOrder.dequeueLong();
                 this.sendQueue.remove(key);
-                this.player.sendPacket(packet);
+                try {
+                    this.player.sendWrapped(batch);
+                } finally {
+                    batch.release();
+                }
 
                 Chunk chunk = this.player.getLevel().getLoadedChunk(key);
                 checkArgument(chunk != null, "Attempted to send unloaded chunk (%s, %s) to %s",
@@ -101,9 +106,45 @@ public class PlayerChunkManager {
                 }
 
                 chunksPerTick--;
+                this.pacer.onSent();
                 this.chunksSentCounter.incrementAndGet();
             }
         }
+
+        this.prefetcher.tick(this.player.getLevel(), this.player.getPosition(), this.view, this.getChunkRadius());
+    }
+
+    /**
+     * Reorders the send queue if the player moved to another chunk or turned to another side since the last call.
+     */
+    private void updateOrder(int chunkX, int chunkZ) {
+        if (this.comparator.update(chunkX, chunkZ, this.player.getYaw())) {
+            this.sendOrder = new LongHeapPriorityQueue(this.sendQueue.keySet().toLongArray(), this.sendQueue.size(),
+                    this.comparator);
+        }
+    }
+
+    /**
+     * Removes chunks which are out of range from the send queue.
+     */
+    private void removeOutOfRange() {
+        ObjectIterator<Long2ObjectMap.Entry<ByteBuf>> sendQueueIterator = this.sendQueue.long2ObjectEntrySet().iterator();
+        while (sendQueueIterator.hasNext()) {
+            Long2ObjectMap.Entry<ByteBuf> entry = sendQueueIterator.next();
+            long key = entry.getLongKey();
+            if (!this.view.contains(key)) {
+                ByteBuf batch = entry.getValue();
+                if (batch != null) {
+                    batch.release();
+                }
+                sendQueueIterator.remove();
+
+                Chunk chunk = this.player.getLevel().getLoadedChunk(key);
+                if (chunk != null) {
+                    chunk.removeLoader(this.player);
+                }
+            }
+        }
     }
 
     public void queueNewChunks() {
@@ -115,77 +156,60 @@ public class PlayerChunkManager {
     }
 
     public synchronized void queueNewChunks(int chunkX, int chunkZ) {
-        int radius = this.getChunkRadius();
-        int radiusSqr = radius * radius;
-
-        LongSet chunksForRadius = new LongOpenHashSet();
+        this.updateOrder(chunkX, chunkZ);
 
-        LongSet sentCopy = new LongOpenHashSet(this.loadedChunks);
-
-        LongList chunksToLoad = new LongArrayList();
-
-        for (int x = -radius; x <= radius; ++x) {
-            for (int z = -radius; z <= radius; ++z) {
-                // Chunk radius is circular so we need to remove the corners.
-                if ((x * x) + (z * z) > radiusSqr) {
-                    continue;
-                }
-
-                int cx = chunkX + x;
-                int cz = chunkZ + z;
-
-                final long key = Chunk.key(cx, cz);
-
-                chunksForRadius.add(key);
-                if (this.loadedChunks.add(key)) {
-                    chunksToLoad.add(key);
-                }
-            }
+        if (!this.view.update(chunkX, chunkZ, this.getChunkRadius())) {
+            return;
         }
 
-        boolean loadedChunksChanged = this.loadedChunks.retainAll(chunksForRadius);
-        if (loadedChunksChanged || !chunksToLoad.isEmpty()) {
-            NetworkChunkPublisherUpdatePacket packet = new NetworkChunkPublisherUpdatePacket();
-            packet.setPosition(this.player.getPosition().toInt());
-            packet.setRadius(this.radius);
-            this.player.sendPacket(packet);
+        LongList chunksToLoad = this.view.getEntered();
+        LongList chunksToUnload = this.view.getLeft();
+        if (!chunksToUnload.isEmpty()) {
+            this.sendQueueOutdated = true;
         }
 
+        NetworkChunkPublisherUpdatePacket packet = new NetworkChunkPublisherUpdatePacket();
+        packet.setPosition(this.player.getPosition().toInt());
+        packet.setRadius(this.radius);
+        this.player.sendPacket(packet);
+
         // Order chunks for smoother loading
         chunksToLoad.sort(this.comparator);
 
-        for (final long key : chunksToLoad.toLongArray()) {
+        for (int i = 0; i < chunksToLoad.size(); i++) {
+            final long key = chunksToLoad.getLong(i);
             final int cx = Chunk.fromKeyX(key);
             final int cz = Chunk.fromKeyZ(key);
 
-            if (this.sendQueue.putIfAbsent(key, null) == null) {
+            if (!this.sendQueue.containsKey(key)) {
+                this.sendQueue.put(key, null);
+                this.sendOrder.enqueue(key);
                 this.player.getLevel().getChunkFuture(cx, cz).thenApply(chunk -> {
                     chunk.addLoader(this.player);
                     return chunk;
-                }).thenApplyAsync(Chunk::createChunkPacket, this.player.getServer().getScheduler().getAsyncPool())
-                        .whenComplete((packet, throwable) -> {
+                }).thenApplyAsync(chunk -> chunk.createChunkBatch(this.player.getSession()), this.player.getServer().getScheduler().getNetworkExecutor())
+                        .whenComplete((batch, throwable) -> {
                             synchronized (PlayerChunkManager.this) {
                                 if (throwable != null) {
                                     if (this.sendQueue.remove(key, null)) {
-                                        this.loadedChunks.remove(key);
+                                        this.view.remove(key);
                                     }
                                     log.error("Unable to create chunk packet for " + this.player.getName(), throwable);
-                                } else if (!this.sendQueue.replace(key, null, packet)) {
+                                } else if (!this.sendQueue.replace(key, null, batch)) {
                                     // The chunk was already loaded!?
                                     if (this.sendQueue.containsKey(key)) {
                                         log.warn("Chunk ({},{}) already loaded for {}, value {}", cx, cz,
                                                 this.player.getName(), this.sendQueue.get(key));
                                     }
-//                                    packet.release();
+                                    batch.release();
                                 }
                             }
                         });
             }
         }
 
-        sentCopy.removeAll(chunksForRadius);
         // Remove player from chunk loaders
-        sentCopy.forEach(this.removeChunkLoader);
+        chunksToUnload.forEach(this.removeChunkLoader);
     }
 
     public int getRadius() {
@@ -217,7 +241,7 @@ public class PlayerChunkManager {
     }
 
     public synchronized boolean isChunkInView(long key) {
-        return this.loadedChunks.contains(key);
+        return this.view.contains(key);
     }
 
     public long getChunksSent() {
@@ -225,12 +249,13 @@ public class PlayerChunkManager {
     }
 
     public LongSet getLoadedChunks() {
-        return LongSets.unmodifiable(this.loadedChunks);
+        return LongSets.unmodifiable(this.view.getChunks());
     }
 
     public synchronized void resendChunk(int chunkX, int chunkZ) {
         long chunkKey = Chunk.key(chunkX, chunkZ);
-        this.loadedChunks.remove(chunkKey);
+        this.view.remove(chunkKey);
+        this.sendQueueOutdated = true;
         removeChunkLoader.accept(chunkKey);
     }
 
@@ -245,37 +270,66 @@ public class PlayerChunkManager {
 
     public synchronized void clear() {
         // Release all chunks that are loading.
-//        this.sendQueue.values().forEach(levelChunkPacket -> {
-//            if (levelChunkPacket != null) {
-//                levelChunkPacket.release();
-//            }
-//        });
+        this.sendQueue.values().forEach(batch -> {
+            if (batch != null) {
+                batch.release();
+            }
+        });
         this.sendQueue.clear();
+        this.sendOrder.clear();
+        this.sendQueueOutdated = false;
 
-        this.loadedChunks.forEach(this.removeChunkLoader);
-        this.loadedChunks.clear();
+        this.view.getChunks().forEach(this.removeChunkLoader);
+        this.view.clear();
     }
 
-    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    /**
+     * Orders chunks by their distance to the chunk the player was in at the last {@link #update}. Chunks behind the
+     * player count as if they were further away, except for the ones right around the player. Only changes when it is
+     * updated, so it can order a heap.
+     */
     private static class AroundPlayerChunkComparator implements LongComparator {
-        private final Player player;
+        private int centerX;
+        private int centerZ;
+        private int quadrant = -1;
+        private double directionX;
+        private double directionZ;
+
+        /**
+         * Moves the center of the order to the player.
+         *
+         * @param chunkX x of the chunk the player is in
+         * @param chunkZ z of the chunk the player is in
+         * @param yaw    yaw of the player
+         * @return whether the order changed
+         */
+        private boolean update(int chunkX, int chunkZ, float yaw) {
+            int quadrant = NukkitMath.floorDouble(yaw / 90 + 0.5) & 3;
+            if (this.quadrant == quadrant && this.centerX == chunkX && this.centerZ == chunkZ) {
+                return false;
+            }
+            this.centerX = chunkX;
+            this.centerZ = chunkZ;
+            this.quadrant = quadrant;
+            double radians = Math.toRadians(quadrant * 90);
+            this.directionX = -Math.sin(radians);
+            this.directionZ = Math.cos(radians);
+            return true;
+        }
 
-        public static int distance(int centerX, int centerZ, int x, int z) {
-            int dx = centerX - x;
-            int dz = centerZ - z;
-            return dx * dx + dz * dz;
+        private int priority(long key) {
+            int dx = Chunk.fromKeyX(key) - this.centerX;
+            int dz = Chunk.fromKeyZ(key) - this.centerZ;
+            int distance = dx * dx + dz * dz;
+            if (distance > 2 && dx * this.directionX + dz * this.directionZ < 0) {
+                return distance << 1;
+            }
+            return distance;
         }
 
         @Override
         public int compare(long o1, long o2) {
-            int x1 = Chunk.fromKeyX(o1);
-            int z1 = Chunk.fromKeyZ(o1);
-            int x2 = Chunk.fromKeyX(o2);
-            int z2 = Chunk.fromKeyZ(o2);
-            int spawnX = this.player.getPosition().getFloorX() >> 4;
-            int spawnZ = this.player.getPosition().getFloorZ() >> 4;
-
-            return Integer.compare(distance(spawnX, spawnZ, x1, z1), distance(spawnX, spawnZ, x2, z2));
+            return Integer.compare(this.priority(o1), this.priority(o2));
         }
     }
 }
@@ -29,6 +29,7 @@ import org.cloudburstmc.server.utils.Identifier;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -39,6 +40,9 @@ import static org.cloudburstmc.server.block.BlockTypes.*;
 
 @Log4j2
 public class BlockRegistry implements Registry {
+    private static final int LEGACY_META_BITS = 6;
+    private static final int LEGACY_META_MASK = (1 << LEGACY_META_BITS) - 1;
+
     private static final BlockRegistry INSTANCE;
     private static final Map<Identifier, Integer> VANILLA_LEGACY_IDS;
 
@@ -62,6 +66,8 @@ public class BlockRegistry implements Registry {
     private NbtMap propertiesTag;
     private volatile boolean closed;
     private transient NbtList<NbtMap> serializedPalette;
+    // Runtime IDs indexed by legacy id and meta, -1 until the combination has been looked up once.
+    private volatile int[] legacyRuntimeIds;
 
     private BlockRegistry() {
         BlockTraitSerializers.init();
@@ -163,6 +169,14 @@ public class BlockRegistry implements Registry {
     }
 
     public int getRuntimeId(Identifier identifier, int meta) {
+        Integer legacyId = this.idLegacyMap.get(identifier);
+        if (legacyId != null) {
+            return getRuntimeId(legacyId, meta);
+        }
+        return this.lookupRuntimeId(identifier, meta);
+    }
+
+    private int lookupRuntimeId(Identifier identifier, int meta) {
         NbtMap tag = NbtMap.builder()
                 .putString("name", identifier.toString())
                 .putShort("val", (short) meta)
@@ -175,7 +189,20 @@ public class BlockRegistry implements Registry {
     }
 
     public int getRuntimeId(int id, int meta) {
-        return getRuntimeId(this.idLegacyMap.inverse().get(id), meta);
+        int[] legacyRuntimeIds = this.legacyRuntimeIds;
+        int index = (id << LEGACY_META_BITS) | meta;
+        if (legacyRuntimeIds == null || id < 0 || meta < 0 || meta > LEGACY_META_MASK ||
+                index >= legacyRuntimeIds.length) {
+            return this.lookupRuntimeId(this.idLegacyMap.inverse().get(id), meta);
+        }
+
+        int runtimeId = legacyRuntimeIds[index];
+        if (runtimeId == -1) {
+            // Racing lookups compute the same value so the table needs no synchronization.
+            runtimeId = this.lookupRuntimeId(this.idLegacyMap.inverse().get(id), meta);
+            legacyRuntimeIds[index] = runtimeId;
+        }
+        return runtimeId;
     }
 
     public BlockState getBlock(BlockType type) {
@@ -265,6 +292,13 @@ public class BlockRegistry implements Registry {
         this.closed = true;
         this.palette.generateRuntimeIds();
         // generate cache
+        int maxLegacyId = 0;
+        for (int legacyId : this.idLegacyMap.values()) {
+            maxLegacyId = Math.max(maxLegacyId, legacyId);
+        }
+        int[] legacyRuntimeIds = new int[(maxLegacyId + 1) << LEGACY_META_BITS];
+        Arrays.fill(legacyRuntimeIds, -1);
+        this.legacyRuntimeIds = legacyRuntimeIds;
 
         this.propertiesTag = NbtMap.EMPTY;
     }
@@ -1,95 +1,135 @@
 package org.cloudburstmc.server.scheduler;
 
-import com.google.common.collect.Maps;
 import com.nukkitx.math.vector.Vector3i;
 import com.nukkitx.math.vector.Vector4i;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import lombok.extern.log4j.Log4j2;
 import lombok.val;
 import org.cloudburstmc.server.block.Block;
 import org.cloudburstmc.server.block.BlockStates;
 import org.cloudburstmc.server.level.Level;
+import org.cloudburstmc.server.level.chunk.Chunk;
 import org.cloudburstmc.server.math.AxisAlignedBB;
 import org.cloudburstmc.server.utils.BlockUpdateEntry;
 
 import java.util.*;
 
+/**
+ * Scheduled block updates of a level.
+ * <p>
+ * Updates are stored per chunk and the updates of loaded chunks are additionally ordered by the tick they are due,
+ * so a tick only has to look at the updates which are due. Updates which become due while their chunk is not loaded
+ * park the whole chunk until it has loaded. When a chunk unloads its updates are saved with it and handed back through
+ * {@link org.cloudburstmc.server.level.chunk.ChunkBuilder#blockUpdate} once it is loaded again.
+ */
 @Log4j2
 public class BlockUpdateScheduler {
     private final Level level;
     private long lastTick;
-    private Map<Long, LinkedHashSet<BlockUpdateEntry>> queuedUpdates;
+    /**
+     * Updates of every chunk, loaded or not, by chunk key. Maps each update to itself to look up the queued instance.
+     */
+    private final Long2ObjectMap<Map<BlockUpdateEntry, BlockUpdateEntry>> chunkUpdates = new Long2ObjectOpenHashMap<>();
+    /**
+     * Chunks whose updates are not in the time index because the chunk was not loaded when one of them became due.
+     */
+    private final LongSet parkedChunks = new LongOpenHashSet();
+    /**
+     * Updates of loaded chunks, ordered by due tick and priority.
+     */
+    private final TreeSet<BlockUpdateEntry> timeIndex = new TreeSet<>();
 
-    private Set<BlockUpdateEntry> pendingUpdates;
+    private volatile Set<BlockUpdateEntry> pendingUpdates;
 
     public BlockUpdateScheduler(Level level, long currentTick) {
-        queuedUpdates = Maps.newHashMap(); // Change to ConcurrentHashMap if this needs to be concurrent
         lastTick = currentTick;
         this.level = level;
     }
 
-    public synchronized void tick(long currentTick) {
-        // Should only perform once, unless ticks were skipped
-        if (currentTick - lastTick < Short.MAX_VALUE) {// Arbitrary
-            for (long tick = lastTick + 1; tick <= currentTick; tick++) {
-                perform(tick);
+    public void tick(long currentTick) {
+        List<BlockUpdateEntry> due = new ArrayList<>();
+        synchronized (this) {
+            lastTick = currentTick;
+            if (!parkedChunks.isEmpty()) {
+                unparkLoadedChunks();
             }
-        } else {
-            ArrayList<Long> times = new ArrayList<>(queuedUpdates.keySet());
-            Collections.sort(times);
-            for (long tick : times) {
-                if (tick <= currentTick) {
-                    perform(tick);
-                } else {
-                    break;
+            while (!timeIndex.isEmpty() && timeIndex.first().delay <= currentTick) {
+                BlockUpdateEntry entry = timeIndex.pollFirst();
+                removeFromChunk(entry);
+                due.add(entry);
+            }
+            // The updates were saved with their chunks, which have to be saved again without them
+            long lastChunkKey = 0;
+            for (int i = 0; i < due.size(); i++) {
+                Vector3i pos = due.get(i).pos;
+                long chunkKey = Chunk.key(pos.getX() >> 4, pos.getZ() >> 4);
+                if (i == 0 || chunkKey != lastChunkKey) {
+                    markDirty(chunkKey);
+                    lastChunkKey = chunkKey;
                 }
             }
         }
-        lastTick = currentTick;
-    }
+        if (due.isEmpty()) {
+            return;
+        }
 
-    private void perform(long tick) {
         try {
-            lastTick = tick;
-            Set<BlockUpdateEntry> updates = pendingUpdates = queuedUpdates.remove(tick);
-            if (updates != null) {
-                for (BlockUpdateEntry entry : updates) {
-                    Vector3i pos = entry.pos;
-                    if (level.isChunkLoaded(pos.getX() >> 4, pos.getZ() >> 4)) {
-                        Block block = level.getBlock(entry.pos);
-                        val state = block.getState();
-                        val extra = block.getExtra();
-
-                        if (entry.block.getState() == state) {
-                            state.getBehavior().onUpdate(block, Level.BLOCK_UPDATE_SCHEDULED);
-                        }
-
-                        if (entry.block.getExtra() == extra && extra != BlockStates.AIR) {
-                            extra.getBehavior().onUpdate(block, Level.BLOCK_UPDATE_SCHEDULED);
-                        }
-                    } else {
-                        level.scheduleUpdate(entry.block, entry.pos, 0);
-                    }
-                }
+            pendingUpdates = new HashSet<>(due);
+            for (BlockUpdateEntry entry : due) {
+                perform(entry);
             }
         } finally {
             pendingUpdates = null;
         }
     }
 
-    public Set<BlockUpdateEntry> getPendingBlockUpdates(AxisAlignedBB boundingBox) {
+    private void perform(BlockUpdateEntry entry) {
+        Vector3i pos = entry.pos;
+        if (!level.isChunkLoaded(pos.getX() >> 4, pos.getZ() >> 4)) {
+            park(entry);
+            return;
+        }
+
+        Block block = level.getBlock(entry.pos);
+        val state = block.getState();
+        val extra = block.getExtra();
+
+        if (entry.block.getState() == state) {
+            state.getBehavior().onUpdate(block, Level.BLOCK_UPDATE_SCHEDULED);
+        }
+
+        if (entry.block.getExtra() == extra && extra != BlockStates.AIR) {
+            extra.getBehavior().onUpdate(block, Level.BLOCK_UPDATE_SCHEDULED);
+        }
+    }
+
+    public synchronized Set<BlockUpdateEntry> getPendingBlockUpdates(AxisAlignedBB boundingBox) {
         Set<BlockUpdateEntry> set = null;
 
-        for (Map.Entry<Long, LinkedHashSet<BlockUpdateEntry>> tickEntries : this.queuedUpdates.entrySet()) {
-            LinkedHashSet<BlockUpdateEntry> tickSet = tickEntries.getValue();
-            for (BlockUpdateEntry update : tickSet) {
-                Vector3i pos = update.pos;
+        int minChunkX = (int) Math.floor(boundingBox.getMinX()) >> 4;
+        int maxChunkX = (int) Math.ceil(boundingBox.getMaxX()) >> 4;
+        int minChunkZ = (int) Math.floor(boundingBox.getMinZ()) >> 4;
+        int maxChunkZ = (int) Math.ceil(boundingBox.getMaxZ()) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(Chunk.key(chunkX, chunkZ));
+                if (updates == null) {
+                    continue;
+                }
+                for (BlockUpdateEntry update : updates.keySet()) {
+                    Vector3i pos = update.pos;
+
+                    if (pos.getX() >= boundingBox.getMinX() && pos.getX() < boundingBox.getMaxX() && pos.getZ() >= boundingBox.getMinZ() && pos.getZ() < boundingBox.getMaxZ()) {
+                        if (set == null) {
+                            set = new LinkedHashSet<>();
+                        }
 
-                if (pos.getX() >= boundingBox.getMinX() && pos.getX() < boundingBox.getMaxX() && pos.getZ() >= boundingBox.getMinZ() && pos.getZ() < boundingBox.getMaxZ()) {
-                    if (set == null) {
-                        set = new LinkedHashSet<>();
+                        set.add(update);
                     }
-
-                    set.add(update);
                 }
             }
         }
@@ -97,6 +137,34 @@ public class BlockUpdateScheduler {
         return set;
     }
 
+    /**
+     * Gets the updates scheduled in a chunk, such as to save them with the chunk.
+     *
+     * @param chunkX chunk x
+     * @param chunkZ chunk z
+     * @return copy of the updates scheduled in the chunk
+     */
+    public synchronized List<BlockUpdateEntry> getChunkUpdates(int chunkX, int chunkZ) {
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(Chunk.key(chunkX, chunkZ));
+        if (updates == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(updates.keySet());
+    }
+
+    /**
+     * Drops the updates of the chunk. Called while the chunk unloads, after its updates have been saved and before it
+     * is unmapped, so the updates of the chunk loading again are kept.
+     *
+     * @param chunkKey chunk key
+     */
+    public synchronized void unloadChunk(long chunkKey) {
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.remove(chunkKey);
+        if (updates != null && !parkedChunks.remove(chunkKey)) {
+            timeIndex.removeAll(updates.keySet());
+        }
+    }
+
     public boolean isBlockTickPending(Vector3i pos, Block blockState) {
         Set<BlockUpdateEntry> tmpUpdates = pendingUpdates;
         if (tmpUpdates == null || tmpUpdates.isEmpty()) return false;
@@ -107,40 +175,99 @@ public class BlockUpdateScheduler {
         return Math.max(entry.delay, lastTick + 1);
     }
 
-    public void add(BlockUpdateEntry entry) {
-        long time = getMinTime(entry);
-        LinkedHashSet<BlockUpdateEntry> updateSet = queuedUpdates.get(time);
-        if (updateSet == null) {
-            LinkedHashSet<BlockUpdateEntry> tmp = queuedUpdates.putIfAbsent(time, updateSet = new LinkedHashSet<>());
-            if (tmp != null) updateSet = tmp;
+    public synchronized void add(BlockUpdateEntry entry) {
+        entry.delay = getMinTime(entry);
+        int chunkX = entry.pos.getX() >> 4;
+        int chunkZ = entry.pos.getZ() >> 4;
+        long chunkKey = Chunk.key(chunkX, chunkZ);
+
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.computeIfAbsent(chunkKey, key -> new HashMap<>());
+        if (updates.putIfAbsent(entry, entry) != null) {
+            return;
+        }
+
+        if (!parkedChunks.contains(chunkKey)) {
+            timeIndex.add(entry);
+            // Scheduled updates are saved with the chunk
+            markDirty(chunkKey);
         }
-        updateSet.add(entry);
     }
 
-    public boolean contains(BlockUpdateEntry entry) {
-        for (Map.Entry<Long, LinkedHashSet<BlockUpdateEntry>> tickUpdateSet : queuedUpdates.entrySet()) {
-            if (tickUpdateSet.getValue().contains(entry)) {
-                return true;
-            }
+    public synchronized boolean contains(BlockUpdateEntry entry) {
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(Chunk.key(entry.pos.getX() >> 4, entry.pos.getZ() >> 4));
+        return updates != null && updates.containsKey(entry);
+    }
+
+    public synchronized boolean remove(BlockUpdateEntry entry) {
+        long chunkKey = Chunk.key(entry.pos.getX() >> 4, entry.pos.getZ() >> 4);
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(chunkKey);
+        if (updates == null) {
+            return false;
         }
-        return false;
+        BlockUpdateEntry queued = updates.remove(entry);
+        if (queued == null) {
+            return false;
+        }
+        timeIndex.remove(queued);
+        if (updates.isEmpty()) {
+            chunkUpdates.remove(chunkKey);
+            parkedChunks.remove(chunkKey);
+        }
+        markDirty(chunkKey);
+        return true;
     }
 
-    public boolean remove(BlockUpdateEntry entry) {
-        for (Map.Entry<Long, LinkedHashSet<BlockUpdateEntry>> tickUpdateSet : queuedUpdates.entrySet()) {
-            if (tickUpdateSet.getValue().remove(entry)) {
-                return true;
+    public synchronized boolean remove(Vector4i pos) {
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(Chunk.key(pos.getX() >> 4, pos.getZ() >> 4));
+        if (updates == null) {
+            return false;
+        }
+        for (BlockUpdateEntry entry : updates.keySet()) {
+            if (entry.pos.getX() == pos.getX() && entry.pos.getY() == pos.getY() && entry.pos.getZ() == pos.getZ()) {
+                return remove(entry);
             }
         }
         return false;
     }
 
-    public boolean remove(Vector4i pos) {
-        for (Map.Entry<Long, LinkedHashSet<BlockUpdateEntry>> tickUpdateSet : queuedUpdates.entrySet()) {
-            if (tickUpdateSet.getValue().remove(pos)) {
-                return true;
+    /**
+     * Takes the updates of a chunk out of the time index until it has loaded.
+     */
+    private synchronized void park(BlockUpdateEntry entry) {
+        long chunkKey = Chunk.key(entry.pos.getX() >> 4, entry.pos.getZ() >> 4);
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.computeIfAbsent(chunkKey, key -> new HashMap<>());
+        updates.putIfAbsent(entry, entry);
+        if (parkedChunks.add(chunkKey)) {
+            timeIndex.removeAll(updates.keySet());
+        }
+    }
+
+    private void unparkLoadedChunks() {
+        LongIterator iterator = parkedChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunkKey = iterator.nextLong();
+            if (level.isChunkLoaded(Chunk.fromKeyX(chunkKey), Chunk.fromKeyZ(chunkKey))) {
+                iterator.remove();
+                Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(chunkKey);
+                if (updates != null) {
+                    timeIndex.addAll(updates.keySet());
+                }
             }
         }
-        return false;
+    }
+
+    private void markDirty(long chunkKey) {
+        Chunk chunk = level.getLoadedChunk(Chunk.fromKeyX(chunkKey), Chunk.fromKeyZ(chunkKey));
+        if (chunk != null) {
+            chunk.setDirty(true);
+        }
+    }
+
+    private void removeFromChunk(BlockUpdateEntry entry) {
+        long chunkKey = Chunk.key(entry.pos.getX() >> 4, entry.pos.getZ() >> 4);
+        Map<BlockUpdateEntry, BlockUpdateEntry> updates = chunkUpdates.get(chunkKey);
+        if (updates != null && updates.remove(entry) != null && updates.isEmpty()) {
+            chunkUpdates.remove(chunkKey);
+        }
     }
 }
@@ -0,0 +1,179 @@
+package org.cloudburstmc.server.scheduler;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.log4j.Log4j2;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size executor with a bounded queue that is used for one kind of work, such as chunk I/O or world generation,
+ * so that it cannot starve the others.
+ * <p>
+ * What happens once the queue is full depends on the {@link Saturation} policy. Server executors make the submitting
+ * thread wait for space in the queue, which slows down whoever produces work faster than the executor can handle it
+ * rather than queueing without bound. The plugin executor rejects the task instead, so a plugin flooding it cannot
+ * stall the main thread. Either way, a task submitted by a thread of the executor itself runs on that thread, as
+ * waiting for space could deadlock the executor.
+ */
+@Log4j2
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class ServerExecutor extends ThreadPoolExecutor {
+
+    private static final ThreadLocal<ServerExecutor> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final Saturation saturation;
+    private final LongAdder latency = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder saturated = new LongAdder();
+
+    public ServerExecutor(String name, int threads, int queueSize) {
+        this(name, threads, queueSize, Saturation.BLOCK);
+    }
+
+    public ServerExecutor(String name, int threads, int queueSize, Saturation saturation) {
+        super(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueSize), new Factory(name));
+        Preconditions.checkArgument(queueSize > 0, "queueSize must be positive");
+        Preconditions.checkNotNull(saturation, "saturation");
+        this.name = name;
+        this.saturation = saturation;
+        this.setRejectedExecutionHandler(new Backpressure());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(new TimedTask(command));
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        CURRENT.set(this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return this.getQueue().size();
+    }
+
+    /**
+     * Average time between a task being submitted and its completion.
+     *
+     * @param unit unit to return the latency in
+     * @return average latency of all completed tasks
+     */
+    public double getAverageLatency(TimeUnit unit) {
+        long count = this.completed.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) this.latency.sum() / count / unit.toNanos(1);
+    }
+
+    /**
+     * Number of tasks which were submitted while the queue was full.
+     *
+     * @return saturated task count
+     */
+    public long getSaturatedCount() {
+        return this.saturated.sum();
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " [threads=" + this.getPoolSize() + ", active=" + this.getActiveCount() +
+                ", queued=" + this.getQueueDepth() + ", saturated=" + this.getSaturatedCount() + "]";
+    }
+
+    private class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long submitTime = System.nanoTime();
+
+        private TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.task.run();
+            } finally {
+                ServerExecutor.this.latency.add(System.nanoTime() - this.submitTime);
+                ServerExecutor.this.completed.increment();
+            }
+        }
+    }
+
+    /**
+     * What to do with a task submitted while the queue is full.
+     */
+    public enum Saturation {
+        /**
+         * Wait for space in the queue.
+         */
+        BLOCK,
+        /**
+         * Throw a {@link RejectedExecutionException}.
+         */
+        REJECT
+    }
+
+    private class Backpressure implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            String name = ServerExecutor.this.name;
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException(name + " has been shut down");
+            }
+            boolean first = ServerExecutor.this.saturated.sum() == 0;
+            ServerExecutor.this.saturated.increment();
+
+            if (CURRENT.get() == ServerExecutor.this) {
+                task.run();
+                return;
+            }
+            if (ServerExecutor.this.saturation == Saturation.REJECT) {
+                throw new RejectedExecutionException(name + " executor is saturated");
+            }
+
+            if (first) {
+                log.warn("{} executor is saturated, submitting threads wait for it to catch up", name);
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted whilst waiting for " + name, e);
+            }
+            if (executor.isShutdown() && executor.remove(task)) {
+                throw new RejectedExecutionException(name + " has been shut down");
+            }
+        }
+    }
+
+    private static class Factory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Factory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, this.name + " Executor #" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler(new ServerScheduler.ExceptionHandler());
+            return thread;
+        }
+    }
+}
@@ -1,24 +1,29 @@
 package org.cloudburstmc.server.scheduler;
 
+import com.google.common.base.Preconditions;
 import lombok.extern.log4j.Log4j2;
 import org.cloudburstmc.api.plugin.PluginContainer;
 import org.cloudburstmc.api.plugin.PluginManager;
+import org.cloudburstmc.server.config.ServerConfig;
 import org.cloudburstmc.server.utils.PluginException;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.ArrayDeque;
-import java.util.Map;
-import java.util.Queue;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
+ * Tasks can be scheduled and cancelled from any thread. They are handed to the main thread through concurrent queues
+ * and kept in a {@link TimingWheel} by the tick they are due, so scheduling and cancelling are constant time no matter
+ * how many tasks are queued.
+ *
  * @author Nukkit Project Team
  */
 @Log4j2
@@ -26,10 +31,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class ServerScheduler {
 
     private final PluginManager pluginManager;
-    private final ForkJoinPool asyncPool;
+    private volatile ServerExecutor ioExecutor;
+    private volatile ServerExecutor generationExecutor;
+    private volatile ServerExecutor networkExecutor;
+    private volatile ServerExecutor asyncPool;
 
     private final Queue<TaskHandler> pending;
-    private final Map<Integer, ArrayDeque<TaskHandler>> queueMap;
+    private final Queue<TaskHandler> cancelled;
+    private final TimingWheel wheel;
+    private final List<TaskHandler> due = new ArrayList<>();
     private final Map<Integer, TaskHandler> taskMap;
     private final AtomicInteger currentTaskId;
 
@@ -39,10 +49,57 @@ public class ServerScheduler {
     public ServerScheduler(PluginManager pluginManager) {
         this.pluginManager = pluginManager;
         this.pending = new ConcurrentLinkedQueue<>();
+        this.cancelled = new ConcurrentLinkedQueue<>();
         this.currentTaskId = new AtomicInteger();
-        this.queueMap = new ConcurrentHashMap<>();
+        this.wheel = new TimingWheel(0);
         this.taskMap = new ConcurrentHashMap<>();
-        this.asyncPool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Creates the executors used for chunk I/O, world generation, network encoding and plugin tasks.
+     *
+     * @param config       executor settings
+     * @param asyncWorkers threads of the plugin executor if not set in the executor settings, 0 or less picks a
+     *                     default
+     */
+    public void initExecutors(ServerConfig.Executors config, int asyncWorkers) {
+        Preconditions.checkState(this.asyncPool == null, "Executors have already been initialized");
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.ioExecutor = createExecutor("IO", config.getIo(), 4);
+        this.generationExecutor = createExecutor("Generation", config.getGeneration(), processors - 1);
+        this.networkExecutor = createExecutor("Network", config.getNetwork(), processors / 2);
+        this.asyncPool = createExecutor("Plugin", config.getPlugins(), asyncWorkers > 0 ? asyncWorkers : processors / 2,
+                ServerExecutor.Saturation.REJECT);
+    }
+
+    private static ServerExecutor createExecutor(String name, ServerConfig.Pool config, int defaultThreads) {
+        return createExecutor(name, config, defaultThreads, ServerExecutor.Saturation.BLOCK);
+    }
+
+    private static ServerExecutor createExecutor(String name, ServerConfig.Pool config, int defaultThreads,
+                                                 ServerExecutor.Saturation saturation) {
+        int threads = config.getThreads() > 0 ? config.getThreads() : Math.max(1, defaultThreads);
+        log.debug("{} executor threads: {}", name, threads);
+        return new ServerExecutor(name, threads, config.getQueueSize(), saturation);
+    }
+
+    /**
+     * Stops all executors, waiting for the tasks already submitted to finish.
+     */
+    public void shutdownExecutors() {
+        for (ServerExecutor executor : this.getExecutors()) {
+            executor.shutdown();
+        }
+        for (ServerExecutor executor : this.getExecutors()) {
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("{} executor did not finish its tasks in time", executor.getName());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
     }
 
     public TaskHandler scheduleTask(Task task) {
@@ -94,10 +151,49 @@ public class ServerScheduler {
         return asyncPool.getPoolSize();
     }
 
-    public ForkJoinPool getAsyncPool() {
+    /**
+     * Executor for plugin and other asynchronous tasks.
+     *
+     * @return async pool
+     */
+    public ServerExecutor getAsyncPool() {
         return asyncPool;
     }
 
+    /**
+     * Executor for blocking disk access such as chunk reads.
+     *
+     * @return I/O executor
+     */
+    public ServerExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Executor for chunk generation, population and finishing.
+     *
+     * @return generation executor
+     */
+    public ServerExecutor getGenerationExecutor() {
+        return generationExecutor;
+    }
+
+    /**
+     * Executor for encoding and compressing packets, such as chunk batches.
+     *
+     * @return network executor
+     */
+    public ServerExecutor getNetworkExecutor() {
+        return networkExecutor;
+    }
+
+    public List<ServerExecutor> getExecutors() {
+        if (this.asyncPool == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(this.ioExecutor, this.generationExecutor, this.networkExecutor, this.asyncPool);
+    }
+
     public TaskHandler scheduleDelayedTask(Task task, int delay) {
         return this.addTask(task, delay, 0, false);
     }
@@ -195,13 +291,20 @@ public class ServerScheduler {
     }
 
     public void cancelTask(int taskId) {
-        if (taskMap.containsKey(taskId)) {
-            try {
-                taskMap.remove(taskId).cancel();
-            } catch (RuntimeException ex) {
-                log.error("Exception while invoking onCancel", ex);
-            }
+        TaskHandler taskHandler = taskMap.remove(taskId);
+        if (taskHandler != null) {
+            this.cancel(taskHandler);
+        }
+    }
+
+    private void cancel(TaskHandler taskHandler) {
+        try {
+            taskHandler.cancel();
+        } catch (RuntimeException ex) {
+            log.error("Exception while invoking onCancel", ex);
         }
+        // Removed from the wheel by the main thread
+        this.cancelled.offer(taskHandler);
     }
 
     public void cancelTask(Object plugin) {
@@ -211,25 +314,15 @@ public class ServerScheduler {
             // TODO: Remove the "taskHandler.getPlugin() == null" check
             // It is only there for backwards compatibility!
             if (container == taskHandler.getPlugin()) {
-                try {
-                    taskHandler.cancel(); /* It will remove from task map automatic in next main heartbeat. */
-                } catch (RuntimeException ex) {
-                    log.error("Exception while invoking onCancel", ex);
-                }
+                this.cancelTask(taskHandler.getTaskId());
             }
         }
     }
 
     public void cancelAllTasks() {
-        for (Map.Entry<Integer, TaskHandler> entry : this.taskMap.entrySet()) {
-            try {
-                entry.getValue().cancel();
-            } catch (RuntimeException ex) {
-                log.error("Exception while invoking onCancel", ex);
-            }
+        for (Integer taskId : this.taskMap.keySet()) {
+            this.cancelTask(taskId);
         }
-        this.taskMap.clear();
-        this.queueMap.clear();
         this.currentTaskId.set(0);
     }
 
@@ -263,67 +356,68 @@ public class ServerScheduler {
     }
 
     public void mainThreadHeartbeat(int currentTick) {
-        // Accepts pending.
         TaskHandler task;
-        while ((task = pending.poll()) != null) {
-            int tick = Math.max(currentTick, task.getNextRunTick()); // Do not schedule in the past
-            this.queueMap.computeIfAbsent(tick, integer -> new ArrayDeque<>()).add(task);
+        while ((task = cancelled.poll()) != null) {
+            wheel.remove(task);
         }
-        if (currentTick - this.currentTick > queueMap.size()) { // A large number of ticks have passed since the last execution
-            for (Map.Entry<Integer, ArrayDeque<TaskHandler>> entry : queueMap.entrySet()) {
-                int tick = entry.getKey();
-                if (tick <= currentTick) {
-                    runTasks(tick);
-                }
+        // Accepts pending.
+        while ((task = pending.poll()) != null) {
+            if (!task.isCancelled()) {
+                wheel.add(task);
             }
-        } else { // Normal server tick
-            for (int i = this.currentTick + 1; i <= currentTick; i++) {
-                runTasks(currentTick);
+        }
+
+        // Tasks which became due whilst the server was stalled only run once, in the order they were due
+        wheel.advance(currentTick, due);
+        try {
+            for (TaskHandler taskHandler : due) {
+                runTask(taskHandler, currentTick);
             }
+        } finally {
+            due.clear();
         }
         this.currentTick = currentTick;
         AsyncTask.collectTask();
     }
 
-    private void runTasks(int currentTick) {
-        ArrayDeque<TaskHandler> queue = queueMap.remove(currentTick);
-        if (queue != null) {
-            for (TaskHandler taskHandler : queue) {
-                if (taskHandler.isCancelled()) {
-                    taskMap.remove(taskHandler.getTaskId());
-                    continue;
-                } else if (taskHandler.isAsynchronous()) {
-                    asyncPool.execute(taskHandler.getTask());
-                } else {
-                    taskHandler.timing.startTiming();
-                    try {
-                        taskHandler.run(currentTick);
-                    } catch (Throwable e) {
-                        log.error("Could not execute taskHandler " + taskHandler.getTaskId(), e);
-                    }
-                    taskHandler.timing.stopTiming();
-                }
-                if (taskHandler.isRepeating()) {
-                    taskHandler.setNextRunTick(currentTick + taskHandler.getPeriod());
-                    pending.offer(taskHandler);
-                } else {
-                    try {
-                        TaskHandler removed = taskMap.remove(taskHandler.getTaskId());
-                        if (removed != null) removed.cancel();
-                    } catch (RuntimeException ex) {
-                        log.error("Exception while invoking onCancel", ex);
-                    }
-                }
+    private void runTask(TaskHandler taskHandler, int currentTick) {
+        if (taskHandler.isCancelled()) {
+            taskMap.remove(taskHandler.getTaskId());
+            return;
+        } else if (taskHandler.isAsynchronous()) {
+            try {
+                asyncPool.execute(taskHandler.getTask());
+            } catch (RejectedExecutionException e) {
+                log.warn("Could not execute asynchronous taskHandler " + taskHandler.getTaskId() + ": " + e.getMessage());
+            }
+        } else {
+            taskHandler.timing.startTiming();
+            try {
+                taskHandler.run(currentTick);
+            } catch (Throwable e) {
+                log.error("Could not execute taskHandler " + taskHandler.getTaskId(), e);
+            }
+            taskHandler.timing.stopTiming();
+        }
+        if (taskHandler.isRepeating()) {
+            if (!taskHandler.isCancelled()) {
+                taskHandler.setNextRunTick(currentTick + taskHandler.getPeriod());
+                wheel.add(taskHandler);
+            } else {
+                taskMap.remove(taskHandler.getTaskId());
+            }
+        } else {
+            try {
+                TaskHandler removed = taskMap.remove(taskHandler.getTaskId());
+                if (removed != null) removed.cancel();
+            } catch (RuntimeException ex) {
+                log.error("Exception while invoking onCancel", ex);
             }
         }
     }
 
     public int getQueueSize() {
-        int size = pending.size();
-        for (ArrayDeque<TaskHandler> queue : queueMap.values()) {
-            size += queue.size();
-        }
-        return size;
+        return pending.size() + wheel.size();
     }
 
     private int nextTaskId() {
@@ -22,7 +22,14 @@ public class TaskHandler {
     private int lastRunTick;
     private int nextRunTick;
 
-    private boolean cancelled;
+    private volatile boolean cancelled;
+
+    /**
+     * Position in the {@link TimingWheel} of the scheduler. Only accessed from the main thread.
+     */
+    TimingWheel.Bucket bucket;
+    TaskHandler previous;
+    TaskHandler next;
 
     public final Timing timing;
 
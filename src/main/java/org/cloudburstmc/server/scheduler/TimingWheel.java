@@ -0,0 +1,233 @@
+package org.cloudburstmc.server.scheduler;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel holding the tasks of a {@link ServerScheduler} by the tick they are due.
+ * <p>
+ * Each of the {@value #LEVELS} wheels has {@value #SLOTS} slots. The first wheel has a slot per tick, every wheel
+ * above it a slot per full turn of the wheel below. A task is put on the lowest wheel that the next tick and its due
+ * tick share, and is moved down a wheel whenever the wheel below starts the turn containing its due tick. Tasks due
+ * more than a full turn of the top wheel ahead wait in an overflow list until the top wheel comes around.
+ * <p>
+ * Tasks are linked into their slot directly, so adding and removing a task are constant time and ticks without due
+ * tasks only cost a slot lookup.
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class TimingWheel {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+    private static final long CATCH_UP_TICKS = SLOTS * SLOTS;
+
+    private static final Comparator<TaskHandler> BY_DUE_TICK = Comparator.comparingInt(TaskHandler::getNextRunTick);
+
+    private final Bucket[][] wheels = new Bucket[LEVELS][SLOTS];
+    private final Bucket overflow = new Bucket();
+    /**
+     * Next tick which has not been advanced past yet.
+     */
+    private long nextTick;
+    private int size;
+
+    TimingWheel(long nextTick) {
+        this.nextTick = nextTick;
+        for (Bucket[] wheel : this.wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds a task to be due at its {@link TaskHandler#getNextRunTick() next run tick}. Tasks which are already overdue
+     * become due on the next tick.
+     *
+     * @param task task to add
+     */
+    void add(TaskHandler task) {
+        Preconditions.checkArgument(task.bucket == null, "Task is already scheduled");
+        this.insert(task, Math.max(task.getNextRunTick(), this.nextTick));
+        this.size++;
+    }
+
+    /**
+     * Removes a task if it is scheduled.
+     *
+     * @param task task to remove
+     */
+    void remove(TaskHandler task) {
+        if (task.bucket != null) {
+            task.bucket.unlink(task);
+            this.size--;
+        }
+    }
+
+    /**
+     * Advances the wheel up to and including the given tick and collects all tasks which have become due in the order
+     * they are due.
+     *
+     * @param tick tick to advance to
+     * @param due  list to add due tasks to
+     */
+    void advance(long tick, List<TaskHandler> due) {
+        if (this.size == 0) {
+            this.nextTick = Math.max(this.nextTick, tick + 1);
+            return;
+        }
+
+        if (tick - this.nextTick >= CATCH_UP_TICKS) {
+            // Cheaper to sort all tasks than to step through every tick after a long stall or on shutdown
+            this.advanceAll(tick, due);
+            return;
+        }
+
+        for (; this.nextTick <= tick && this.size > 0; this.nextTick++) {
+            long current = this.nextTick;
+            this.cascade(current);
+            int drained = this.wheels[0][(int) (current & SLOT_MASK)].drainTo(due);
+            this.size -= drained;
+        }
+        this.nextTick = Math.max(this.nextTick, tick + 1);
+    }
+
+    private void advanceAll(long tick, List<TaskHandler> due) {
+        List<TaskHandler> tasks = new ArrayList<>(this.size);
+        for (Bucket[] wheel : this.wheels) {
+            for (Bucket bucket : wheel) {
+                bucket.drainTo(tasks);
+            }
+        }
+        this.overflow.drainTo(tasks);
+        this.size = 0;
+        this.nextTick = tick + 1;
+
+        tasks.sort(BY_DUE_TICK);
+        for (TaskHandler task : tasks) {
+            if (task.getNextRunTick() <= tick) {
+                due.add(task);
+            } else {
+                this.add(task);
+            }
+        }
+    }
+
+    /**
+     * Moves the tasks of the slots which start a new turn at the given tick down to the wheel below.
+     */
+    private void cascade(long tick) {
+        if ((tick & SLOT_MASK) != 0) {
+            return;
+        }
+
+        int level = 1;
+        while (level < LEVELS && ((tick >>> (SLOT_BITS * level)) & SLOT_MASK) == 0) {
+            level++;
+        }
+
+        if (level == LEVELS) {
+            this.reinsert(this.overflow, tick);
+            level--;
+        }
+        // Higher wheels first, so a task can move down more than one wheel at once
+        for (; level > 0; level--) {
+            this.reinsert(this.wheels[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)], tick);
+        }
+    }
+
+    private void reinsert(Bucket bucket, long tick) {
+        TaskHandler task = bucket.head;
+        bucket.head = null;
+        bucket.tail = null;
+        while (task != null) {
+            TaskHandler next = task.next;
+            task.bucket = null;
+            task.previous = null;
+            task.next = null;
+            this.insert(task, Math.max(task.getNextRunTick(), tick));
+            task = next;
+        }
+    }
+
+    private void insert(TaskHandler task, long due) {
+        long diff = due ^ this.nextTick;
+        Bucket bucket;
+        if (diff >= SPAN) {
+            bucket = this.overflow;
+        } else {
+            int level = 0;
+            while (diff >= SLOTS) {
+                diff >>>= SLOT_BITS;
+                level++;
+            }
+            bucket = this.wheels[level][(int) ((due >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        }
+        bucket.link(task);
+    }
+
+    /**
+     * Intrusive doubly linked list of the tasks in one slot, in the order they were added.
+     */
+    static final class Bucket {
+        private TaskHandler head;
+        private TaskHandler tail;
+
+        private void link(TaskHandler task) {
+            task.bucket = this;
+            task.previous = this.tail;
+            task.next = null;
+            if (this.tail == null) {
+                this.head = task;
+            } else {
+                this.tail.next = task;
+            }
+            this.tail = task;
+        }
+
+        private void unlink(TaskHandler task) {
+            if (task.previous == null) {
+                this.head = task.next;
+            } else {
+                task.previous.next = task.next;
+            }
+            if (task.next == null) {
+                this.tail = task.previous;
+            } else {
+                task.next.previous = task.previous;
+            }
+            task.bucket = null;
+            task.previous = null;
+            task.next = null;
+        }
+
+        private int drainTo(List<TaskHandler> tasks) {
+            int count = 0;
+            TaskHandler task = this.head;
+            while (task != null) {
+                TaskHandler next = task.next;
+                task.bucket = null;
+                task.previous = null;
+                task.next = null;
+                tasks.add(task);
+                count++;
+                task = next;
+            }
+            this.head = null;
+            this.tail = null;
+            return count;
+        }
+    }
+}
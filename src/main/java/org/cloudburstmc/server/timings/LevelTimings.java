@@ -16,6 +16,7 @@ public class LevelTimings {
 
     public final Timing tickChunks;
     public final Timing entityTick;
+    public final Timing entityMovementBroadcast;
     public final Timing blockEntityTick;
 
     public final Timing syncChunkSendTimer;
@@ -24,6 +25,8 @@ public class LevelTimings {
     public final Timing syncChunkLoadDataTimer;
     public final Timing syncChunkLoadEntitiesTimer;
     public final Timing syncChunkLoadBlockEntitiesTimer;
+    public final Timing syncChunkSaveSnapshotTimer;
+    public final Timing asyncChunkSaveTimer;
 
     public LevelTimings(Level level) {
         String name = level.getId() + " - ";
@@ -35,6 +38,7 @@ public class LevelTimings {
 
         this.tickChunks = TimingsManager.getTiming(name + "tickChunks");
         this.entityTick = TimingsManager.getTiming(name + "entityTick");
+        this.entityMovementBroadcast = TimingsManager.getTiming(name + "entityMovementBroadcast");
         this.blockEntityTick = TimingsManager.getTiming(name + "blockEntityTick");
 
         this.syncChunkSendTimer = TimingsManager.getTiming(name + "syncChunkSend");
@@ -43,5 +47,7 @@ public class LevelTimings {
         this.syncChunkLoadDataTimer = TimingsManager.getTiming(name + "syncChunkLoad - Data");
         this.syncChunkLoadEntitiesTimer = TimingsManager.getTiming(name + "syncChunkLoad - Entities");
         this.syncChunkLoadBlockEntitiesTimer = TimingsManager.getTiming(name + "syncChunkLoad - BlockEntities");
+        this.syncChunkSaveSnapshotTimer = TimingsManager.getTiming(name + "syncChunkSave - Snapshot");
+        this.asyncChunkSaveTimer = TimingsManager.getTiming(name + "asyncChunkSave");
     }
 }
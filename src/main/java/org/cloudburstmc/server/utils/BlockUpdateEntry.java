@@ -4,12 +4,14 @@ import com.nukkitx.math.vector.Vector3i;
 import com.nukkitx.math.vector.Vector4i;
 import org.cloudburstmc.server.block.Block;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * author: MagicDroidX
  * Nukkit Project
  */
 public class BlockUpdateEntry implements Comparable<BlockUpdateEntry> {
-    private static long entryID = 0;
+    private static final AtomicLong ENTRY_ID = new AtomicLong();
 
     public int priority;
     public long delay;
@@ -22,11 +24,11 @@ public class BlockUpdateEntry implements Comparable<BlockUpdateEntry> {
     public BlockUpdateEntry(Vector3i pos, Block block) {
         this.pos = pos;
         this.block = block;
-        this.id = entryID++;
+        this.id = ENTRY_ID.getAndIncrement();
     }
 
     public BlockUpdateEntry(Vector3i pos, Block block, long delay, int priority) {
-        this.id = entryID++;
+        this.id = ENTRY_ID.getAndIncrement();
         this.pos = pos;
         this.priority = priority;
         this.delay = delay;
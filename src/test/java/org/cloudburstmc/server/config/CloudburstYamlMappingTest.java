@@ -74,16 +74,26 @@ public class CloudburstYamlMappingTest {
                         .alwaysTickPlayers(false)
                         .chunkTimeoutAfterLoad(30)
                         .chunkTimeoutAfterLastAccess(120)
+                        .chunkUnloadsPerTick(32)
+                        .chunkSaveBatchSize(64)
+                        .chunkSaveRateLimit(8192)
+                        .parallelTicking(false)
+                        .parallelTickThreads(0)
+                        .tickBudget(0)
                         .build(),
                 yml.getLevelSettings()
         );
 
         assertEquals(
                 ServerConfig.ChunkSending.builder()
-                        .perTick(4)
+                        .perTick(16)
                         .maxChunkRadius(48)
                         .spawnThreshold(56)
                         .cacheChunks(false)
+                        .cacheSize(64)
+                        .cacheDirect(false)
+                        .prefetchPerPlayer(4)
+                        .prefetchGlobal(64)
                         .build(),
                 yml.getChunkSending()
         );
@@ -106,6 +116,16 @@ public class CloudburstYamlMappingTest {
                 yml.getChunkGeneration()
         );
 
+        assertEquals(
+                ServerConfig.Executors.builder()
+                        .io(new ServerConfig.Pool(4, 4096))
+                        .generation(new ServerConfig.Pool(0, 4096))
+                        .network(new ServerConfig.Pool(0, 4096))
+                        .plugins(new ServerConfig.Pool(0, 1024))
+                        .build(),
+                yml.getExecutors()
+        );
+
         assertEquals(
                 ServerConfig.TicksPer.builder()
                         .animalSpawns(400)
@@ -0,0 +1,209 @@
+package org.cloudburstmc.server.level;
+
+import com.google.common.collect.ImmutableSet;
+import com.nukkitx.math.vector.Vector3f;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.cloudburstmc.server.entity.Entity;
+import org.cloudburstmc.server.level.chunk.Chunk;
+import org.cloudburstmc.server.math.AxisAlignedBB;
+import org.cloudburstmc.server.math.NukkitMath;
+import org.cloudburstmc.server.math.SimpleAxisAlignedBB;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Neighbourhood queries on a {@link SpatialEntityIndex} compared to the chunk entity sets {@link Level} used to look
+ * entities up in, which are copied for every chunk around the queried area. Entities are spread over 32x32 chunks, so
+ * the density grows with the entity count.
+ * <p>
+ * The chunk based ray query only collects the entities around the ray without testing them against it, so it is
+ * cheaper than a real one. Entities are {@link TestEntity} proxies, whose calls cost both sides alike.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialEntityIndexBenchmark {
+    private static final int SIZE = 32 * 16;
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "10000", "50000"})
+    public int entities;
+
+    private final Long2ObjectMap<Set<Entity>> chunkEntities = new Long2ObjectOpenHashMap<>();
+    private final SpatialEntityIndex index = new SpatialEntityIndex();
+    private final Vector3f[] points = new Vector3f[QUERIES];
+    private final Vector3f[] directions = new Vector3f[QUERIES];
+    private final SpatialEntityIndex.Visitor counter = entity -> {
+        this.found++;
+        return true;
+    };
+    private TestEntity[] spawned;
+    private int query;
+    private int found;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(12345);
+        this.spawned = new TestEntity[this.entities];
+        for (int i = 0; i < this.entities; i++) {
+            TestEntity entity = new TestEntity(random.nextFloat() * SIZE, 64 + random.nextFloat() * 8,
+                    random.nextFloat() * SIZE);
+            this.spawned[i] = entity;
+            this.chunkEntities.computeIfAbsent(chunkKey(entity.getPosition()), key -> new HashSet<>())
+                    .add(entity.getEntity());
+            this.index.add(entity.getEntity());
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            this.points[i] = Vector3f.from(random.nextFloat() * SIZE, 64 + random.nextFloat() * 8,
+                    random.nextFloat() * SIZE);
+            this.directions[i] = Vector3f.from(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+                    random.nextFloat() - 0.5f);
+        }
+    }
+
+    private Vector3f nextPoint() {
+        return this.points[this.query++ & (QUERIES - 1)];
+    }
+
+    /**
+     * Entities around a changed block, as {@link Level#setBlock} looks up.
+     */
+    @Benchmark
+    public int chunkSetsBox() {
+        Vector3f pos = this.nextPoint();
+        return this.getNearbyEntities(new SimpleAxisAlignedBB(pos.sub(1, 1, 1), pos.add(1, 1, 1))).size();
+    }
+
+    @Benchmark
+    public int indexBox() {
+        Vector3f pos = this.nextPoint();
+        this.found = 0;
+        this.index.forEachInBox(new SimpleAxisAlignedBB(pos.sub(1, 1, 1), pos.add(1, 1, 1)), null, this.counter);
+        return this.found;
+    }
+
+    @Benchmark
+    public int chunkSetsRadius() {
+        Vector3f pos = this.nextPoint();
+        int count = 0;
+        for (Entity entity : this.getNearbyEntities(new SimpleAxisAlignedBB(pos.sub(8, 8, 8), pos.add(8, 8, 8)))) {
+            if (entity.getPosition().distanceSquared(pos) <= 64) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int indexRadius() {
+        Vector3f pos = this.nextPoint();
+        this.found = 0;
+        this.index.forEachInRadius(pos.getX(), pos.getY(), pos.getZ(), 8, this.counter);
+        return this.found;
+    }
+
+    @Benchmark
+    public int chunkSetsRay() {
+        Vector3f pos = this.nextPoint();
+        Vector3f end = pos.add(this.directions[(this.query - 1) & (QUERIES - 1)].normalize().mul(16));
+        return this.getNearbyEntities(new SimpleAxisAlignedBB(pos.min(end), pos.max(end))).size();
+    }
+
+    @Benchmark
+    public int indexRay() {
+        Vector3f pos = this.nextPoint();
+        this.found = 0;
+        this.index.forEachOnRay(pos, this.directions[(this.query - 1) & (QUERIES - 1)], 16, this.counter);
+        return this.found;
+    }
+
+    /**
+     * Walks an entity by a fraction of a block, as most entity movement does.
+     */
+    @Benchmark
+    public void chunkSetsMove() {
+        TestEntity entity = this.nextEntity();
+        long previous = chunkKey(entity.getPosition());
+        step(entity);
+        long key = chunkKey(entity.getPosition());
+        if (key != previous) {
+            this.chunkEntities.get(previous).remove(entity.getEntity());
+            this.chunkEntities.computeIfAbsent(key, k -> new HashSet<>()).add(entity.getEntity());
+        }
+    }
+
+    @Benchmark
+    public void indexMove() {
+        TestEntity entity = this.nextEntity();
+        step(entity);
+        this.index.update(entity.getEntity());
+    }
+
+    private TestEntity nextEntity() {
+        return this.spawned[this.query++ % this.spawned.length];
+    }
+
+    private static void step(TestEntity entity) {
+        Vector3f pos = entity.getPosition();
+        // Wrap around so entities stay in the populated area
+        float x = pos.getX() + 0.2f;
+        if (x >= SIZE) {
+            x -= SIZE;
+        }
+        entity.moveTo(x, pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Same lookup as {@link Level#getNearbyEntities} did before, including the copies of the chunk entity sets made by
+     * {@link Chunk#getEntities()} and {@link Level#getLoadedChunkEntities(int, int)}.
+     */
+    private Set<Entity> getNearbyEntities(AxisAlignedBB bb) {
+        int minX = NukkitMath.floorDouble((bb.getMinX() - 2) * 0.0625);
+        int maxX = NukkitMath.ceilDouble((bb.getMaxX() + 2) * 0.0625);
+        int minZ = NukkitMath.floorDouble((bb.getMinZ() - 2) * 0.0625);
+        int maxZ = NukkitMath.ceilDouble((bb.getMaxZ() + 2) * 0.0625);
+
+        ImmutableSet.Builder<Entity> entities = null;
+
+        for (int x = minX; x <= maxX; ++x) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                Set<Entity> chunk = this.chunkEntities.get(Chunk.key(x, z));
+                if (chunk == null) {
+                    continue;
+                }
+                Set<Entity> entitiesInRange = ImmutableSet.copyOf(new HashSet<>(chunk));
+                for (Entity entityInRange : entitiesInRange) {
+                    if (entityInRange.getBoundingBox().intersectsWith(bb)) {
+                        if (entities == null) {
+                            entities = ImmutableSet.builder();
+                        }
+                        entities.add(entityInRange);
+                    }
+                }
+            }
+        }
+
+        return entities == null ? ImmutableSet.of() : entities.build();
+    }
+
+    private static long chunkKey(Vector3f pos) {
+        return Chunk.key(pos.getFloorX() >> 4, pos.getFloorZ() >> 4);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SpatialEntityIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,137 @@
+package org.cloudburstmc.server.level;
+
+import com.nukkitx.math.vector.Vector3f;
+import org.cloudburstmc.server.entity.Entity;
+import org.cloudburstmc.server.math.SimpleAxisAlignedBB;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SpatialEntityIndex")
+class SpatialEntityIndexTest {
+
+    @DisplayName("Box")
+    @Test
+    void testBox() {
+        SpatialEntityIndex index = new SpatialEntityIndex();
+        TestEntity inside = entity(index, 4.5f, 64, 4.5f);
+        // Position in the next cell, bounding box reaching back into the queried box
+        TestEntity edge = entity(index, 8.2f, 64, 4.5f);
+        TestEntity outside = entity(index, 20.5f, 64, 4.5f);
+
+        Set<Entity> found = box(index, 3, 63, 3, 8, 66, 6, null);
+        assertTrue(found.contains(inside.getEntity()));
+        assertTrue(found.contains(edge.getEntity()));
+        assertFalse(found.contains(outside.getEntity()));
+
+        assertFalse(box(index, 3, 63, 3, 8, 66, 6, inside.getEntity()).contains(inside.getEntity()));
+        assertTrue(box(index, 3, 70, 3, 8, 72, 6, null).isEmpty());
+    }
+
+    @DisplayName("Update and remove")
+    @Test
+    void testUpdate() {
+        SpatialEntityIndex index = new SpatialEntityIndex();
+        TestEntity entity = entity(index, 4.5f, 64, 4.5f);
+
+        entity.moveTo(-40.5f, 64, 100.5f);
+        index.update(entity.getEntity());
+        assertTrue(box(index, 3, 63, 3, 6, 66, 6, null).isEmpty());
+        assertTrue(box(index, -41, 63, 100, -40, 66, 101, null).contains(entity.getEntity()));
+        assertEquals(1, index.size());
+
+        index.remove(entity.getEntity());
+        assertTrue(box(index, -41, 63, 100, -40, 66, 101, null).isEmpty());
+        assertEquals(0, index.size());
+
+        // Entities which were never added are not tracked by updates
+        index.update(entity.getEntity());
+        assertEquals(0, index.size());
+    }
+
+    @DisplayName("Radius")
+    @Test
+    void testRadius() {
+        SpatialEntityIndex index = new SpatialEntityIndex();
+        TestEntity near = entity(index, 10, 64, 10);
+        TestEntity far = entity(index, 10, 64, 20);
+
+        Set<Entity> found = new HashSet<>();
+        assertTrue(index.forEachInRadius(10, 64, 13, 5, found::add));
+        assertTrue(found.contains(near.getEntity()));
+        assertFalse(found.contains(far.getEntity()));
+        assertThrows(IllegalArgumentException.class, () -> index.forEachInRadius(0, 0, 0, -1, e -> true));
+    }
+
+    @DisplayName("Ray")
+    @Test
+    void testRay() {
+        SpatialEntityIndex index = new SpatialEntityIndex();
+        TestEntity ahead = entity(index, 20.5f, 64, 20.5f);
+        TestEntity aside = entity(index, 20.5f, 64, 30.5f);
+        TestEntity behind = entity(index, 0.5f, 64, 0.5f);
+
+        // Diagonal through the middle of the first entity
+        Set<Entity> found = ray(index, Vector3f.from(10.5f, 65, 10.5f), Vector3f.from(1, 0, 1), 32);
+        assertTrue(found.contains(ahead.getEntity()));
+        assertFalse(found.contains(aside.getEntity()));
+        assertFalse(found.contains(behind.getEntity()));
+
+        // Too short to reach it
+        assertFalse(ray(index, Vector3f.from(10.5f, 65, 10.5f), Vector3f.from(1, 0, 1), 8).contains(ahead.getEntity()));
+
+        // Straight along an axis and vertically down onto it
+        assertTrue(ray(index, Vector3f.from(20.5f, 65, 2), Vector3f.from(0, 0, 1), 64).containsAll(
+                setOf(ahead.getEntity(), aside.getEntity())));
+        assertTrue(ray(index, Vector3f.from(20.5f, 80, 20.5f), Vector3f.from(0, -1, 0), 20).contains(
+                ahead.getEntity()));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.forEachOnRay(Vector3f.ZERO, Vector3f.ZERO, 1, e -> true));
+    }
+
+    @DisplayName("Stopping a query")
+    @Test
+    void testStop() {
+        SpatialEntityIndex index = new SpatialEntityIndex();
+        entity(index, 4.5f, 64, 4.5f);
+        entity(index, 5.5f, 64, 5.5f);
+
+        int[] visited = new int[1];
+        assertFalse(index.forEachInBox(new SimpleAxisAlignedBB(0, 60, 0, 8, 70, 8), null, entity -> {
+            visited[0]++;
+            return false;
+        }));
+        assertEquals(1, visited[0]);
+    }
+
+    private static TestEntity entity(SpatialEntityIndex index, float x, float y, float z) {
+        TestEntity entity = new TestEntity(x, y, z);
+        index.add(entity.getEntity());
+        return entity;
+    }
+
+    private static Set<Entity> box(SpatialEntityIndex index, float minX, float minY, float minZ, float maxX,
+                                   float maxY, float maxZ, Entity exclude) {
+        Set<Entity> found = new HashSet<>();
+        index.forEachInBox(new SimpleAxisAlignedBB(minX, minY, minZ, maxX, maxY, maxZ), exclude, found::add);
+        return found;
+    }
+
+    private static Set<Entity> ray(SpatialEntityIndex index, Vector3f origin, Vector3f direction, double distance) {
+        Set<Entity> found = new HashSet<>();
+        index.forEachOnRay(origin, direction, distance, found::add);
+        return found;
+    }
+
+    private static Set<Entity> setOf(Entity... entities) {
+        Set<Entity> set = new HashSet<>();
+        for (Entity entity : entities) {
+            set.add(entity);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,59 @@
+package org.cloudburstmc.server.level;
+
+import com.nukkitx.math.vector.Vector3f;
+import org.cloudburstmc.server.entity.Entity;
+import org.cloudburstmc.server.math.AxisAlignedBB;
+import org.cloudburstmc.server.math.SimpleAxisAlignedBB;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Entity with nothing but a position and a player sized bounding box, for the {@link SpatialEntityIndex} tests and
+ * benchmarks, as a real entity needs a server and level to initialize. All other entity methods throw.
+ */
+final class TestEntity implements InvocationHandler {
+    private final Entity entity;
+    private Vector3f position;
+    private AxisAlignedBB boundingBox;
+
+    TestEntity(float x, float y, float z) {
+        this.entity = (Entity) Proxy.newProxyInstance(Entity.class.getClassLoader(), new Class<?>[]{Entity.class},
+                this);
+        this.moveTo(x, y, z);
+    }
+
+    Entity getEntity() {
+        return this.entity;
+    }
+
+    Vector3f getPosition() {
+        return this.position;
+    }
+
+    void moveTo(float x, float y, float z) {
+        this.position = Vector3f.from(x, y, z);
+        this.boundingBox = new SimpleAxisAlignedBB(x - 0.3f, y, z - 0.3f, x + 0.3f, y + 1.8f, z + 0.3f);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getPosition":
+                return this.position;
+            case "getBoundingBox":
+                return this.boundingBox;
+            case "canCollideWith":
+                return true;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "TestEntity(position=" + this.position + ")";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
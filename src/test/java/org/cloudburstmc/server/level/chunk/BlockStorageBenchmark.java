@@ -0,0 +1,80 @@
+package org.cloudburstmc.server.level.chunk;
+
+import org.cloudburstmc.server.block.BlockState;
+import org.cloudburstmc.server.registry.BlockRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set-heavy {@link BlockStorage} workloads: a generator style fill with a varied palette, a WorldEdit style fill of a
+ * single state over a varied section, and the compaction that runs on save afterwards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockStorageBenchmark {
+
+    private static final int SIZE = 4096;
+
+    @Param({"4", "16", "64", "256"})
+    public int paletteSize;
+
+    private BlockState[] states;
+    private int[] pattern;
+
+    @Setup
+    public void setup() {
+        BlockRegistry.get().close(); // init
+
+        this.states = new BlockState[this.paletteSize];
+        for (int i = 0; i < this.paletteSize; i++) {
+            this.states[i] = BlockRegistry.get().getBlock(i + 1);
+        }
+
+        Random random = new Random(12345);
+        this.pattern = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.pattern[i] = random.nextInt(this.paletteSize);
+        }
+    }
+
+    @Benchmark
+    public BlockStorage generationFill() {
+        BlockStorage storage = new BlockStorage();
+        for (int i = 0; i < SIZE; i++) {
+            storage.setBlock(i, this.states[this.pattern[i]]);
+        }
+        return storage;
+    }
+
+    @Benchmark
+    public BlockStorage worldEditFill() {
+        BlockStorage storage = this.generationFill();
+        BlockState state = this.states[0];
+        for (int i = 0; i < SIZE; i++) {
+            storage.setBlock(i, state);
+        }
+        return storage;
+    }
+
+    @Benchmark
+    public BlockStorage worldEditFillAndCompact() {
+        BlockStorage storage = this.worldEditFill();
+        storage.compact();
+        return storage;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BlockStorageBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
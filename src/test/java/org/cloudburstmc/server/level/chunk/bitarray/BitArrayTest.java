@@ -0,0 +1,61 @@
+package org.cloudburstmc.server.level.chunk.bitarray;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BitArray")
+class BitArrayTest {
+
+    private static final int SIZE = 4096;
+
+    @DisplayName("Single value palette")
+    @Test
+    void testSingleValue() {
+        BitArray array = BitArrayVersion.V0.createPalette(SIZE);
+        assertTrue(array instanceof SingleValueBitArray);
+        assertEquals(0, array.getWords().length);
+        assertEquals(SIZE, array.size());
+
+        array.set(SIZE - 1, 0);
+        assertEquals(0, array.get(SIZE - 1));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> array.set(0, 1));
+        assertEquals("Max value: 0. Received value 1", e.getMessage());
+        assertThrows(IndexOutOfBoundsException.class, () -> array.get(SIZE));
+    }
+
+    @DisplayName("Round trip through words")
+    @Test
+    void testRoundTrip() {
+        Random random = new Random(0);
+        for (BitArrayVersion version : BitArrayVersion.values()) {
+            BitArray array = version.createPalette(SIZE);
+            int[] values = new int[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                values[i] = random.nextInt(version.getMaxEntryValue() + 1);
+                array.set(i, values[i]);
+            }
+
+            int[] words = array.getWords().clone();
+            assertEquals(version.getWordsForSize(SIZE), words.length, version.name());
+            BitArray read = version.createPalette(SIZE, words);
+            assertEquals(version, read.getVersion());
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(values[i], read.get(i), version.name());
+            }
+        }
+    }
+
+    @DisplayName("Versions by header")
+    @Test
+    void testHeaderVersion() {
+        for (BitArrayVersion version : BitArrayVersion.values()) {
+            assertEquals(version, BitArrayVersion.get(version.getId(), true));
+        }
+        assertThrows(IllegalArgumentException.class, () -> BitArrayVersion.V0.createPalette(SIZE, new int[1]));
+    }
+}
@@ -0,0 +1,96 @@
+package org.cloudburstmc.server.level.manager;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.cloudburstmc.server.level.chunk.Chunk;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single monitor chunk map {@link LevelChunkManager} used to have against a concurrent map with boxed keys
+ * and the striped map it uses now, with several threads looking up chunks around a view distance while a few chunks
+ * are loaded and unloaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ChunkMapContentionBenchmark {
+
+    private static final int RADIUS = 32;
+    private static final int WRITE_PERCENT = 2;
+
+    private final Long2ObjectMap<Object> synchronizedMap = new Long2ObjectOpenHashMap<>();
+    private final ConcurrentMap<Long, Object> concurrentMap = new ConcurrentHashMap<>();
+    private final StripedLong2ObjectMap<Object> stripedMap = new StripedLong2ObjectMap<>();
+
+    @Setup
+    public void setup() {
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                long key = Chunk.key(x, z);
+                this.synchronizedMap.put(key, new Object());
+                this.concurrentMap.put(key, new Object());
+                this.stripedMap.computeIfAbsent(key, k -> new Object());
+            }
+        }
+    }
+
+    @Benchmark
+    public Object synchronizedMonitor() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long key = randomKey(random);
+        synchronized (this.synchronizedMap) {
+            if (random.nextInt(100) < WRITE_PERCENT) {
+                Object value = this.synchronizedMap.remove(key);
+                return this.synchronizedMap.put(key, value == null ? new Object() : value);
+            }
+            return this.synchronizedMap.get(key);
+        }
+    }
+
+    @Benchmark
+    public Object concurrentMap() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long key = randomKey(random);
+        if (random.nextInt(100) < WRITE_PERCENT) {
+            Object value = this.concurrentMap.remove(key);
+            return this.concurrentMap.put(key, value == null ? new Object() : value);
+        }
+        return this.concurrentMap.get(key);
+    }
+
+    @Benchmark
+    public Object stripedMap() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long key = randomKey(random);
+        if (random.nextInt(100) < WRITE_PERCENT) {
+            Object value = this.stripedMap.get(key);
+            if (value != null) {
+                this.stripedMap.remove(key, value);
+            }
+            return this.stripedMap.computeIfAbsent(key, k -> value == null ? new Object() : value);
+        }
+        return this.stripedMap.get(key);
+    }
+
+    private static long randomKey(ThreadLocalRandom random) {
+        return Chunk.key(random.nextInt(-RADIUS, RADIUS + 1), random.nextInt(-RADIUS, RADIUS + 1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChunkMapContentionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,75 @@
+package org.cloudburstmc.server.level.provider.leveldb.serializer;
+
+import com.nukkitx.math.vector.Vector3i;
+import org.cloudburstmc.server.block.BlockState;
+import org.cloudburstmc.server.block.BlockStates;
+import org.cloudburstmc.server.block.CloudBlock;
+import org.cloudburstmc.server.level.BlockUpdate;
+import org.cloudburstmc.server.registry.BlockRegistry;
+import org.cloudburstmc.server.utils.BlockUpdateEntry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PendingTickSerializer")
+class PendingTickSerializerTest {
+
+    @BeforeAll
+    static void init() {
+        BlockRegistry.get(); // init
+    }
+
+    @DisplayName("Round trip")
+    @Test
+    void testRoundTrip() {
+        long currentTick = 1200;
+        Vector3i stone = Vector3i.from(17, 64, -3);
+        Vector3i water = Vector3i.from(18, 63, -3);
+        List<BlockUpdateEntry> entries = Arrays.asList(
+                entry(stone, BlockStates.COBBLESTONE, BlockStates.AIR, currentTick + 5, 0),
+                entry(water, BlockStates.COBBLESTONE, BlockStates.FLOWING_WATER, currentTick + 20, -1)
+        );
+
+        List<BlockUpdate> updates = PendingTickSerializer.readTickList(
+                PendingTickSerializer.writeTickList(entries, currentTick), null);
+        assertEquals(2, updates.size());
+
+        BlockUpdate first = updates.get(0);
+        assertEquals(stone, first.getPos());
+        assertEquals(5, first.getDelay());
+        assertEquals(0, first.getPriority());
+        assertEquals(BlockStates.COBBLESTONE, first.getBlock().getState());
+        assertEquals(BlockStates.AIR, first.getBlock().getExtra());
+
+        BlockUpdate second = updates.get(1);
+        assertEquals(water, second.getPos());
+        assertEquals(20, second.getDelay());
+        assertEquals(-1, second.getPriority());
+        assertEquals(BlockStates.COBBLESTONE, second.getBlock().getState());
+        assertEquals(BlockStates.FLOWING_WATER, second.getBlock().getExtra());
+    }
+
+    @DisplayName("Overdue updates")
+    @Test
+    void testOverdue() {
+        Vector3i pos = Vector3i.from(0, 10, 0);
+        List<BlockUpdateEntry> entries = Collections.singletonList(
+                entry(pos, BlockStates.COBBLESTONE, BlockStates.AIR, 90, 0));
+
+        List<BlockUpdate> updates = PendingTickSerializer.readTickList(
+                PendingTickSerializer.writeTickList(entries, 100), null);
+        assertEquals(1, updates.size());
+        assertEquals(0, updates.get(0).getDelay());
+    }
+
+    private static BlockUpdateEntry entry(Vector3i pos, BlockState state, BlockState extra, long time, int priority) {
+        CloudBlock block = new CloudBlock(null, pos, new BlockState[]{state, extra});
+        return new BlockUpdateEntry(pos, block, time, priority);
+    }
+}
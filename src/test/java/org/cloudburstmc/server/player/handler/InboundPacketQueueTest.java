@@ -0,0 +1,90 @@
+package org.cloudburstmc.server.player.handler;
+
+import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.packet.AnimatePacket;
+import com.nukkitx.protocol.bedrock.packet.MovePlayerPacket;
+import com.nukkitx.protocol.bedrock.packet.PlayerInputPacket;
+import com.nukkitx.protocol.bedrock.packet.TextPacket;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("InboundPacketQueue")
+class InboundPacketQueueTest {
+
+    @DisplayName("Movement coalescing")
+    @Test
+    void testCoalescing() {
+        InboundPacketQueue queue = new InboundPacketQueue();
+        MovePlayerPacket move1 = new MovePlayerPacket();
+        MovePlayerPacket move2 = new MovePlayerPacket();
+        AnimatePacket animate = new AnimatePacket();
+        MovePlayerPacket move3 = new MovePlayerPacket();
+        PlayerInputPacket input1 = new PlayerInputPacket();
+        PlayerInputPacket input2 = new PlayerInputPacket();
+        offer(queue, move1, move2, animate, move3, input1, input2);
+
+        // The last movement before another packet is handled ahead of it
+        assertHandled(drain(queue), move2, animate, move3, input2);
+        assertTrue(drain(queue).isEmpty());
+    }
+
+    @DisplayName("Limits")
+    @Test
+    void testLimits() {
+        InboundPacketQueue queue = new InboundPacketQueue();
+        TextPacket[] texts = new TextPacket[5];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = new TextPacket();
+            queue.offer(texts[i]);
+        }
+        AnimatePacket animate = new AnimatePacket();
+        MovePlayerPacket move = new MovePlayerPacket();
+        offer(queue, animate, move);
+
+        // Everything after the limited packet waits for the next tick to keep the order
+        assertHandled(drain(queue), texts[0], texts[1], texts[2], texts[3]);
+        assertHandled(drain(queue), texts[4], animate, move);
+    }
+
+    @DisplayName("Overflow")
+    @Test
+    void testOverflow() {
+        InboundPacketQueue queue = new InboundPacketQueue();
+        for (int i = 0; i < InboundPacketQueue.MAX_PENDING; i++) {
+            assertTrue(queue.offer(new AnimatePacket()));
+        }
+        assertFalse(queue.isOverflowed());
+
+        assertFalse(queue.offer(new AnimatePacket()));
+        assertTrue(queue.isOverflowed());
+        assertEquals(InboundPacketQueue.MAX_PENDING, drain(queue).size());
+
+        // Draining frees up room again
+        assertTrue(queue.offer(new AnimatePacket()));
+    }
+
+    private static void offer(InboundPacketQueue queue, BedrockPacket... packets) {
+        for (BedrockPacket packet : packets) {
+            queue.offer(packet);
+        }
+    }
+
+    private static List<BedrockPacket> drain(InboundPacketQueue queue) {
+        List<BedrockPacket> handled = new ArrayList<>();
+        queue.drain(handled::add);
+        return handled;
+    }
+
+    private static void assertHandled(List<BedrockPacket> handled, BedrockPacket... expected) {
+        assertEquals(expected.length, handled.size(), "Handled " + handled);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], handled.get(i), "Packet " + i + " of " + Arrays.toString(expected));
+        }
+    }
+}
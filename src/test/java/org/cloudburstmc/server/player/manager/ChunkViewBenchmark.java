@@ -0,0 +1,81 @@
+package org.cloudburstmc.server.player.manager;
+
+import it.unimi.dsi.fastutil.longs.*;
+import org.cloudburstmc.server.level.chunk.Chunk;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A player flying in a straight line, entering a new chunk on every invocation. Compares {@link ChunkView} to the way
+ * {@link PlayerChunkManager#queueNewChunks(int, int)} used to recompute the whole circle on every move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkViewBenchmark {
+
+    @Param({"16", "48"})
+    public int radius;
+
+    private final ChunkView view = new ChunkView();
+    private final LongSet loadedChunks = new LongOpenHashSet();
+    private int viewX;
+    private int fullX;
+
+    @Setup
+    public void setup() {
+        this.view.update(0, 0, this.radius);
+        this.fullRecompute(0, 0);
+    }
+
+    @Benchmark
+    public int incremental() {
+        this.view.update(++this.viewX, 0, this.radius);
+        return this.view.getEntered().size() + this.view.getLeft().size();
+    }
+
+    @Benchmark
+    public int fullRecompute() {
+        return this.fullRecompute(++this.fullX, 0);
+    }
+
+    private int fullRecompute(int chunkX, int chunkZ) {
+        int radius = this.radius;
+        int radiusSqr = radius * radius;
+
+        LongSet chunksForRadius = new LongOpenHashSet();
+        LongSet sentCopy = new LongOpenHashSet(this.loadedChunks);
+        LongList chunksToLoad = new LongArrayList();
+
+        for (int x = -radius; x <= radius; ++x) {
+            for (int z = -radius; z <= radius; ++z) {
+                if ((x * x) + (z * z) > radiusSqr) {
+                    continue;
+                }
+
+                long key = Chunk.key(chunkX + x, chunkZ + z);
+                chunksForRadius.add(key);
+                if (this.loadedChunks.add(key)) {
+                    chunksToLoad.add(key);
+                }
+            }
+        }
+
+        this.loadedChunks.retainAll(chunksForRadius);
+        sentCopy.removeAll(chunksForRadius);
+        return chunksToLoad.size() + sentCopy.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ChunkViewBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package org.cloudburstmc.server.player.manager;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.cloudburstmc.server.level.chunk.Chunk;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChunkView")
+class ChunkViewTest {
+
+    @DisplayName("Moves match a full recompute")
+    @Test
+    void testMove() {
+        Random random = new Random(12345);
+        for (int radius : new int[]{0, 1, 2, 5, 16}) {
+            ChunkView view = new ChunkView();
+            int x = 0;
+            int z = 0;
+            this.check(view, x, z, radius);
+            for (int i = 0; i < 500; i++) {
+                // Mostly steps to a neighbour, sometimes further, sometimes past the diameter
+                int distance = i % 50 == 0 ? radius * 3 + 1 : i % 7 == 0 ? radius + 1 : 1;
+                x += random.nextInt(distance * 2 + 1) - distance;
+                z += random.nextInt(distance * 2 + 1) - distance;
+                this.check(view, x, z, radius);
+            }
+        }
+    }
+
+    @DisplayName("Radius changes")
+    @Test
+    void testRadius() {
+        ChunkView view = new ChunkView();
+        this.check(view, 3, -7, 4);
+        this.check(view, 3, -7, 8);
+        this.check(view, 4, -7, 2);
+        this.check(view, 4, -6, 2);
+    }
+
+    @DisplayName("Removed chunks are added back")
+    @Test
+    void testRemove() {
+        ChunkView view = new ChunkView();
+        this.check(view, 0, 0, 3);
+        long key = Chunk.key(1, 1);
+        assertTrue(view.remove(key));
+        assertFalse(view.contains(key));
+        assertFalse(view.remove(key));
+
+        assertTrue(view.update(0, 0, 3));
+        assertEquals(1, view.getEntered().size());
+        assertEquals(key, view.getEntered().getLong(0));
+        assertTrue(view.getLeft().isEmpty());
+
+        assertFalse(view.update(0, 0, 3));
+    }
+
+    private void check(ChunkView view, int chunkX, int chunkZ, int radius) {
+        LongSet before = new LongOpenHashSet(view.getChunks());
+        LongSet expected = circle(chunkX, chunkZ, radius);
+
+        boolean changed = view.update(chunkX, chunkZ, radius);
+        String position = "(" + chunkX + ", " + chunkZ + ") radius " + radius;
+        assertEquals(expected, view.getChunks(), position);
+
+        LongSet entered = new LongOpenHashSet(expected);
+        entered.removeAll(before);
+        LongSet left = new LongOpenHashSet(before);
+        left.removeAll(expected);
+        assertEquals(entered, new LongOpenHashSet(view.getEntered()), "Entered at " + position);
+        assertEquals(left, new LongOpenHashSet(view.getLeft()), "Left at " + position);
+        assertEquals(entered.size(), view.getEntered().size(), "Entered twice at " + position);
+        assertEquals(left.size(), view.getLeft().size(), "Left twice at " + position);
+        assertEquals(!entered.isEmpty() || !left.isEmpty(), changed, position);
+    }
+
+    /**
+     * Circle the way {@link PlayerChunkManager} used to compute it on every move.
+     */
+    private static LongSet circle(int chunkX, int chunkZ, int radius) {
+        LongSet chunks = new LongOpenHashSet();
+        int radiusSqr = radius * radius;
+        for (int x = -radius; x <= radius; ++x) {
+            for (int z = -radius; z <= radius; ++z) {
+                if ((x * x) + (z * z) <= radiusSqr) {
+                    chunks.add(Chunk.key(chunkX + x, chunkZ + z));
+                }
+            }
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,79 @@
+package org.cloudburstmc.server.scheduler;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server tick cost of a {@link ServerScheduler} holding tens of thousands of repeating tasks, as plugins with per
+ * player or per region tasks create, plus scheduling and cancelling a short lived task on top of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class ServerSchedulerBenchmark {
+
+    @Param({"10000", "50000"})
+    public int tasks;
+
+    @Param({"20", "1200"})
+    public int maxPeriod;
+
+    private ServerScheduler scheduler;
+    private int tick;
+    private long runs;
+
+    @Setup
+    public void setup() {
+        this.scheduler = new ServerScheduler(null);
+        this.tick = 0;
+
+        Random random = new Random(12345);
+        for (int i = 0; i < this.tasks; i++) {
+            this.scheduler.scheduleDelayedRepeatingTask(() -> this.runs++, random.nextInt(this.maxPeriod),
+                    1 + random.nextInt(this.maxPeriod));
+        }
+        // Accept all pending tasks
+        this.scheduler.mainThreadHeartbeat(this.tick++);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.scheduler.cancelAllTasks();
+    }
+
+    @Benchmark
+    public long heartbeat() {
+        this.scheduler.mainThreadHeartbeat(this.tick++);
+        return this.runs;
+    }
+
+    @Benchmark
+    public void scheduleAndCancel() {
+        TaskHandler handler = this.scheduler.scheduleDelayedTask(() -> this.runs++, 100);
+        this.scheduler.cancelTask(handler.getTaskId());
+        this.scheduler.mainThreadHeartbeat(this.tick++);
+    }
+
+    @Benchmark
+    public long catchUp() {
+        // Server stalled for five seconds
+        this.tick += 100;
+        this.scheduler.mainThreadHeartbeat(this.tick++);
+        return this.runs;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ServerSchedulerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
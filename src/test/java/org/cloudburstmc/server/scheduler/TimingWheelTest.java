@@ -0,0 +1,138 @@
+package org.cloudburstmc.server.scheduler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimingWheel")
+class TimingWheelTest {
+
+    @DisplayName("Cascade")
+    @Test
+    void testCascade() {
+        // Around every wheel boundary and beyond the top wheel, which holds 2^24 ticks
+        int[] dueTicks = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 4160, 262143, 262144, 262145, 266240,
+                16777215, 16777216, 16777217, 16777216 + 4096, 33554433};
+        TimingWheel wheel = new TimingWheel(0);
+        Map<TaskHandler, Integer> expected = new IdentityHashMap<>();
+        for (int dueTick : dueTicks) {
+            TaskHandler task = task(dueTick);
+            wheel.add(task);
+            expected.put(task, dueTick);
+        }
+        assertEquals(dueTicks.length, wheel.size());
+
+        // One tick at a time, so every task has to move down through the wheels
+        List<TaskHandler> due = new ArrayList<>();
+        int last = dueTicks[dueTicks.length - 1];
+        for (int tick = 0; tick <= last; tick++) {
+            wheel.advance(tick, due);
+            for (TaskHandler task : due) {
+                assertEquals((int) expected.remove(task), tick, "Task due at " + task.getNextRunTick());
+            }
+            due.clear();
+        }
+        assertTrue(expected.isEmpty(), "Tasks never due: " + expected.values());
+        assertEquals(0, wheel.size());
+    }
+
+    @DisplayName("Order")
+    @Test
+    void testOrder() {
+        TimingWheel wheel = new TimingWheel(100);
+        TaskHandler late = task(300);
+        TaskHandler first = task(200);
+        TaskHandler second = task(200);
+        TaskHandler overdue = task(50);
+        wheel.add(late);
+        wheel.add(first);
+        wheel.add(second);
+        wheel.add(overdue);
+
+        List<TaskHandler> due = new ArrayList<>();
+        wheel.advance(100, due);
+        assertEquals(1, due.size());
+        assertSame(overdue, due.get(0));
+
+        due.clear();
+        wheel.advance(1000, due);
+        assertEquals(3, due.size());
+        assertSame(first, due.get(0));
+        assertSame(second, due.get(1));
+        assertSame(late, due.get(2));
+    }
+
+    @DisplayName("Remove")
+    @Test
+    void testRemove() {
+        TimingWheel wheel = new TimingWheel(0);
+        TaskHandler kept = task(70);
+        TaskHandler removed = task(70);
+        TaskHandler far = task(1 << 25);
+        wheel.add(kept);
+        wheel.add(removed);
+        wheel.add(far);
+
+        wheel.remove(removed);
+        wheel.remove(far);
+        // Removing twice is ignored
+        wheel.remove(far);
+        assertEquals(1, wheel.size());
+        assertThrows(IllegalArgumentException.class, () -> wheel.add(kept));
+
+        List<TaskHandler> due = new ArrayList<>();
+        wheel.advance(70, due);
+        assertEquals(1, due.size());
+        assertSame(kept, due.get(0));
+        assertEquals(0, wheel.size());
+
+        // Tasks can be added again once they ran
+        wheel.add(kept);
+        assertEquals(1, wheel.size());
+    }
+
+    @DisplayName("Catching up")
+    @Test
+    void testCatchUp() {
+        TimingWheel wheel = new TimingWheel(0);
+        TaskHandler third = task(90000);
+        TaskHandler first = task(10);
+        TaskHandler second = task(5000);
+        TaskHandler future = task(200000);
+        wheel.add(third);
+        wheel.add(first);
+        wheel.add(second);
+        wheel.add(future);
+
+        // Skipping far ahead at once, such as after a stall
+        List<TaskHandler> due = new ArrayList<>();
+        wheel.advance(100000, due);
+        assertEquals(3, due.size());
+        assertSame(first, due.get(0));
+        assertSame(second, due.get(1));
+        assertSame(third, due.get(2));
+        assertEquals(1, wheel.size());
+
+        due.clear();
+        for (int tick = 100001; tick < 200000; tick++) {
+            wheel.advance(tick, due);
+        }
+        assertTrue(due.isEmpty());
+        wheel.advance(200000, due);
+        assertEquals(1, due.size());
+        assertSame(future, due.get(0));
+    }
+
+    private static TaskHandler task(int nextRunTick) {
+        TaskHandler task = new TaskHandler(null, () -> {
+        }, nextRunTick, true);
+        task.setNextRunTick(nextRunTick);
+        return task;
+    }
+}